@@ -0,0 +1,118 @@
+#!/usr/bin/env bash
+# Measures incremental gradle compile times of a generated multi-module project, in which each module uses
+# @VersionName. Compares the processor as built with a copy that lacks the registration in
+# META-INF/gradle/incremental.annotation.processors, i.e. that gradle treats as not incremental.
+#
+# Usage: mvn clean install -DskipTests && benchmarks/incremental-build.sh [modules] [classes per module] [runs]
+#
+# Requires gradle on the PATH, running on a JDK supported by it. Works offline.
+set -euo pipefail
+
+MODULES=${1:-50}
+CLASSES=${2:-50}
+RUNS=${3:-5}
+
+ROOT_DIR=$(cd "$(dirname "$0")/.." && pwd)
+PROCESSOR_JAR=$(ls "${ROOT_DIR}"/processor/target/processor-*.jar | grep -v -e sources -e javadoc | head -n 1)
+JAVAPOET_JAR=$(find ~/.m2/repository/com/squareup/javapoet -name 'javapoet-*.jar' | grep -v sources | head -n 1)
+WORK_DIR=$(mktemp -d)
+trap 'gradle --stop -q >/dev/null 2>&1 || true; rm -rf "${WORK_DIR}"' EXIT
+
+# Processor jar without incremental registration, to compare against
+mkdir -p "${WORK_DIR}/lib"
+cp "${PROCESSOR_JAR}" "${WORK_DIR}/lib/processor-incremental.jar"
+cp "${PROCESSOR_JAR}" "${WORK_DIR}/lib/processor-not-incremental.jar"
+zip -q -d "${WORK_DIR}/lib/processor-not-incremental.jar" META-INF/gradle/incremental.annotation.processors
+cp "${JAVAPOET_JAR}" "${WORK_DIR}/lib/javapoet.jar"
+
+generateProject() {
+    local projectDir=$1
+    local processorJar=$2
+
+    mkdir -p "${projectDir}"
+    echo "rootProject.name = 'incremental-build'" > "${projectDir}/settings.gradle"
+    cat > "${projectDir}/build.gradle" <<EOF
+subprojects {
+    apply plugin: 'java'
+    dependencies {
+        compileOnly files('${processorJar}')
+        annotationProcessor files('${processorJar}', '${WORK_DIR}/lib/javapoet.jar')
+    }
+    tasks.withType(JavaCompile).configureEach {
+        options.release = 8
+        options.compilerArgs << '-AversionName=1.2.3'
+    }
+}
+EOF
+
+    for ((module = 0; module < MODULES; module++)); do
+        echo "include 'm${module}'" >> "${projectDir}/settings.gradle"
+        local sourceDir="${projectDir}/m${module}/src/main/java/m${module}"
+        mkdir -p "${sourceDir}"
+        for ((class = 0; class < CLASSES; class++)); do
+            cat > "${sourceDir}/C${class}.java" <<EOF
+package m${module};
+
+$( ((class == 0)) && echo '@com.cloudogu.versionname.VersionName' )
+public class C${class} {
+    public String version() {
+        return Version.NAME + " " + C$(((class + 1) % CLASSES)).class.getSimpleName();
+    }
+}
+EOF
+        done
+        writeUnrelated "${sourceDir}" 0
+    done
+}
+
+writeUnrelated() {
+    cat > "$1/Unrelated.java" <<EOF
+package $(basename "$1");
+
+public class Unrelated {
+    public int value() {
+        return $2;
+    }
+}
+EOF
+}
+
+# Prints the seconds it took to compile after changing Unrelated in every module
+measure() {
+    local projectDir=$1
+    local run=$2
+
+    for ((module = 0; module < MODULES; module++)); do
+        writeUnrelated "${projectDir}/m${module}/src/main/java/m${module}" "${run}"
+    done
+    local start end
+    start=$(date +%s%N)
+    gradle -p "${projectDir}" --offline -q compileJava
+    end=$(date +%s%N)
+    awk "BEGIN { printf \"%.2f\", (${end} - ${start}) / 1000000000 }"
+}
+
+# Counts the modules that were recompiled fully after changing Unrelated
+countFullRecompilations() {
+    local projectDir=$1
+
+    for ((module = 0; module < MODULES; module++)); do
+        writeUnrelated "${projectDir}/m${module}/src/main/java/m${module}" -1
+    done
+    gradle -p "${projectDir}" --offline --info compileJava | grep -c "Full recompilation is required" || true
+}
+
+for variant in not-incremental incremental; do
+    projectDir="${WORK_DIR}/${variant}"
+    generateProject "${projectDir}" "${WORK_DIR}/lib/processor-${variant}.jar"
+    # Warm up the daemon and create the compilation history incremental compilation is based on
+    gradle -p "${projectDir}" --offline -q compileJava
+    gradle -p "${projectDir}" --offline -q compileJava --rerun-tasks
+
+    times=()
+    for ((run = 1; run <= RUNS; run++)); do
+        times+=("$(measure "${projectDir}" "${run}")")
+    done
+    echo "${variant}: ${MODULES} modules, ${CLASSES} classes each, after changing one class per module:" \
+        "$(countFullRecompilations "${projectDir}") full recompilations, compileJava took ${times[*]} s"
+done
@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Manifest;
+
+/**
+ * Compares reading one main attribute via {@link Manifest} with {@link ManifestScanner} on large, OSGi-style
+ * manifests (long <code>Export-Package</code> header and many entry sections).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManifestScannerBenchmark {
+
+    private static final String ATTRIBUTE = "versionName";
+
+    /**
+     * Number of packages in <code>Export-Package</code> and number of entry sections.
+     */
+    @Param({"10", "1000", "5000"})
+    public int size;
+
+    /**
+     * Whether the attribute is written before or after <code>Export-Package</code>.
+     */
+    @Param({"first", "last"})
+    public String position;
+
+    private byte[] manifest;
+
+    @Setup
+    public void setUp() {
+        StringBuilder exportPackage = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            exportPackage.append("com.example.package").append(i).append(";version=\"1.0.").append(i).append("\",");
+        }
+
+        // Written manually, because Manifest.write() does not keep the order of attributes on all JDKs
+        StringBuilder m = new StringBuilder();
+        appendHeader(m, "Manifest-Version", "1.0");
+        if ("first".equals(position)) {
+            appendHeader(m, ATTRIBUTE, "1.2.3");
+        }
+        appendHeader(m, "Export-Package", exportPackage.toString());
+        if ("last".equals(position)) {
+            appendHeader(m, ATTRIBUTE, "1.2.3");
+        }
+        for (int i = 0; i < size; i++) {
+            m.append("\r\n");
+            appendHeader(m, "Name", "com/example/package" + i + "/Class" + i + ".class");
+            appendHeader(m, "SHA-256-Digest", "V2UgYXJlIG5vdCBjaGVja2luZyBkaWdlc3RzIGhlcmUsIGp1c3Qgc2l6ZQ==");
+        }
+        m.append("\r\n");
+        manifest = m.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a header, wrapped into lines of at most 72 bytes like {@link Manifest#write(java.io.OutputStream)} does.
+     */
+    private static void appendHeader(StringBuilder manifest, String name, String value) {
+        String line = name + ": " + value;
+        manifest.append(line, 0, Math.min(72, line.length())).append("\r\n");
+        for (int i = 72; i < line.length(); i += 71) {
+            manifest.append(' ').append(line, i, Math.min(i + 71, line.length())).append("\r\n");
+        }
+    }
+
+    @Benchmark
+    public String javaUtilJarManifest() throws IOException {
+        return new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes().getValue(ATTRIBUTE);
+    }
+
+    @Benchmark
+    public String manifestScanner() throws IOException {
+        return ManifestScanner.findMainAttribute(new ByteArrayInputStream(manifest), ATTRIBUTE);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading one property via {@link Properties} with {@link PropertiesScanner} on large properties files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesScannerBenchmark {
+
+    private static final String KEY = "versionName";
+
+    /**
+     * Number of other properties in the file.
+     */
+    @Param({"10", "1000", "50000"})
+    public int size;
+
+    /**
+     * Whether the property is written before or after the other properties.
+     */
+    @Param({"first", "last"})
+    public String position;
+
+    private byte[] properties;
+
+    @Setup
+    public void setUp() {
+        StringBuilder p = new StringBuilder("# Generated build metadata\n");
+        if ("first".equals(position)) {
+            p.append(KEY).append("=1.2.3\n");
+        }
+        for (int i = 0; i < size; i++) {
+            p.append("build.metadata.").append(i).append(" = some value \\\n    continued ").append(i).append('\n');
+        }
+        if ("last".equals(position)) {
+            p.append(KEY).append("=1.2.3\n");
+        }
+        properties = p.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Benchmark
+    public Object javaUtilProperties() throws IOException {
+        Properties props = new Properties();
+        props.load(new ByteArrayInputStream(properties));
+        return props.get(KEY);
+    }
+
+    @Benchmark
+    public String propertiesScannerLastWins() throws IOException {
+        return PropertiesScanner.findProperty(new ByteArrayInputStream(properties), KEY, false);
+    }
+
+    @Benchmark
+    public String propertiesScannerFirstWins() throws IOException {
+        return PropertiesScanner.findProperty(new ByteArrayInputStream(properties), KEY, true);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * A class loader over generated jars in a temporary directory, for benchmarking classpath scans.
+ * <p>Each jar contains a manifest and a class file. One of the jars (the "target jar") additionally contains the
+ * version name in the default and a custom manifest attribute as well as in the default and a custom properties
+ * file.</p>
+ */
+class SyntheticClasspath implements AutoCloseable {
+
+    static final String VERSION_NAME = "1.2.3 (2016-09-27T07:55:43Z, branch master, commit 4dd3cf5)";
+    static final String CUSTOM_PROPERTIES_PATH = "custom/build.properties";
+    static final String CUSTOM_PROPERTY = "build.version";
+    static final String CUSTOM_MANIFEST_ATTRIBUTE = "Build-Version";
+
+    /**
+     * Where the target jar is placed on the classpath.
+     */
+    enum TargetPosition {
+        FIRST, LAST, NONE
+    }
+
+    private final Path directory;
+    private final URLClassLoader classLoader;
+
+    /**
+     * Creates <code>numberOfJars</code> jars.
+     */
+    SyntheticClasspath(int numberOfJars, TargetPosition targetPosition) throws IOException {
+        directory = Files.createTempDirectory("versionName-benchmark");
+        int targetIndex = targetIndex(numberOfJars, targetPosition);
+        URL[] urls = new URL[numberOfJars];
+        for (int i = 0; i < numberOfJars; i++) {
+            Path jar = directory.resolve("library-" + i + ".jar");
+            writeJar(jar, i, i == targetIndex);
+            urls[i] = jar.toUri().toURL();
+        }
+        classLoader = new URLClassLoader(urls, null);
+    }
+
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    @Override
+    public void close() throws IOException {
+        classLoader.close();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static int targetIndex(int numberOfJars, TargetPosition targetPosition) {
+        switch (targetPosition) {
+            case FIRST:
+                return 0;
+            case LAST:
+                return numberOfJars - 1;
+            default:
+                return -1;
+        }
+    }
+
+    private static void writeJar(Path jar, int index, boolean isTarget) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.IMPLEMENTATION_TITLE, "library-" + index);
+        attributes.put(Attributes.Name.IMPLEMENTATION_VERSION, "1.0." + index);
+        attributes.putValue("Created-By", "versionName benchmarks");
+        if (isTarget) {
+            attributes.putValue(VersionNames.DEFAULT_MANIFEST_ATTRIBUTE, VERSION_NAME);
+            attributes.putValue(CUSTOM_MANIFEST_ATTRIBUTE, VERSION_NAME);
+        }
+
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            out.putNextEntry(new JarEntry("com/example/library" + index + "/Library.class"));
+            out.write(new byte[512]);
+            out.closeEntry();
+            if (isTarget) {
+                // Default path is absolute, which is resolved relative to the class loader's root
+                writeEntry(out, VersionNames.DEFAULT_PROPERTIES_FILE_PATH.substring(1),
+                    VersionNames.DEFAULT_PROPERTY + "=" + VERSION_NAME + "\n");
+                writeEntry(out, CUSTOM_PROPERTIES_PATH, CUSTOM_PROPERTY + "=" + VERSION_NAME + "\n");
+            }
+        }
+    }
+
+    private static void writeEntry(JarOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing and comparing {@link Version versions}, compared to the ad-hoc parsing via
+ * {@link String#split(String)} that callers would otherwise write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionBenchmark {
+
+    @Param({"2.2.1", "2.2.1-SNAPSHOT", "1.0.0-rc.1+build.5"})
+    public String versionName;
+
+    private Version version;
+
+    // Differs from version in the qualifier only, so comparing has to look at all of it
+    private Version other;
+
+    @Setup
+    public void setUp() {
+        version = Version.parseUncached(versionName);
+        other = Version.parseUncached(version.getMajor() + "." + version.getMinor() + "." + version.getPatch()
+            + "-rc.2");
+    }
+
+    @Benchmark
+    public Version parse() {
+        return Version.parse(versionName);
+    }
+
+    @Benchmark
+    public Version parseUncached() {
+        return Version.parseUncached(versionName);
+    }
+
+    @Benchmark
+    public int[] splitBaseline() {
+        String[] parts = versionName.split("[-+]", 2)[0].split("\\.");
+        int[] numbers = new int[3];
+        for (int i = 0; i < parts.length && i < numbers.length; i++) {
+            numbers[i] = Integer.parseInt(parts[i]);
+        }
+        return numbers;
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return version.compareTo(other);
+    }
+
+    @Benchmark
+    public boolean isAtLeast() {
+        return version.isAtLeast(2, 2, 0);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import com.cloudogu.versionname.SyntheticClasspath.TargetPosition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the public lookups of {@link VersionNames} on generated classpaths of different sizes.
+ * <p>Reports throughput and latency percentiles. Add <code>-prof gc</code> for allocation. Narrow down the matrix with
+ * e.g. <code>-p jars=1000 -p target=LAST -p cache=false</code>.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionNamesBenchmark {
+
+    /**
+     * Number of jars on the classpath.
+     */
+    @Param({"1", "100", "1000", "5000"})
+    public int jars;
+
+    /**
+     * Position of the jar containing the version name on the classpath.
+     */
+    @Param({"FIRST", "LAST", "NONE"})
+    public String target;
+
+    /**
+     * Whether {@link VersionNames}' cache is enabled. Without it, each call scans the classpath.
+     */
+    @Param({"false", "true"})
+    public boolean cache;
+
+    /**
+     * Whether jar entries are read from memory-mapped jars or via {@link java.net.JarURLConnection}.
+     */
+    @Param({"false", "true"})
+    public boolean mappedJarReader;
+
+    private SyntheticClasspath classpath;
+
+    @Setup
+    public void setUp() throws IOException {
+        classpath = new SyntheticClasspath(jars, TargetPosition.valueOf(target));
+        VersionNames.setCacheEnabled(cache);
+        VersionNames.setMappedJarReaderEnabled(mappedJarReader);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        VersionNames.invalidateCache();
+        classpath.close();
+    }
+
+    @Benchmark
+    public String propertiesDefault() {
+        useClasspath();
+        return VersionNames.getVersionNameFromProperties();
+    }
+
+    @Benchmark
+    public String propertiesCustom() {
+        useClasspath();
+        return VersionNames.getVersionNameFromProperties(SyntheticClasspath.CUSTOM_PROPERTIES_PATH,
+            SyntheticClasspath.CUSTOM_PROPERTY);
+    }
+
+    @Benchmark
+    public String manifestDefault() {
+        useClasspath();
+        return VersionNames.getVersionNameFromManifest();
+    }
+
+    @Benchmark
+    public String manifestCustom() {
+        useClasspath();
+        return VersionNames.getVersionNameFromManifest(VersionNames.DEFAULT_MANIFEST_PATH,
+            SyntheticClasspath.CUSTOM_MANIFEST_ATTRIBUTE);
+    }
+
+    private void useClasspath() {
+        // Benchmark threads are not necessarily the ones that ran setUp()
+        Thread.currentThread().setContextClassLoader(classpath.getClassLoader());
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Measures building a {@link VersionRegistry} on generated classpaths of different sizes, compared to reading each
+ * manifest with {@link Manifest} one after another.
+ * <p>A registry is built once per class loader, so each invocation scans a newly generated classpath, whose jars have
+ * not been opened before.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class VersionRegistryBenchmark {
+
+    /**
+     * Number of jars on the classpath.
+     */
+    @Param({"100", "1000", "5000"})
+    public int jars;
+
+    private SyntheticClasspath classpath;
+    private ExecutorService singleThread;
+
+    @Setup
+    public void setUp() {
+        singleThread = Executors.newSingleThreadExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Setup(Level.Iteration)
+    public void createClasspath() throws IOException {
+        classpath = new SyntheticClasspath(jars, SyntheticClasspath.TargetPosition.LAST);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteClasspath() throws IOException {
+        classpath.close();
+    }
+
+    @Benchmark
+    public VersionRegistry scanParallel() {
+        return VersionRegistry.scan(classpath.getClassLoader(), ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public VersionRegistry scanSequential() {
+        return VersionRegistry.scan(classpath.getClassLoader(), singleThread);
+    }
+
+    @Benchmark
+    public List<String> manifestBaseline() throws IOException {
+        List<String> versions = new ArrayList<>();
+        for (URL url : Collections.list(classpath.getClassLoader().getResources(VersionNames.DEFAULT_MANIFEST_PATH))) {
+            try (InputStream in = url.openStream()) {
+                Attributes attributes = new Manifest(in).getMainAttributes();
+                versions.add(attributes.getValue(Attributes.Name.IMPLEMENTATION_TITLE) + " "
+                    + attributes.getValue(Attributes.Name.IMPLEMENTATION_VERSION));
+            }
+        }
+        return versions;
+    }
+}
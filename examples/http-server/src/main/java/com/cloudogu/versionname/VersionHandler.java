@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import com.cloudogu.versionname.http.VersionNameEntity;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Answers <code>GET</code> and <code>HEAD</code> requests to exactly one path with a version name.
+ * <p>A version name passed as string is served as {@link VersionNameEntity}, i.e. encoded once, with a strong ETag
+ * and <code>Cache-Control: public, no-cache</code>. <code>If-None-Match</code> is answered with 304, like the war
+ * example does. A version name passed as {@link Supplier} is looked up and encoded on each request.</p>
+ */
+final class VersionHandler implements HttpHandler {
+
+    private final String path;
+    private final Supplier<String> versionName;
+    private final VersionNameEntity entity;
+
+    /**
+     * Serves a version name that does not change.
+     */
+    VersionHandler(String path, String versionName) {
+        this.path = path;
+        this.versionName = null;
+        this.entity = VersionNameEntity.of(versionName);
+    }
+
+    /**
+     * Serves the current version name on each request, without ETag.
+     */
+    VersionHandler(String path, Supplier<String> versionName) {
+        this.path = path;
+        this.versionName = versionName;
+        this.entity = null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            // There is no body to read. Without closing it first, Java 8 closes the connection after responses without
+            // body, e.g. 304, instead of keeping it alive.
+            exchange.getRequestBody().close();
+            Headers headers = exchange.getResponseHeaders();
+            // Contexts match by prefix, so make sure not to answer e.g. /api/versions
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                return;
+            }
+            boolean head = "HEAD".equals(exchange.getRequestMethod());
+            if (!head && !"GET".equals(exchange.getRequestMethod())) {
+                headers.set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            if (entity != null) {
+                headers.set("ETag", entity.getEtag());
+                headers.set("Cache-Control", entity.getCacheControl());
+                if (entity.isNotModified(exchange.getRequestHeaders().get("If-None-Match"))) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                    return;
+                }
+            }
+            headers.set("Content-Type", VersionNameEntity.CONTENT_TYPE);
+            if (head) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, -1);
+                return;
+            }
+            if (entity != null) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, entity.getContentLength());
+                try (OutputStream out = exchange.getResponseBody()) {
+                    entity.writeTo(out);
+                }
+                return;
+            }
+            byte[] response = versionName.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
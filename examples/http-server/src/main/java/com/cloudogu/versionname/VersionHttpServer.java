@@ -0,0 +1,166 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the version name using the HTTP server built into the JDK (<code>com.sun.net.httpserver</code>), e.g. for
+ * sidecars and health checks. Starts in a fraction of a second, as opposed to seconds for the jetty and JAX-RS based
+ * <code>ServerMain</code> of the server example. Serves the same paths:
+ * <ul>
+ * <li>{@link #VERSION_PATH}: the version name read once, with ETag, see {@link VersionHandler}</li>
+ * <li>{@link #LOOKUP_PATH}: the version name looked up via {@link VersionNames} on each request</li>
+ * </ul>
+ * <p>Requests are handled on virtual threads on Java 21 and later, and on a bounded pool of platform threads
+ * otherwise.</p>
+ * <p>Arguments are <code>name=value</code> pairs, all optional, see {@link #DEFAULTS}.</p>
+ */
+public class VersionHttpServer {
+
+    public static final String VERSION_PATH = "/api/version";
+    public static final String LOOKUP_PATH = "/api/version/lookup";
+
+    /**
+     * System property of the JDK's HTTP server that disables Nagle's algorithm. Headers and body are written
+     * separately, so without it, Nagle's algorithm holds back the body until the client's delayed ACK arrives. Read
+     * once, when the first server in the JVM is created.
+     */
+    public static final String PROPERTY_NO_DELAY = "sun.net.httpserver.nodelay";
+
+    /**
+     * Arguments and their defaults.
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("port", "8080");
+        // Size of the pool, if not running on virtual threads
+        DEFAULTS.put("threads", Integer.toString(defaultThreads()));
+        // Set to false to use the pool on Java 21+ as well
+        DEFAULTS.put("virtualThreads", "true");
+    }
+
+    /**
+     * Requests waiting for a pool thread. If full, the server's dispatcher thread handles requests itself, which slows
+     * down accepting new connections.
+     */
+    private static final int QUEUE_CAPACITY = 1024;
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        if (System.getProperty(PROPERTY_NO_DELAY) == null) {
+            System.setProperty(PROPERTY_NO_DELAY, "true");
+        }
+        Map<String, String> arguments = parse(args);
+        HttpServer server = start(Integer.parseInt(arguments.get("port")), Integer.parseInt(arguments.get("threads")),
+            Boolean.parseBoolean(arguments.get("virtualThreads")));
+        System.out.printf("Serving version name on http://localhost:%d%s, started in %d ms%n",
+            server.getAddress().getPort(), VERSION_PATH, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Starts the server. It keeps the JVM running until {@link #stop(HttpServer)}.
+     * <p>Set {@link #PROPERTY_NO_DELAY} to <code>true</code> before, as {@link #main(String[])} does. Otherwise, each
+     * response with a body is delayed by up to 40 ms.</p>
+     *
+     * @param port the port to listen on, 0 for any free port. See {@link HttpServer#getAddress()}.
+     * @param threads the size of the thread pool, if not running on virtual threads
+     * @param virtualThreads <code>true</code> to handle requests on virtual threads, if available
+     * @return the started server
+     */
+    public static HttpServer start(int port, int threads, boolean virtualThreads) throws IOException {
+        // Backlog 0 uses the system default
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(newExecutor(threads, virtualThreads));
+        server.createContext(VERSION_PATH,
+            new VersionHandler(VERSION_PATH, VersionNames.getVersionNameFromProperties()));
+        server.createContext(LOOKUP_PATH, new VersionHandler(LOOKUP_PATH, VersionNames::getVersionNameFromProperties));
+        server.start();
+        return server;
+    }
+
+    /**
+     * Stops the server immediately and the threads handling its requests.
+     */
+    public static void stop(HttpServer server) {
+        server.stop(0);
+        ((ExecutorService) server.getExecutor()).shutdown();
+    }
+
+    static ExecutorService newExecutor(int threads, boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                // Java 21+. Looked up reflectively, as the examples are compiled for Java 8.
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                // Before Java 19
+            } catch (InvocationTargetException e) {
+                // Java 19 and 20 without --enable-preview
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Unable to create virtual thread executor", e);
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "versionName-http-" + threadNumber.incrementAndGet());
+            // The server's dispatcher thread keeps the JVM running
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static int defaultThreads() {
+        // Handling a request does not block, except for writing the response
+        return Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + ". Expected name=value, where name is "
+                    + "one of " + DEFAULTS.keySet());
+            }
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return arguments;
+    }
+}
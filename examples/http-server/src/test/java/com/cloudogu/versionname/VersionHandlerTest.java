@@ -0,0 +1,188 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import com.cloudogu.versionname.http.VersionNameEntity;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class VersionHandlerTest {
+
+    private static final String VERSION_NAME = "1.0.0 (branch master, commit 4dd3cf5)";
+    private static final String ETAG = VersionNameEntity.of(VERSION_NAME).getEtag();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private HttpServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/version", new VersionHandler("/version", VERSION_NAME));
+        server.createContext("/lookup", new VersionHandler("/lookup", () -> {
+            lookups.incrementAndGet();
+            return VERSION_NAME;
+        }));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void get() throws IOException {
+        HttpURLConnection connection = request("GET", "/version", null);
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(connection.getHeaderField("ETag"), equalTo(ETAG));
+        assertThat(connection.getHeaderField("Cache-Control"), equalTo(VersionNameEntity.DEFAULT_CACHE_CONTROL));
+        assertThat(connection.getContentType(), equalTo(VersionNameEntity.CONTENT_TYPE));
+        assertThat(read(connection), equalTo(VERSION_NAME));
+    }
+
+    @Test
+    public void getNotModified() throws IOException {
+        assertNotModified("GET", ETAG);
+    }
+
+    @Test
+    public void getNotModifiedWeak() throws IOException {
+        assertNotModified("GET", "W/" + ETAG);
+    }
+
+    @Test
+    public void getNotModifiedAny() throws IOException {
+        assertNotModified("GET", "*");
+    }
+
+    @Test
+    public void getNotModifiedList() throws IOException {
+        assertNotModified("GET", "\"0123456789abcdef\", W/" + ETAG);
+    }
+
+    @Test
+    public void getModified() throws IOException {
+        HttpURLConnection connection = request("GET", "/version", "\"0123456789abcdef\", W/\"fedcba9876543210\"");
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(connection.getHeaderField("ETag"), equalTo(ETAG));
+        assertThat(read(connection), equalTo(VERSION_NAME));
+    }
+
+    @Test
+    public void head() throws IOException {
+        HttpURLConnection connection = request("HEAD", "/version", null);
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(connection.getHeaderField("ETag"), equalTo(ETAG));
+        assertThat(connection.getHeaderField("Cache-Control"), equalTo(VersionNameEntity.DEFAULT_CACHE_CONTROL));
+        assertThat(connection.getContentType(), equalTo(VersionNameEntity.CONTENT_TYPE));
+        assertThat(read(connection), equalTo(""));
+    }
+
+    @Test
+    public void headNotModified() throws IOException {
+        assertNotModified("HEAD", "W/" + ETAG);
+    }
+
+    @Test
+    public void lookup() throws IOException {
+        HttpURLConnection connection = request("GET", "/lookup", ETAG);
+
+        // Not cached, so If-None-Match is ignored
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(connection.getHeaderField("ETag"), nullValue());
+        assertThat(connection.getContentType(), equalTo(VersionNameEntity.CONTENT_TYPE));
+        assertThat(read(connection), equalTo(VERSION_NAME));
+        assertThat(lookups.get(), equalTo(1));
+    }
+
+    @Test
+    public void headLookup() throws IOException {
+        HttpURLConnection connection = request("HEAD", "/lookup", null);
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(read(connection), equalTo(""));
+        assertThat(lookups.get(), equalTo(0));
+    }
+
+    @Test
+    public void otherPath() throws IOException {
+        assertThat(request("GET", "/versions", null).getResponseCode(), equalTo(HttpURLConnection.HTTP_NOT_FOUND));
+    }
+
+    @Test
+    public void otherMethod() throws IOException {
+        HttpURLConnection connection = request("DELETE", "/version", null);
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_BAD_METHOD));
+        assertThat(connection.getHeaderField("Allow"), equalTo("GET, HEAD"));
+    }
+
+    private void assertNotModified(String method, String ifNoneMatch) throws IOException {
+        HttpURLConnection connection = request(method, "/version", ifNoneMatch);
+
+        assertThat(connection.getResponseCode(), equalTo(HttpURLConnection.HTTP_NOT_MODIFIED));
+        assertThat(connection.getHeaderField("ETag"), equalTo(ETAG));
+        assertThat(connection.getHeaderField("Cache-Control"), equalTo(VersionNameEntity.DEFAULT_CACHE_CONTROL));
+        assertThat(read(connection), equalTo(""));
+    }
+
+    private HttpURLConnection request(String method, String path, String ifNoneMatch) throws IOException {
+        URL url = new URL("http", "localhost", server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        return connection;
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
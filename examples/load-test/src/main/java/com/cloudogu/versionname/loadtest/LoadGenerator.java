@@ -0,0 +1,208 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends GET requests to a single URL and records throughput and latencies, in one of two ways:
+ * <ul>
+ * <li>Closed loop: each connection sends the next request as soon as it has read the previous response. This measures
+ * the maximum throughput. As the load adapts to the server, latencies are those of a server that is never
+ * overloaded.</li>
+ * <li>Open loop: requests are started at a fixed rate, no matter how fast the server responds, like independent users
+ * would. The latency of each request is measured from the time it was due, so it includes waiting for a free
+ * connection. This avoids coordinated omission, i.e. hiding the latency of requests that could not even be sent while
+ * the server was stalled.</li>
+ * </ul>
+ * <p>Connections are kept alive via {@link HttpURLConnection}. Responses with status 200 or 304 count as successful;
+ * all others and I/O errors count as errors and are not recorded as latency.</p>
+ */
+final class LoadGenerator {
+
+    private final URL url;
+    private final int connections;
+    private final String ifNoneMatch;
+
+    /**
+     * @param connections the number of concurrent connections
+     */
+    LoadGenerator(URL url, int connections) {
+        this(url, connections, null);
+    }
+
+    /**
+     * @param ifNoneMatch sent as <code>If-None-Match</code> header with each request, e.g. to measure conditional
+     *                    requests answered with 304. None if <code>null</code>.
+     */
+    LoadGenerator(URL url, int connections, String ifNoneMatch) {
+        this.url = url;
+        this.connections = connections;
+        this.ifNoneMatch = ifNoneMatch;
+        // Otherwise, only 5 connections per server are kept alive and the others are reopened for each request
+        System.setProperty("http.maxConnections", Integer.toString(Math.max(connections, 5)));
+    }
+
+    Result runClosedLoop(long duration, TimeUnit unit) throws InterruptedException {
+        Histogram latencies = new Histogram();
+        LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        long end = start + unit.toNanos(duration);
+
+        List<Thread> threads = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Thread thread = new Thread(() -> {
+                byte[] buffer = new byte[8192];
+                long requestStart;
+                while ((requestStart = System.nanoTime()) - end < 0) {
+                    if (send(buffer)) {
+                        latencies.record(System.nanoTime() - requestStart);
+                    } else {
+                        errors.increment();
+                    }
+                }
+            }, "load-generator-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Result(latencies, errors.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * @param requestsPerSecond the rate at which requests are started
+     */
+    Result runOpenLoop(int requestsPerSecond, long duration, TimeUnit unit) throws InterruptedException {
+        Histogram latencies = new Histogram();
+        LongAdder errors = new LongAdder();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(connections, connections, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "load-generator-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+        long durationNanos = unit.toNanos(duration);
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / (double) requestsPerSecond;
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long due = start + (long) (i * intervalNanos);
+            if (due - start >= durationNanos) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(() -> {
+                if (send(buffers.get())) {
+                    latencies.record(System.nanoTime() - due);
+                } else {
+                    errors.increment();
+                }
+            });
+        }
+
+        executor.shutdown();
+        // Give the backlog of an overloaded server as long to drain as the run took, then count the rest as errors
+        if (!executor.awaitTermination(duration, unit)) {
+            errors.add(executor.shutdownNow().size());
+            executor.awaitTermination(duration, unit);
+        }
+        return new Result(latencies, errors.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return <code>true</code> if the response was successful
+     */
+    private boolean send(byte[] buffer) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            if (ifNoneMatch != null) {
+                connection.setRequestProperty("If-None-Match", ifNoneMatch);
+            }
+            int status = connection.getResponseCode();
+            // Read the response completely, so the connection can be reused
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (in != null) {
+                    while (in.read(buffer) >= 0) {
+                        // Discard
+                    }
+                }
+            }
+            return status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_MODIFIED;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The outcome of a single run.
+     */
+    static final class Result {
+        private final Histogram latencies;
+        private final long errors;
+        private final long elapsedNanos;
+
+        Result(Histogram latencies, long errors, long elapsedNanos) {
+            this.latencies = latencies;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return latencies of the successful requests
+         */
+        Histogram getLatencies() {
+            return latencies;
+        }
+
+        long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return successful requests per second
+         */
+        double getThroughput() {
+            return latencies.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+    }
+}
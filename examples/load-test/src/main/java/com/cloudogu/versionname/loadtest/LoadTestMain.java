@@ -0,0 +1,284 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname.loadtest;
+
+import com.cloudogu.versionname.ServerMain;
+import com.cloudogu.versionname.VersionHttpServer;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jetty.server.Server;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots {@link ServerMain} or {@link VersionHttpServer} on a free port and measures <code>/api/version</code> and its
+ * variants under closed and open loop load, see {@link LoadGenerator}. Each combination of target and mode is warmed up
+ * and then measured for a fixed time. Prints the startup time of the server, throughput and latency percentiles,
+ * optionally appending the latter to a CSV file.
+ * <p>By default, the client runs in a JVM of its own, forked with the same class path (<code>client=fork</code>). With
+ * <code>client=inline</code>, it runs in the server's JVM instead. This biases the results: client and server share
+ * the heap, garbage collection pauses, safepoints and JIT compiler threads, so a pause caused by either delays both
+ * and is measured as server latency. The client's threads also compete with the server's for the same CPUs. Latencies
+ * are inflated and throughput understated, by an amount that depends on the client as much as on the server. A forked
+ * client still shares the machine's CPUs. For the least biased numbers, run the client on another machine and pass the
+ * <code>url</code> of the server.</p>
+ * <p>Arguments are <code>name=value</code> pairs, all optional, see {@link #DEFAULTS}.</p>
+ */
+public class LoadTestMain {
+
+    /**
+     * Names of targets that can be passed instead of paths.
+     */
+    private static final Map<String, String> TARGETS = new LinkedHashMap<>();
+
+    /**
+     * Arguments and their defaults.
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Version name kept in a constant
+        TARGETS.put("static", "/api/version");
+        // Version name looked up on each request
+        TARGETS.put("lookup", "/api/version/lookup");
+        // Version name encoded once, served by a plain servlet. Only served by jetty.
+        TARGETS.put("servlet", "/version");
+        // Like static, but sending the ETag of the version name back, so it is answered with 304
+        TARGETS.put("conditional", "/api/version");
+
+        // Comma-separated names from TARGETS or paths. If empty, all targets the server serves.
+        DEFAULTS.put("targets", "");
+        // Comma-separated, closed and/or open
+        DEFAULTS.put("modes", "closed,open");
+        DEFAULTS.put("connections", "16");
+        // Requests per second in open loop mode
+        DEFAULTS.put("rate", "2000");
+        DEFAULTS.put("warmupSeconds", "10");
+        DEFAULTS.put("durationSeconds", "30");
+        // Server started in this JVM: jetty (ServerMain, deploying the war) or jdk (VersionHttpServer)
+        DEFAULTS.put("server", "jetty");
+        // Base URL of a running server to use instead. The client then runs in this JVM.
+        DEFAULTS.put("url", "");
+        // Where the client runs if the server is started here: fork (a JVM of its own) or inline (the server's JVM)
+        DEFAULTS.put("client", "fork");
+        // Space-separated options of the forked client's JVM, e.g. -Xmx512m
+        DEFAULTS.put("clientJvmArgs", "");
+        DEFAULTS.put("war", "war/target/war.war");
+        // CSV file to append results to, none if empty
+        DEFAULTS.put("csv", "");
+    }
+
+    private static final String HEADER_FORMAT = "%-22s %-6s %11s %6s %9s %6s %10s %9s %9s %9s %9s%n";
+    private static final String ROW_FORMAT = "%-22s %-6s %11d %6s %9d %6d %10.0f %9.3f %9.3f %9.3f %9.3f%n";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = parse(args);
+        String serverType = arguments.get("server");
+        List<String> targets = new ArrayList<>(TARGETS.keySet());
+        if (!arguments.get("targets").isEmpty()) {
+            targets = Arrays.asList(arguments.get("targets").split(","));
+        } else if (!"jetty".equals(serverType)) {
+            targets.remove("servlet");
+        }
+        List<String> modes = Arrays.asList(arguments.get("modes").split(","));
+        int connections = Integer.parseInt(arguments.get("connections"));
+        int rate = Integer.parseInt(arguments.get("rate"));
+        long warmupSeconds = Long.parseLong(arguments.get("warmupSeconds"));
+        long durationSeconds = Long.parseLong(arguments.get("durationSeconds"));
+        String client = arguments.get("client");
+        if (!"fork".equals(client) && !"inline".equals(client)) {
+            throw new IllegalArgumentException("Unknown client: " + client + ", expected fork or inline");
+        }
+
+        System.out.printf("java %s (%s), %d cpus, %s%n", System.getProperty("java.version"),
+            System.getProperty("java.vm.name"), Runtime.getRuntime().availableProcessors(), arguments);
+        AutoCloseable server = null;
+        String baseUrl = arguments.get("url");
+        if (baseUrl.isEmpty()) {
+            long start = System.nanoTime();
+            int port;
+            switch (serverType) {
+                case "jetty":
+                    Server jetty = ServerMain.start(0, new File(arguments.get("war")));
+                    server = jetty::stop;
+                    port = ServerMain.getPort(jetty);
+                    break;
+                case "jdk":
+                    // Before the first HttpServer in this JVM is created
+                    if (System.getProperty(VersionHttpServer.PROPERTY_NO_DELAY) == null) {
+                        System.setProperty(VersionHttpServer.PROPERTY_NO_DELAY, "true");
+                    }
+                    // Without virtual threads, one platform thread per connection
+                    HttpServer jdk = VersionHttpServer.start(0, connections, true);
+                    server = () -> VersionHttpServer.stop(jdk);
+                    port = jdk.getAddress().getPort();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown server: " + serverType + ", expected jetty or jdk");
+            }
+            long started = System.nanoTime();
+            baseUrl = "http://localhost:" + port;
+            try {
+                getEtag(new URL(baseUrl + TARGETS.get("static")));
+            } catch (IOException | RuntimeException e) {
+                server.close();
+                throw e;
+            }
+            System.out.printf("%s started in %d ms, first response after %d ms%n", serverType,
+                TimeUnit.NANOSECONDS.toMillis(started - start), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        try {
+            if (server != null && "fork".equals(client)) {
+                runForkedClient(args, baseUrl, arguments.get("clientJvmArgs"));
+                return;
+            }
+            System.out.printf(HEADER_FORMAT, "target", "mode", "connections", "rate", "requests", "errors",
+                "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+            for (String target : targets) {
+                URL url = new URL(baseUrl + TARGETS.getOrDefault(target, target));
+                LoadGenerator generator =
+                    new LoadGenerator(url, connections, "conditional".equals(target) ? getEtag(url) : null);
+                for (String mode : modes) {
+                    run(generator, mode, rate, warmupSeconds);
+                    LoadGenerator.Result result = run(generator, mode, rate, durationSeconds);
+                    print(arguments.get("csv"), target, mode, connections, rate, result);
+                }
+            }
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    /**
+     * Runs this class with the same arguments in a new JVM, as client of the server at <code>baseUrl</code>, and
+     * waits for it to finish. It prints the results to the same console.
+     */
+    private static void runForkedClient(String[] args, String baseUrl, String jvmArgs)
+        throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmArgs.trim().isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoadTestMain.class.getName());
+        for (String arg : args) {
+            if (!arg.startsWith("url=") && !arg.startsWith("client=")) {
+                command.add(arg);
+            }
+        }
+        command.add("url=" + baseUrl);
+        command.add("client=inline");
+
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        try {
+            int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                throw new IllegalStateException("Client failed with exit value " + exitValue + ": " + command);
+            }
+        } finally {
+            // Only still running if interrupted
+            process.destroy();
+        }
+    }
+
+    private static LoadGenerator.Result run(LoadGenerator generator, String mode, int rate, long seconds)
+        throws InterruptedException {
+        switch (mode) {
+            case "closed":
+                return generator.runClosedLoop(seconds, TimeUnit.SECONDS);
+            case "open":
+                return generator.runOpenLoop(rate, seconds, TimeUnit.SECONDS);
+            default:
+                throw new IllegalArgumentException("Unknown mode: " + mode + ", expected closed or open");
+        }
+    }
+
+    private static void print(String csv, String target, String mode, int connections, int rate,
+                              LoadGenerator.Result result) throws IOException {
+        Histogram latencies = result.getLatencies();
+        String rateColumn = "open".equals(mode) ? Integer.toString(rate) : "-";
+        Object[] row = { target, mode, connections, rateColumn, latencies.getCount(), result.getErrors(),
+            result.getThroughput(), millis(latencies.getPercentile(50)), millis(latencies.getPercentile(99)),
+            millis(latencies.getPercentile(99.9)), millis(latencies.getMax()) };
+        System.out.printf(Locale.ROOT, ROW_FORMAT, row);
+
+        if (!csv.isEmpty()) {
+            File file = new File(csv);
+            boolean writeHeader = !file.exists();
+            try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+                if (writeHeader) {
+                    out.println("target,mode,connections,rate,requests,errors,throughput,p50Ms,p99Ms,p999Ms,maxMs");
+                }
+                out.printf(Locale.ROOT, "%s,%s,%d,%s,%d,%d,%.0f,%.3f,%.3f,%.3f,%.3f%n", row);
+            }
+        }
+    }
+
+    private static String getEtag(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            String etag = connection.getHeaderField("ETag");
+            if (etag == null) {
+                throw new IllegalStateException("No ETag returned by " + url);
+            }
+            return etag;
+        } finally {
+            connection.getInputStream().close();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + ". Expected name=value, where name is "
+                    + "one of " + DEFAULTS.keySet());
+            }
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return arguments;
+    }
+}
@@ -24,6 +24,7 @@
 package com.cloudogu.versionname;
 
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.WebAppContext;
 
@@ -31,7 +32,20 @@ import java.io.File;
 
 public class ServerMain {
     public static void main(String[] args) throws Exception {
-        Server server = new Server(8080);
+        Server server = start(8080, new File("war/target/war.war"));
+        server.dumpStdErr();
+        server.join();
+    }
+
+    /**
+     * Starts jetty and deploys a war.
+     *
+     * @param port the port to listen on, 0 for any free port. See {@link #getPort(Server)}.
+     * @param warFile the war to deploy at <code>/</code>
+     * @return the started server
+     */
+    public static Server start(int port, File warFile) throws Exception {
+        Server server = new Server(port);
 
         // Scan annotations, to find ServletContainerInitializers, e.g. for JAX-RS
         Configuration.ClassList classlist = Configuration.ClassList.setServerDefault(server);
@@ -44,13 +58,18 @@ public class ServerMain {
         // Deploy war
         WebAppContext webapp = new WebAppContext();
         webapp.setContextPath("/");
-        File warFile = new File("war/target/war.war");
         webapp.setWar(warFile.getAbsolutePath());
 
         server.setHandler(webapp);
 
         server.start();
-        server.dumpStdErr();
-        server.join();
+        return server;
+    }
+
+    /**
+     * @return the port the started <code>server</code> actually listens on
+     */
+    public static int getPort(Server server) {
+        return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
     }
 }
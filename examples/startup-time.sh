@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Measures how long it takes from launching the JVM until the version name is served, for the jetty and JAX-RS based
+# server (ServerMain with the war) and the JDK's HTTP server (VersionHttpServer).
+#
+# Usage: mvn clean install -DskipTests && examples/startup-time.sh [runs]
+#
+# Requires curl. Uses the java on the PATH, or JAVA_HOME if set.
+set -euo pipefail
+
+RUNS=${1:-5}
+
+EXAMPLES_DIR=$(cd "$(dirname "$0")" && pwd)
+JAVA=${JAVA_HOME:+${JAVA_HOME}/bin/}java
+SERVER_JAR=$(ls "${EXAMPLES_DIR}"/server/target/server-*-jar-with-dependencies.jar)
+HTTP_SERVER_JAR=$(ls "${EXAMPLES_DIR}"/http-server/target/http-server-*-jar-with-dependencies.jar)
+
+# Prints the milliseconds from launching the server until /api/version answered with 200
+measure() {
+    local port=$1
+    shift
+    local start end pid
+    start=$(date +%s%N)
+    "$@" >/dev/null 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "http://localhost:${port}/api/version"; do
+        if ! kill -0 "${pid}" 2>/dev/null; then
+            echo "Server exited before answering: $*" >&2
+            exit 1
+        fi
+        sleep 0.005
+    done
+    end=$(date +%s%N)
+    kill "${pid}"
+    wait "${pid}" 2>/dev/null || true
+    echo $(((end - start) / 1000000))
+}
+
+echo "$("${JAVA}" -version 2>&1 | head -n 1), $(nproc) cpus, ms until the first response:"
+jetty=()
+jdk=()
+for ((run = 1; run <= RUNS; run++)); do
+    # ServerMain deploys war/target/war.war relative to the working directory and listens on 8080
+    jetty+=("$(cd "${EXAMPLES_DIR}" && measure 8080 "${JAVA}" -jar "${SERVER_JAR}")")
+    jdk+=("$(measure 8080 "${JAVA}" -jar "${HTTP_SERVER_JAR}")")
+done
+echo "ServerMain (jetty, JAX-RS): ${jetty[*]}"
+echo "VersionHttpServer (JDK):    ${jdk[*]}"
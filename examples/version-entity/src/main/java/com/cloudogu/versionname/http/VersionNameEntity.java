@@ -0,0 +1,137 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+
+/**
+ * A version name prepared once for being served over HTTP: the UTF-8 encoded body and a strong ETag derived from it.
+ * Clients that poll the version send the ETag back in <code>If-None-Match</code> and get a 304 without a body, until the
+ * version changes, see {@link #isNotModified(Iterable)}.
+ * <p>Used by the <code>VersionServlet</code> and <code>VersionResource</code> of the war example and the
+ * <code>VersionHandler</code> of the http-server example.</p>
+ */
+public final class VersionNameEntity {
+
+    public static final String CONTENT_TYPE = "text/plain;charset=UTF-8";
+
+    /**
+     * Clients and proxies may store the response, but have to revalidate it on each request. As the version only
+     * changes on redeploy, this costs a 304 most of the time.
+     */
+    public static final String DEFAULT_CACHE_CONTROL = "public, no-cache";
+
+    private final byte[] body;
+    private final String etag;
+    private final String cacheControl;
+
+    private VersionNameEntity(byte[] body, String cacheControl) {
+        this.body = body;
+        this.etag = '"' + hash(body) + '"';
+        this.cacheControl = cacheControl;
+    }
+
+    public static VersionNameEntity of(String versionName) {
+        return of(versionName, DEFAULT_CACHE_CONTROL);
+    }
+
+    /**
+     * @param cacheControl value of the <code>Cache-Control</code> header, e.g. <code>public, max-age=60</code> to
+     *                     spare clients from even sending a request for a minute.
+     */
+    public static VersionNameEntity of(String versionName, String cacheControl) {
+        return new VersionNameEntity(versionName.getBytes(StandardCharsets.UTF_8), cacheControl);
+    }
+
+    /**
+     * @return the quoted, strong entity tag, e.g. <code>"3f2a9c0d1b7e4a56"</code>
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    public int getContentLength() {
+        return body.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(body);
+    }
+
+    /**
+     * @param ifNoneMatch value of an <code>If-None-Match</code> header, see {@link #isNotModified(Iterable)}. May be
+     *                    <code>null</code>.
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        return ifNoneMatch != null && isNotModified(Collections.singletonList(ifNoneMatch));
+    }
+
+    /**
+     * @param ifNoneMatch values of all <code>If-None-Match</code> headers of a request, each <code>*</code> or a comma
+     *                    separated list of entity tags. May be <code>null</code> if there are none.
+     * @return <code>true</code> if the client already has this version, i.e. it is to be answered with 304. As required
+     * for <code>If-None-Match</code>, tags are compared weakly, so <code>W/"3f2a9c0d1b7e4a56"</code> matches as well.
+     */
+    public boolean isNotModified(Iterable<String> ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String header : ifNoneMatch) {
+            for (String tag : header.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if ("*".equals(tag) || etag.equals(tag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder hex = new StringBuilder(16);
+            // 64 bits are more than enough to tell versions apart
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
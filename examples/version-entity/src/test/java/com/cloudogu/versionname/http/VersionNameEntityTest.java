@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class VersionNameEntityTest {
+
+    private final VersionNameEntity entity = VersionNameEntity.of("1.0.0 (branch master, commit 4dd3cf5)");
+
+    @Test
+    public void etag() {
+        assertTrue(entity.getEtag(), entity.getEtag().matches("\"[0-9a-f]{16}\""));
+        assertThat(VersionNameEntity.of("1.0.0 (branch master, commit 4dd3cf5)").getEtag(), equalTo(entity.getEtag()));
+        assertThat(VersionNameEntity.of("1.0.1").getEtag(), not(equalTo(entity.getEtag())));
+    }
+
+    @Test
+    public void body() throws Exception {
+        VersionNameEntity umlaut = VersionNameEntity.of("1.0.0-gr\u00fcn");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        umlaut.writeTo(out);
+
+        assertThat(out.toByteArray(), equalTo("1.0.0-gr\u00fcn".getBytes(StandardCharsets.UTF_8)));
+        assertThat(umlaut.getContentLength(), equalTo(out.size()));
+    }
+
+    @Test
+    public void cacheControl() {
+        assertThat(entity.getCacheControl(), equalTo(VersionNameEntity.DEFAULT_CACHE_CONTROL));
+        assertThat(VersionNameEntity.of("1.0.0", "public, max-age=60").getCacheControl(),
+            equalTo("public, max-age=60"));
+    }
+
+    @Test
+    public void notModifiedStrong() {
+        assertTrue(entity.isNotModified(entity.getEtag()));
+    }
+
+    @Test
+    public void notModifiedWeak() {
+        assertTrue(entity.isNotModified("W/" + entity.getEtag()));
+    }
+
+    @Test
+    public void notModifiedAny() {
+        assertTrue(entity.isNotModified("*"));
+    }
+
+    @Test
+    public void notModifiedList() {
+        assertTrue(entity.isNotModified("\"0123456789abcdef\", W/\"fedcba9876543210\"," + entity.getEtag()));
+        assertTrue(entity.isNotModified("\"0123456789abcdef\" , W/" + entity.getEtag() + " ,\"fedcba9876543210\""));
+    }
+
+    @Test
+    public void notModifiedMultipleHeaders() {
+        assertTrue(entity.isNotModified(Arrays.asList("\"0123456789abcdef\"", "W/" + entity.getEtag())));
+    }
+
+    @Test
+    public void modified() {
+        assertFalse(entity.isNotModified((String) null));
+        assertFalse(entity.isNotModified((Iterable<String>) null));
+        assertFalse(entity.isNotModified(""));
+        assertFalse(entity.isNotModified("\"0123456789abcdef\""));
+        assertFalse(entity.isNotModified("\"0123456789abcdef\", W/\"fedcba9876543210\""));
+        assertFalse(entity.isNotModified(Arrays.asList("\"0123456789abcdef\"", "W/\"fedcba9876543210\"")));
+        // Unquoted tags are malformed
+        assertFalse(entity.isNotModified(entity.getEtag().replace("\"", "")));
+        assertFalse(entity.isNotModified(VersionNameEntity.of("1.0.1").getEtag()));
+    }
+}
@@ -23,15 +23,51 @@
  */
 package com.cloudogu.versionname;
 
+import com.cloudogu.versionname.http.VersionNameEntity;
+
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 @Path("version")
 public class VersionResource {
-    private static final String VERSION_NAME = VersionNames.getVersionNameFromProperties();
+    private static final VersionNameEntity VERSION_NAME =
+        VersionNameEntity.of(VersionNames.getVersionNameFromProperties());
+    private static final EntityTag ETAG = EntityTag.valueOf(VERSION_NAME.getEtag());
+
+    /**
+     * Writes the version name encoded once, with ETag and Cache-Control, see {@link VersionNameEntity}. Answers
+     * <code>If-None-Match</code> with 304, like {@link VersionServlet}.
+     */
+    @GET
+    @Produces(VersionNameEntity.CONTENT_TYPE)
+    public Response getVersion(@Context HttpHeaders headers) {
+        Response.ResponseBuilder response;
+        if (VERSION_NAME.isNotModified(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response = Response.notModified();
+        } else {
+            response = Response.ok((StreamingOutput) VERSION_NAME::writeTo)
+                .header(HttpHeaders.CONTENT_LENGTH, VERSION_NAME.getContentLength());
+        }
+        return response
+            .tag(ETAG)
+            .header(HttpHeaders.CACHE_CONTROL, VERSION_NAME.getCacheControl())
+            .build();
+    }
 
+    /**
+     * Looks up the version name on each request instead of keeping it in a constant. After the first request, it is
+     * answered from the cache of {@link VersionNames}. Compare both with the load-test module.
+     */
     @GET
-    public String getVersion() {
-        return VERSION_NAME;
+    @Path("lookup")
+    @Produces(VersionNameEntity.CONTENT_TYPE)
+    public String lookupVersion() {
+        return VersionNames.getVersionNameFromProperties();
     }
 }
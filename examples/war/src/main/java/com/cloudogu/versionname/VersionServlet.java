@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import com.cloudogu.versionname.http.VersionNameEntity;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Serves the version name for applications without JAX-RS, see {@link VersionNameEntity}. Answers
+ * <code>If-None-Match</code> with 304.
+ * <p>The version name is read from properties once, when the servlet is initialized. The init parameter
+ * <code>cacheControl</code> (e.g. in web.xml) overrides {@link VersionNameEntity#DEFAULT_CACHE_CONTROL}.</p>
+ */
+@WebServlet("/version")
+public class VersionServlet extends HttpServlet {
+
+    private transient VersionNameEntity entity;
+
+    @Override
+    public void init(ServletConfig config) throws ServletException {
+        super.init(config);
+        String cacheControl = config.getInitParameter("cacheControl");
+        entity = VersionNameEntity.of(VersionNames.getVersionNameFromProperties(),
+            cacheControl != null ? cacheControl : VersionNameEntity.DEFAULT_CACHE_CONTROL);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setHeader("ETag", entity.getEtag());
+        resp.setHeader("Cache-Control", entity.getCacheControl());
+        if (entity.isNotModified(Collections.list(req.getHeaders("If-None-Match")))) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(VersionNameEntity.CONTENT_TYPE);
+        resp.setContentLength(entity.getContentLength());
+        entity.writeTo(resp.getOutputStream());
+    }
+}
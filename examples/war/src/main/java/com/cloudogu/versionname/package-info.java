@@ -0,0 +1,8 @@
+/**
+ * Allows for looking up the version name without scanning the classpath: the annotation processor writes it from the
+ * filtered <code>app.properties</code> to <code>META-INF/versionname.idx</code>. The class name differs from the
+ * default <code>Version</code>, which would hide <code>com.cloudogu.versionname.Version</code> of the versionName
+ * library.
+ */
+@VersionName(className = "WarVersion", index = "properties|/app.properties|versionName")
+package com.cloudogu.versionname;
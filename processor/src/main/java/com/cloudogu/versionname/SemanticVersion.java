@@ -0,0 +1,160 @@
+package com.cloudogu.versionname;
+
+/**
+ * A version name parsed as <code>major.minor.patch[-qualifier][+build]</code>, as generated for
+ * {@link VersionName#semanticVersion()}.
+ * <p>Follows the rules of <code>com.cloudogu.versionname.Version</code>, so the generated constants agree with parsing
+ * the version name at runtime: the qualifier follows the numbers, separated by <code>-</code> or <code>.</code> or
+ * directly. Build metadata after <code>+</code> is dropped. A version without qualifier or with qualifier
+ * <code>GA</code>, <code>FINAL</code> or <code>RELEASE</code> is a release. A qualifier starting with a further number
+ * after a <code>.</code> (<code>1.2.3.4</code>) or with <code>sp</code> or <code>patch</code> (<code>1.0.0-sp1</code>)
+ * marks a post-release, any other qualifier a pre-release.</p>
+ */
+final class SemanticVersion {
+
+    /**
+     * Largest major, minor or patch version that fits into the sort key.
+     */
+    static final int MAX_NUMBER = (1 << 20) - 1;
+
+    private static final int MAJOR_SHIFT = 42;
+    private static final int MINOR_SHIFT = 22;
+    private static final int PATCH_SHIFT = 2;
+
+    // Kinds of qualifiers, in ascending order, as stored in the lowest bits of the sort key
+    private static final int PRE_RELEASE = 0;
+    private static final int RELEASE = 1;
+    private static final int POST_RELEASE = 2;
+
+    private final int major;
+    private final int minor;
+    private final int patch;
+    private final String qualifier;
+    private final int phase;
+
+    private SemanticVersion(int major, int minor, int patch, String qualifier, int phase) {
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.qualifier = qualifier;
+        this.phase = phase;
+    }
+
+    /**
+     * @param versionName e.g. <code>1.2.3</code>, <code>v1.2</code>, <code>1.2.3-SNAPSHOT</code> or
+     *                    <code>1.2.3+build.5</code>
+     * @throws IllegalArgumentException if <code>versionName</code> does not start with a number or a number is larger
+     *                                  than {@link #MAX_NUMBER}
+     */
+    static SemanticVersion parse(String versionName) {
+        int position = 0;
+        if (versionName.startsWith("v") || versionName.startsWith("V")) {
+            position++;
+        }
+
+        int[] numbers = new int[3];
+        for (int i = 0; i < numbers.length; i++) {
+            if (i > 0) {
+                // Minor and patch are optional, but must be separated by a dot
+                if (position + 1 >= versionName.length() || versionName.charAt(position) != '.'
+                    || !isDigit(versionName.charAt(position + 1))) {
+                    break;
+                }
+                position++;
+            }
+            int start = position;
+            while (position < versionName.length() && isDigit(versionName.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("Version name \"" + versionName + "\" does not start with a number");
+            }
+            numbers[i] = parseNumber(versionName, start, position);
+        }
+
+        if (position < versionName.length()
+            && (versionName.charAt(position) == '-' || versionName.charAt(position) == '.')) {
+            position++;
+        }
+        boolean afterDot = position > 0 && versionName.charAt(position - 1) == '.';
+        int qualifierEnd = versionName.indexOf('+', position);
+        String qualifier = versionName.substring(position, qualifierEnd < 0 ? versionName.length() : qualifierEnd);
+        return new SemanticVersion(numbers[0], numbers[1], numbers[2], qualifier, phase(qualifier, afterDot));
+    }
+
+    /**
+     * @param afterDot whether the qualifier follows a <code>.</code>
+     */
+    private static int phase(String qualifier, boolean afterDot) {
+        int start = 0;
+        // Skip separators, i.e. anything but digits and letters
+        while (start < qualifier.length() && !isDigit(qualifier.charAt(start))
+            && !Character.isLetter(qualifier.charAt(start))) {
+            start++;
+        }
+        String token = qualifier.substring(start);
+        if (token.isEmpty() || "GA".equalsIgnoreCase(token) || "FINAL".equalsIgnoreCase(token)
+            || "RELEASE".equalsIgnoreCase(token)) {
+            return RELEASE;
+        }
+        if (isDigit(token.charAt(0))) {
+            // A further number as in 1.2.3.4, but not as in 1.0.0-1
+            return (start > 0 ? qualifier.charAt(start - 1) == '.' : afterDot) ? POST_RELEASE : PRE_RELEASE;
+        }
+        int end = 0;
+        while (end < token.length() && Character.isLetter(token.charAt(end))) {
+            end++;
+        }
+        String word = token.substring(0, end);
+        return "SP".equalsIgnoreCase(word) || "PATCH".equalsIgnoreCase(word) ? POST_RELEASE : PRE_RELEASE;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int parseNumber(String versionName, int start, int end) {
+        // More digits would overflow an int, let alone MAX_NUMBER
+        long number = end - start > 9 ? Long.MAX_VALUE : Long.parseLong(versionName.substring(start, end));
+        if (number > MAX_NUMBER) {
+            throw new IllegalArgumentException("Version name \"" + versionName + "\" contains a number larger than "
+                + MAX_NUMBER);
+        }
+        return (int) number;
+    }
+
+    int getMajor() {
+        return major;
+    }
+
+    int getMinor() {
+        return minor;
+    }
+
+    int getPatch() {
+        return patch;
+    }
+
+    String getQualifier() {
+        return qualifier;
+    }
+
+    /**
+     * @return <code>true</code> if this is a release or post-release, i.e. not a pre-release
+     */
+    boolean isRelease() {
+        return phase != PRE_RELEASE;
+    }
+
+    boolean isPostRelease() {
+        return phase == POST_RELEASE;
+    }
+
+    /**
+     * @return a key that orders versions by major, minor and patch version, with pre-releases before the release and
+     * post-releases after it
+     */
+    long getSortKey() {
+        return (long) major << MAJOR_SHIFT | (long) minor << MINOR_SHIFT | (long) patch << PATCH_SHIFT | phase;
+    }
+}
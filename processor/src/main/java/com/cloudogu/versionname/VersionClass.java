@@ -0,0 +1,146 @@
+package com.cloudogu.versionname;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class to be generated, collecting the fields requested by all {@link VersionName} annotations that target it.
+ */
+final class VersionClass {
+
+    /**
+     * The interface implemented by generated providers, from the <code>versionName</code> module.
+     */
+    static final ClassName VERSION_NAME_PROVIDER = ClassName.get("com.cloudogu.versionname", "VersionNameProvider");
+
+    private static final ClassName SOURCE_TYPE = ClassName.get("com.cloudogu.versionname", "SourceType");
+    private static final String PROVIDER_SUFFIX = "Provider";
+    // Constants of SourceType, which the processor cannot reference
+    private static final List<String> SOURCE_TYPES = Arrays.asList("PROPERTIES", "MANIFEST");
+
+    private final String packageName;
+    private final String className;
+    private final Map<String, FieldSpec> fields = new LinkedHashMap<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+    // Source type, resource path and key the provider returns the version name for, mapped to the field holding it
+    private final Map<List<String>, String> providerKeys = new LinkedHashMap<>();
+
+    VersionClass(String packageName, String className) {
+        this.packageName = packageName;
+        this.className = className;
+    }
+
+    /**
+     * @return the fully qualified name of the class
+     */
+    static String qualifiedName(String packageName, String className) {
+        return packageName.isEmpty() ? className : packageName + "." + className;
+    }
+
+    String getQualifiedName() {
+        return qualifiedName(packageName, className);
+    }
+
+    List<Element> getOriginatingElements() {
+        return originatingElements;
+    }
+
+    /**
+     * Adds an element whose annotation targets this class.
+     */
+    void addOriginatingElement(Element element) {
+        if (!originatingElements.contains(element)) {
+            originatingElements.add(element);
+        }
+    }
+
+    /**
+     * Adds a field, unless the same field has already been added.
+     *
+     * @throws IllegalArgumentException if a different field of the same name has already been added
+     */
+    void addField(FieldSpec field) {
+        FieldSpec existing = fields.putIfAbsent(field.name, field);
+        if (existing != null && !existing.equals(field)) {
+            throw new IllegalArgumentException("Conflicting definitions of field " + field.name + " in "
+                + getQualifiedName() + ": \"" + existing + "\" and \"" + field + "\"");
+        }
+    }
+
+    /**
+     * Makes the provider of this class return the version name held by <code>fieldName</code> for lookups of
+     * <code>key</code> in the resource <code>resourcePath</code> of type <code>sourceType</code>.
+     *
+     * @param sourceType the name of a constant of <code>com.cloudogu.versionname.SourceType</code>
+     * @throws IllegalArgumentException if <code>sourceType</code> is unknown or the provider already returns a
+     *                                  different field for the same lookup
+     */
+    void addProviderKey(String sourceType, String resourcePath, String key, String fieldName) {
+        if (!SOURCE_TYPES.contains(sourceType)) {
+            throw new IllegalArgumentException("Unknown provider source type " + sourceType + ", expected one of "
+                + SOURCE_TYPES);
+        }
+        List<String> lookup = Arrays.asList(sourceType, resourcePath, key);
+        String existing = providerKeys.putIfAbsent(lookup, fieldName);
+        if (existing != null && !existing.equals(fieldName)) {
+            throw new IllegalArgumentException("Conflicting fields for provider key " + key + " in " + resourcePath
+                + " in " + getQualifiedName() + ": " + existing + " and " + fieldName);
+        }
+    }
+
+    boolean hasProvider() {
+        return !providerKeys.isEmpty();
+    }
+
+    String getProviderQualifiedName() {
+        return qualifiedName(packageName, className + PROVIDER_SUFFIX);
+    }
+
+    JavaFile toJavaFile() {
+        TypeSpec.Builder versionClassBuilder = TypeSpec.classBuilder(className)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL);
+        // Lets incremental builds (e.g. gradle) recompile only what depends on the annotated elements
+        originatingElements.forEach(versionClassBuilder::addOriginatingElement);
+        fields.values().forEach(versionClassBuilder::addField);
+        return JavaFile.builder(packageName, versionClassBuilder.build()).build();
+    }
+
+    /**
+     * @return the provider returning the version name for the lookups added via
+     * {@link #addProviderKey(String, String, String, String)} and <code>null</code> for any other lookup
+     */
+    JavaFile toProviderJavaFile() {
+        ClassName versionClass = ClassName.get(packageName, className);
+        MethodSpec.Builder getVersionName = MethodSpec.methodBuilder("getVersionName")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(String.class)
+            .addParameter(SOURCE_TYPE, "sourceType")
+            .addParameter(String.class, "resourcePath")
+            .addParameter(String.class, "key");
+        providerKeys.forEach((lookup, fieldName) -> getVersionName
+            .beginControlFlow("if (sourceType == $T.$L && $S.equals(resourcePath) && $S.equals(key))",
+                SOURCE_TYPE, lookup.get(0), lookup.get(1), lookup.get(2))
+            .addStatement("return $T.$N", versionClass, fieldName)
+            .endControlFlow());
+        getVersionName.addStatement("return null");
+
+        TypeSpec.Builder providerBuilder = TypeSpec.classBuilder(className + PROVIDER_SUFFIX)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface(VERSION_NAME_PROVIDER)
+            .addMethod(getVersionName.build());
+        originatingElements.forEach(providerBuilder::addOriginatingElement);
+        return JavaFile.builder(packageName, providerBuilder.build()).build();
+    }
+}
@@ -53,4 +53,114 @@ public @interface VersionName {
      * @return package name.
      */
     String packageName() default "";
+
+    /**
+     * Also generate the version name parsed as semantic version <code>major.minor.patch[-qualifier]</code>: int
+     * constants for major, minor and patch version, a qualifier and a sort key. As they are compile time constants,
+     * version checks can be folded by the compiler and JIT instead of parsing the version name at runtime.
+     * <p>A leading <code>v</code> is ignored, missing minor or patch versions are 0. Each number must not be larger
+     * than {@value SemanticVersion#MAX_NUMBER}. Compilation fails if the version name does not start with a number.
+     * Build metadata after <code>+</code> is not part of the qualifier. Qualifiers <code>GA</code>, <code>FINAL</code>
+     * and <code>RELEASE</code> mark releases, a further number (<code>1.2.3.4</code>) and qualifiers starting with
+     * <code>sp</code> or <code>patch</code> post-releases, as for <code>com.cloudogu.versionname.Version</code>.</p>
+     *
+     * @return whether to generate the semantic version fields.
+     */
+    boolean semanticVersion() default false;
+
+    /**
+     * Output major version field name, if {@link #semanticVersion()} is set.
+     *
+     * @return field name.
+     */
+    String majorFieldName() default "MAJOR";
+
+    /**
+     * Output minor version field name, if {@link #semanticVersion()} is set.
+     *
+     * @return field name.
+     */
+    String minorFieldName() default "MINOR";
+
+    /**
+     * Output patch version field name, if {@link #semanticVersion()} is set.
+     *
+     * @return field name.
+     */
+    String patchFieldName() default "PATCH";
+
+    /**
+     * Output qualifier field name, if {@link #semanticVersion()} is set. The qualifier is everything after the patch
+     * version without the leading separator, e.g. <code>SNAPSHOT</code> for <code>1.2.3-SNAPSHOT</code>. Empty if
+     * there is none.
+     *
+     * @return field name.
+     */
+    String qualifierFieldName() default "QUALIFIER";
+
+    /**
+     * Output sort key field name, if {@link #semanticVersion()} is set. The sort key is a <code>long</code> that
+     * orders versions by major, minor and patch version, with pre-releases before the release and post-releases after
+     * it. That is, it is <code>major &lt;&lt; 42 | minor &lt;&lt; 22 | patch &lt;&lt; 2 | phase</code>, where
+     * <code>phase</code> is 0 for pre-releases, 1 for releases and 2 for post-releases. Pre-releases of the same version
+     * share a sort key, as do its post-releases.
+     *
+     * @return field name.
+     */
+    String sortKeyFieldName() default "SORT_KEY";
+
+    /**
+     * Also generate a <code>com.cloudogu.versionname.VersionNameProvider</code> named like the class with suffix
+     * <code>Provider</code>, e.g. <code>VersionProvider</code>, and list it in
+     * <code>META-INF/services/com.cloudogu.versionname.VersionNameProvider</code>. For lookups of
+     * {@link #providerKey()} in {@link #providerResourcePath()} by the class loader that loads the generated provider,
+     * <code>VersionNames</code> then returns the version name from the generated constant without reading any
+     * resources. Requires the <code>com.cloudogu.versionName:versionName</code> dependency at compile time and runtime.
+     *
+     * @return whether to generate a provider.
+     */
+    boolean provider() default false;
+
+    /**
+     * Kind of resource for which the provider returns the version name, if {@link #provider()} is set. The name of a
+     * constant of <code>com.cloudogu.versionname.SourceType</code>, i.e. <code>MANIFEST</code> or
+     * <code>PROPERTIES</code>.
+     *
+     * @return source type.
+     */
+    String providerSourceType() default "MANIFEST";
+
+    /**
+     * Path of the properties file or manifest for which the provider returns the version name, if {@link #provider()}
+     * is set. Must equal the path passed to <code>VersionNames</code>, e.g. <code>/app.properties</code> for
+     * <code>getVersionNameFromProperties()</code>.
+     *
+     * @return resource path.
+     */
+    String providerResourcePath() default "META-INF/MANIFEST.MF";
+
+    /**
+     * Key within the properties file or manifest for which the provider returns the version name, if
+     * {@link #provider()} is set. For other keys and resources, <code>VersionNames</code> reads the version name from
+     * the classpath as usual.
+     *
+     * @return key.
+     */
+    String providerKey() default "versionName";
+
+    /**
+     * Entries to write to <code>META-INF/versionname.idx</code>, the index <code>VersionNames</code> looks up version
+     * names in before scanning the classpath. Each entry is a lookup as passed to <code>VersionNames</code>, i.e.
+     * <code>&lt;properties|manifest&gt;|&lt;resource path&gt;|&lt;key&gt;</code>, e.g.
+     * <code>properties|/app.properties|versionName</code>.
+     * <p>The version name of each entry is read from the resource in the class output, e.g. <code>target/classes</code>
+     * after maven's <code>process-resources</code> phase, so the index matches the resources that are packaged. Builds
+     * that process resources into another directory, such as gradle's <code>build/resources/main</code>, pass it as
+     * processor option <code>-AversionName.resourceDir=&lt;dir&gt;</code> and declare it as input of the compilation.
+     * Compilation fails if the resource or the key is missing. Manifests written when packaging, such as
+     * <code>META-INF/MANIFEST.MF</code> of a jar, can't be indexed, see {@link #provider()} instead.</p>
+     *
+     * @return index entries.
+     */
+    String[] index() default {};
 }
@@ -0,0 +1,161 @@
+package com.cloudogu.versionname;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.Manifest;
+
+/**
+ * The index of version names to be written to {@link #INDEX_PATH}, read by <code>VersionNameIndex</code> of the
+ * <code>versionName</code> module. The version names are read from the resources in the class output, where maven
+ * has already put them, or from the resource directory passed as processor option {@link #RESOURCE_DIR_OPTION}, e.g.
+ * for gradle, which processes resources into a directory of its own.
+ */
+final class VersionNameIndexFile {
+
+    static final String INDEX_PATH = "META-INF/versionname.idx";
+
+    static final String RESOURCE_DIR_OPTION = "versionName.resourceDir";
+
+    // Source types as written to the index, see SourceType
+    private static final List<String> SOURCE_TYPES = Arrays.asList("properties", "manifest");
+
+    // Entries, mapped to the elements whose annotations request them
+    private final Map<String, List<Element>> entries = new LinkedHashMap<>();
+
+    /**
+     * @param entry   <code>&lt;properties|manifest&gt;|&lt;resource path&gt;|&lt;key&gt;</code>
+     * @param element the element whose annotation requests the entry
+     * @throws IllegalArgumentException if <code>entry</code> is malformed
+     */
+    void addEntry(String entry, Element element) {
+        String[] parts = split(entry);
+        if (parts.length != 3 || !SOURCE_TYPES.contains(parts[0]) || parts[1].isEmpty() || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Malformed index entry \"" + entry
+                + "\", expected <properties|manifest>|<resource path>|<key>");
+        }
+        List<Element> elements = entries.computeIfAbsent(entry, e -> new ArrayList<>());
+        if (!elements.contains(element)) {
+            elements.add(element);
+        }
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return the elements whose annotations request <code>entry</code>
+     */
+    List<Element> getElements(String entry) {
+        return entries.get(entry);
+    }
+
+    /**
+     * Reads the version name of each entry and writes the index to the class output.
+     *
+     * @param resourceDirectory the directory to read the resources from, <code>null</code> for the class output
+     * @throws EntryException if the version name of an entry can't be read
+     * @throws IOException    if the index can't be written
+     */
+    void writeTo(Filer filer, String resourceDirectory) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(("# Generated by " + VersionNameProcessor.class.getName() + "\n")
+            .getBytes(StandardCharsets.ISO_8859_1));
+        for (String entry : entries.keySet()) {
+            content.write(escape(entry, read(filer, resourceDirectory, entry)));
+        }
+
+        Element[] originatingElements = entries.values().stream()
+            .flatMap(List::stream)
+            .distinct()
+            .toArray(Element[]::new);
+        FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_PATH, originatingElements);
+        try (OutputStream out = file.openOutputStream()) {
+            content.writeTo(out);
+        }
+    }
+
+    /**
+     * @return the line for <code>key</code> and <code>value</code>, escaped by {@link Properties#store(OutputStream,
+     * String)}, but without its time stamp, so builds are reproducible
+     */
+    private static byte[] escape(String key, String value) throws IOException {
+        Properties line = new Properties();
+        line.setProperty(key, value);
+        ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        line.store(stored, null);
+        String storedLines = new String(stored.toByteArray(), StandardCharsets.ISO_8859_1);
+        return storedLines.substring(storedLines.indexOf('\n') + 1).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String read(Filer filer, String resourceDirectory, String entry) throws EntryException {
+        String[] parts = split(entry);
+        // Resource paths may be absolute, as for Class.getResource()
+        String resourcePath = parts[1].startsWith("/") ? parts[1].substring(1) : parts[1];
+        String location = resourceDirectory == null ? "class output" : resourceDirectory;
+        String versionName;
+        try (InputStream in = open(filer, resourceDirectory, resourcePath)) {
+            if ("properties".equals(parts[0])) {
+                Properties properties = new Properties();
+                properties.load(in);
+                versionName = properties.getProperty(parts[2]);
+            } else {
+                versionName = new Manifest(in).getMainAttributes().getValue(parts[2]);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EntryException(entry, "Unable to read " + resourcePath + " from " + location
+                + " for index entry " + entry + ": " + e);
+        }
+        if (versionName == null || versionName.isEmpty()) {
+            throw new EntryException(entry, "No version name for index entry " + entry + " in " + resourcePath);
+        }
+        return versionName;
+    }
+
+    private static InputStream open(Filer filer, String resourceDirectory, String resourcePath) throws IOException {
+        if (resourceDirectory == null) {
+            return filer.getResource(StandardLocation.CLASS_OUTPUT, "", resourcePath).openInputStream();
+        }
+        Path resource = Paths.get(resourceDirectory).resolve(resourcePath);
+        return Files.newInputStream(resource);
+    }
+
+    private static String[] split(String entry) {
+        return entry.split("\\|", -1);
+    }
+
+    /**
+     * The version name of an index entry can't be read.
+     */
+    static final class EntryException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String entry;
+
+        EntryException(String entry, String message) {
+            super(message);
+            this.entry = entry;
+        }
+
+        String getEntry() {
+            return entry;
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.cloudogu.versionname;
 
 import com.squareup.javapoet.FieldSpec;
-import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.TypeSpec;
 import org.kohsuke.MetaInfServices;
 
 import javax.annotation.processing.AbstractProcessor;
@@ -17,52 +15,94 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 @SupportedAnnotationTypes("com.cloudogu.versionname.VersionName")
-// compilerArgs: "-AversionName=${versionName}"
-@SupportedOptions({"versionName"})
+// compilerArgs: "-AversionName=${versionName}", optionally "-AversionName.resourceDir=<dir>" for the index
+@SupportedOptions({"versionName", VersionNameIndexFile.RESOURCE_DIR_OPTION})
 @MetaInfServices(Processor.class)
 public class VersionNameProcessor extends AbstractProcessor {
 
     private static final boolean CLAIM_ANNOTATIONS = true;
 
+    private static final String PROVIDER_CONFIGURATION = "META-INF/services/"
+        + VersionClass.VERSION_NAME_PROVIDER.reflectionName();
+
+    // Qualified names of the classes written in previous rounds of this compilation
+    private final Set<String> writtenClasses = new HashSet<>();
+
+    // Providers written during this compilation, listed in the provider configuration after the last round
+    private final Map<String, List<Element>> writtenProviders = new LinkedHashMap<>();
+
+    // Index entries requested during this compilation, written after the last round
+    private final VersionNameIndexFile index = new VersionNameIndexFile();
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeProviderConfiguration();
+            writeIndex();
+        }
+        if (annotations.isEmpty()) {
+            return CLAIM_ANNOTATIONS;
+        }
+
+        String versionName;
+        try {
+            versionName = readAndValidateVersionNameFromCompilerArg();
+        } catch (IOException e) {
+            error(e);
+            return CLAIM_ANNOTATIONS;
+        }
 
+        // Collect all classes first, so each one is written once, even if requested by several annotations
+        Map<String, VersionClass> versionClasses = new LinkedHashMap<>();
         for (TypeElement annotation : annotations) {
-            processAnnotatedElements(roundEnv.getElementsAnnotatedWith(annotation));
+            processAnnotatedElements(roundEnv.getElementsAnnotatedWith(annotation), versionName, versionClasses);
         }
+        writeVersionClasses(versionClasses.values());
 
         return CLAIM_ANNOTATIONS;
     }
 
-    private void processAnnotatedElements(Set<? extends Element> annotatedElements) {
+    private void processAnnotatedElements(Set<? extends Element> annotatedElements, String versionName,
+                                          Map<String, VersionClass> versionClasses) {
 
         for (Element annotatedElement : annotatedElements) {
-            processAnnotationInstances(annotatedElement.getAnnotationsByType(VersionName.class), annotatedElement);
+            processAnnotationInstances(annotatedElement.getAnnotationsByType(VersionName.class), annotatedElement,
+                versionName, versionClasses);
         }
     }
 
-    private void processAnnotationInstances(VersionName[] annotationInstances, Element annotatedElement) {
+    private void processAnnotationInstances(VersionName[] annotationInstances, Element annotatedElement,
+                                            String versionName, Map<String, VersionClass> versionClasses) {
 
         for (VersionName annotationInstance : annotationInstances) {
-            processAnnotationInstance(annotationInstance, annotatedElement);
+            processAnnotationInstance(annotationInstance, annotatedElement, versionName, versionClasses);
         }
     }
 
-    private void processAnnotationInstance(VersionName annotationInstance, Element annotatedElement) {
+    private void processAnnotationInstance(VersionName annotationInstance, Element annotatedElement,
+                                           String versionName, Map<String, VersionClass> versionClasses) {
 
         try {
-            String versionName = readAndValidateVersionNameFromCompilerArg();
-
-            writeVersionClass(versionName, annotationInstance, annotatedElement);
+            addVersionClass(versionName, annotationInstance, annotatedElement, versionClasses);
 
-        } catch (IOException e) {
-            error(e);
+        } catch (IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), annotatedElement);
         }
     }
 
@@ -74,23 +114,111 @@ public class VersionNameProcessor extends AbstractProcessor {
         return versionName;
     }
 
-    private void writeVersionClass(String versionName, VersionName versionNameAnnotation, Element element) throws IOException {
-        Filer filer = processingEnv.getFiler();
-
+    private void addVersionClass(String versionName, VersionName versionNameAnnotation, Element element,
+                                 Map<String, VersionClass> versionClasses) {
         String packageName = versionNameAnnotation.packageName();
         if (packageName.isEmpty()) {
             packageName = findPackageName(element);
         }
+        String finalPackageName = packageName;
+        VersionClass versionClass = versionClasses.computeIfAbsent(
+            VersionClass.qualifiedName(packageName, versionNameAnnotation.className()),
+            qualifiedName -> new VersionClass(finalPackageName, versionNameAnnotation.className()));
+
+        versionClass.addField(constant(String.class, versionNameAnnotation.fieldName(), "$S", versionName));
+        if (versionNameAnnotation.semanticVersion()) {
+            addSemanticVersionFields(SemanticVersion.parse(versionName), versionNameAnnotation, versionClass);
+        }
+        if (versionNameAnnotation.provider()) {
+            versionClass.addProviderKey(versionNameAnnotation.providerSourceType(),
+                versionNameAnnotation.providerResourcePath(), versionNameAnnotation.providerKey(),
+                versionNameAnnotation.fieldName());
+        }
+        for (String indexEntry : versionNameAnnotation.index()) {
+            index.addEntry(indexEntry, element);
+        }
+        versionClass.addOriginatingElement(element);
+    }
 
-        TypeSpec VersionClass = TypeSpec.classBuilder(versionNameAnnotation.className())
-            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-            .addField(FieldSpec.builder(String.class, versionNameAnnotation.fieldName())
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
-                .initializer("$S",versionName)
-                .build())
+    private void addSemanticVersionFields(SemanticVersion semanticVersion, VersionName versionNameAnnotation,
+                                          VersionClass versionClass) {
+        versionClass.addField(constant(int.class, versionNameAnnotation.majorFieldName(), "$L",
+            semanticVersion.getMajor()));
+        versionClass.addField(constant(int.class, versionNameAnnotation.minorFieldName(), "$L",
+            semanticVersion.getMinor()));
+        versionClass.addField(constant(int.class, versionNameAnnotation.patchFieldName(), "$L",
+            semanticVersion.getPatch()));
+        versionClass.addField(constant(String.class, versionNameAnnotation.qualifierFieldName(), "$S",
+            semanticVersion.getQualifier()));
+        versionClass.addField(constant(long.class, versionNameAnnotation.sortKeyFieldName(), "$LL",
+            semanticVersion.getSortKey()));
+    }
+
+    private FieldSpec constant(Class<?> type, String name, String format, Object value) {
+        return FieldSpec.builder(type, name)
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+            .initializer(format, value)
             .build();
+    }
+
+    private void writeVersionClasses(Collection<VersionClass> versionClasses) {
+        Filer filer = processingEnv.getFiler();
+
+        for (VersionClass versionClass : versionClasses) {
+            if (!writtenClasses.add(versionClass.getQualifiedName())) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Class "
+                    + versionClass.getQualifiedName() + " has already been generated in a previous round",
+                    versionClass.getOriginatingElements().get(0));
+                continue;
+            }
+            try {
+                versionClass.toJavaFile().writeTo(filer);
+                if (versionClass.hasProvider()) {
+                    versionClass.toProviderJavaFile().writeTo(filer);
+                    writtenProviders.put(versionClass.getProviderQualifiedName(),
+                        versionClass.getOriginatingElements());
+                }
+            } catch (IOException e) {
+                error(e);
+            }
+        }
+    }
+
+    private void writeProviderConfiguration() {
+        if (writtenProviders.isEmpty()) {
+            return;
+        }
+        Element[] originatingElements = writtenProviders.values().stream()
+            .flatMap(List::stream)
+            .toArray(Element[]::new);
+        try {
+            FileObject configuration = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                PROVIDER_CONFIGURATION, originatingElements);
+            try (Writer writer = new OutputStreamWriter(configuration.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String provider : writtenProviders.keySet()) {
+                    writer.write(provider);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            error(e);
+        }
+    }
 
-        JavaFile.builder(packageName, VersionClass).build().writeTo(filer);
+    private void writeIndex() {
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            index.writeTo(processingEnv.getFiler(),
+                processingEnv.getOptions().get(VersionNameIndexFile.RESOURCE_DIR_OPTION));
+        } catch (VersionNameIndexFile.EntryException e) {
+            for (Element element : index.getElements(e.getEntry())) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+            }
+        } catch (IOException e) {
+            error(e);
+        }
     }
 
     private String findPackageName(Element element) {
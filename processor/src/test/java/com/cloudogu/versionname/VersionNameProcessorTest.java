@@ -6,10 +6,35 @@ import com.google.testing.compile.CompileTester;
 import com.google.testing.compile.JavaFileObjects;
 import com.google.testing.compile.JavaSourcesSubject;
 import com.google.testing.compile.JavaSourcesSubjectFactory;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class VersionNameProcessorTest {
 
@@ -23,6 +48,9 @@ public class VersionNameProcessorTest {
     private String expectedErrorMissingCompilerArg = "Compile Arg \"versionName\" not set.";
     private String expectedVersion = "1.2.3";
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final JavaFileObject clazzInput = JavaFileObjects.forSourceString(
         "com.example.A",
         Joiner.on(System.lineSeparator()).join(
@@ -97,6 +125,41 @@ public class VersionNameProcessorTest {
         )
     );
 
+    private final JavaFileObject packageInputSemanticVersion = JavaFileObjects.forSourceString(
+        "com.example.package-info",
+        Joiner.on(System.lineSeparator()).join(
+            "@VersionName(semanticVersion = true, sortKeyFieldName = \"" + OTHER_FIELD_NAME + "\")",
+            "package com.example;",
+            "import com.cloudogu.versionname.VersionName;"
+        )
+    );
+
+    private final JavaFileObject clazzInputConflictingField = JavaFileObjects.forSourceString(
+        "com.example.B",
+        Joiner.on(System.lineSeparator()).join(
+            "package com.example;",
+            "",
+            "import com.cloudogu.versionname.VersionName;",
+            "",
+            "@VersionName(fieldName = \"" + OTHER_FIELD_NAME + "\")",
+            "public class B {",
+            "}"
+        )
+    );
+
+    private final JavaFileObject clazzInputProvider = JavaFileObjects.forSourceString(
+        "com.example.A",
+        Joiner.on(System.lineSeparator()).join(
+            "package com.example;",
+            "",
+            "import com.cloudogu.versionname.VersionName;",
+            "",
+            "@VersionName(provider = true)",
+            "public class A {",
+            "}"
+        )
+    );
+
     @Test
     public void generateFromClass() {
         process("-AversionName=" + expectedVersion, clazzInput)
@@ -160,10 +223,289 @@ public class VersionNameProcessorTest {
     }
 
     @Test
-    public void conflictingAnnotations() {
+    public void mergedAnnotations() {
         process("-AversionName=" + expectedVersion, clazzInput, packageInputDifferentField)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedOutput(DEFAULT_CLASS_NAME, DEFAULT_PACKAGE_NAME, DEFAULT_FIELD_NAME,
+                OTHER_FIELD_NAME));
+    }
+
+    @Test
+    public void duplicateAnnotations() {
+        process("-AversionName=" + expectedVersion, clazzInput, packageInput)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedOutput());
+    }
+
+    @Test
+    public void conflictingAnnotations() {
+        process("-AversionName=" + expectedVersion, packageInputSemanticVersion, clazzInputConflictingField)
+            .failsToCompile()
+            .withErrorContaining("Conflicting definitions of field " + OTHER_FIELD_NAME + " in com.example.Version");
+    }
+
+    @Test
+    public void semanticVersion() {
+        process("-AversionName=1.2.3-SNAPSHOT", packageInputSemanticVersion)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedSemanticVersionOutput("1.2.3-SNAPSHOT", 1, 2, 3, "SNAPSHOT",
+                "4398054899724L"));
+    }
+
+    @Test
+    public void semanticVersionRelease() {
+        process("-AversionName=v2.0", packageInputSemanticVersion)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedSemanticVersionOutput("v2.0", 2, 0, 0, "", "8796093022209L"));
+    }
+
+    @Test
+    public void semanticVersionBuildMetadata() {
+        process("-AversionName=1.2.3+build.5", packageInputSemanticVersion)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedSemanticVersionOutput("1.2.3+build.5", 1, 2, 3, "", "4398054899725L"));
+    }
+
+    @Test
+    public void semanticVersionReleaseQualifier() {
+        process("-AversionName=5.3.9.RELEASE", packageInputSemanticVersion)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedSemanticVersionOutput("5.3.9.RELEASE", 5, 3, 9, "RELEASE", "21990245138469L"));
+    }
+
+    @Test
+    public void semanticVersionPostRelease() {
+        process("-AversionName=1.2.3.4", packageInputSemanticVersion)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedSemanticVersionOutput("1.2.3.4", 1, 2, 3, "4", "4398054899726L"));
+    }
+
+    /**
+     * The generated constants must agree with parsing the version name at runtime.
+     */
+    @Test
+    public void semanticVersionAgreesWithVersion() {
+        for (String versionName : Arrays.asList("1.2.3", "v2.0", "1.2.3-SNAPSHOT", "1.2.3+build.5",
+            "1.0.0-rc.1+build.5", "5.3.9.RELEASE", "1.0-GA", "2.0.Final", "1.0RC1", "1.2.3-", "1.2.3.4", "1.2.3.4-SNAPSHOT", "1.0.0-1", "1.0.0-sp1",
+            "1.0.0.SP2", "1.0.0-patch-1", "1.0.0-spring", "1.2-.4")) {
+            SemanticVersion semanticVersion = SemanticVersion.parse(versionName);
+            Version version = Version.parse(versionName);
+            assertEquals(versionName, version.getMajor(), semanticVersion.getMajor());
+            assertEquals(versionName, version.getMinor(), semanticVersion.getMinor());
+            assertEquals(versionName, version.getPatch(), semanticVersion.getPatch());
+            assertEquals(versionName, version.getQualifier(), semanticVersion.getQualifier());
+            assertEquals(versionName, version.isRelease(), semanticVersion.isRelease());
+            assertEquals(versionName, version.isPostRelease(), semanticVersion.isPostRelease());
+        }
+    }
+
+    @Test
+    public void semanticVersionInvalid() {
+        process("-AversionName=snapshot", packageInputSemanticVersion)
+            .failsToCompile()
+            .withErrorContaining("does not start with a number");
+    }
+
+    @Test
+    public void semanticVersionNumberTooLarge() {
+        process("-AversionName=1.2.20170101", packageInputSemanticVersion)
             .failsToCompile()
-            .withErrorContaining("Attempt to recreate a file");
+            .withErrorContaining("contains a number larger than");
+    }
+
+    @Test
+    public void semanticVersionSortKey() {
+        assertTrue(SemanticVersion.parse("1.2.3-SNAPSHOT").getSortKey() < SemanticVersion.parse("1.2.3").getSortKey());
+        assertTrue(SemanticVersion.parse("1.2.3").getSortKey() < SemanticVersion.parse("1.2.4-rc.1").getSortKey());
+        assertTrue(SemanticVersion.parse("1.2.10").getSortKey() < SemanticVersion.parse("1.10.0").getSortKey());
+        assertTrue(SemanticVersion.parse("1.1048575.1048575").getSortKey() < SemanticVersion.parse("2").getSortKey());
+        assertEquals(SemanticVersion.parse("1.2.3").getSortKey(), SemanticVersion.parse("1.2.3+build.5").getSortKey());
+        assertEquals(SemanticVersion.parse("5.3.9").getSortKey(), SemanticVersion.parse("5.3.9.RELEASE").getSortKey());
+        assertTrue(SemanticVersion.parse("1.2.3").getSortKey() < SemanticVersion.parse("1.2.3.4").getSortKey());
+        assertTrue(SemanticVersion.parse("1.0.0").getSortKey() < SemanticVersion.parse("1.0.0-sp1").getSortKey());
+        assertTrue(SemanticVersion.parse("1.2.3.4").getSortKey() < SemanticVersion.parse("1.2.4-rc.1").getSortKey());
+        assertTrue(SemanticVersion.parse("1048575.1048575.1048575.1").getSortKey() > 0);
+    }
+
+    @Test
+    public void provider() {
+        process("-AversionName=" + expectedVersion, clazzInputProvider)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedOutput(), JavaFileObjects.forSourceString(
+                "VersionProvider",
+                Joiner.on(System.lineSeparator()).join(
+                    "package " + DEFAULT_PACKAGE_NAME + ";",
+                    "",
+                    "import com.cloudogu.versionname.SourceType;",
+                    "import com.cloudogu.versionname.VersionNameProvider;",
+                    "import java.lang.Override;",
+                    "import java.lang.String;",
+                    "",
+                    "public final class VersionProvider implements VersionNameProvider {",
+                    "  @Override",
+                    "  public String getVersionName(SourceType sourceType, String resourcePath, String key) {",
+                    "    if (sourceType == SourceType.MANIFEST && \"META-INF/MANIFEST.MF\".equals(resourcePath) && \"versionName\".equals(key)) {",
+                    "      return Version.NAME;",
+                    "    }",
+                    "    return null;",
+                    "  }",
+                    "}"
+                )))
+            .and()
+            .generatesFileNamed(StandardLocation.CLASS_OUTPUT, "",
+                "META-INF/services/com.cloudogu.versionname.VersionNameProvider")
+            .withStringContents(StandardCharsets.UTF_8, DEFAULT_PACKAGE_NAME + ".VersionProvider\n");
+    }
+
+    @Test
+    public void providerForProperties() {
+        JavaFileObject input = JavaFileObjects.forSourceString(
+            "com.example.A",
+            Joiner.on(System.lineSeparator()).join(
+                "package com.example;",
+                "",
+                "import com.cloudogu.versionname.VersionName;",
+                "",
+                "@VersionName(provider = true, providerSourceType = \"PROPERTIES\",",
+                "    providerResourcePath = \"/app.properties\")",
+                "public class A {",
+                "}"
+            )
+        );
+
+        process("-AversionName=" + expectedVersion, input)
+            .compilesWithoutError()
+            .and()
+            .generatesSources(expectedOutput(), JavaFileObjects.forSourceString(
+                "VersionProvider",
+                Joiner.on(System.lineSeparator()).join(
+                    "package " + DEFAULT_PACKAGE_NAME + ";",
+                    "",
+                    "import com.cloudogu.versionname.SourceType;",
+                    "import com.cloudogu.versionname.VersionNameProvider;",
+                    "import java.lang.Override;",
+                    "import java.lang.String;",
+                    "",
+                    "public final class VersionProvider implements VersionNameProvider {",
+                    "  @Override",
+                    "  public String getVersionName(SourceType sourceType, String resourcePath, String key) {",
+                    "    if (sourceType == SourceType.PROPERTIES && \"/app.properties\".equals(resourcePath) && \"versionName\".equals(key)) {",
+                    "      return Version.NAME;",
+                    "    }",
+                    "    return null;",
+                    "  }",
+                    "}"
+                )));
+    }
+
+    @Test
+    public void providerUnknownSourceType() {
+        JavaFileObject input = JavaFileObjects.forSourceString(
+            "com.example.A",
+            Joiner.on(System.lineSeparator()).join(
+                "package com.example;",
+                "",
+                "import com.cloudogu.versionname.VersionName;",
+                "",
+                "@VersionName(provider = true, providerSourceType = \"YAML\")",
+                "public class A {",
+                "}"
+            )
+        );
+
+        process("-AversionName=" + expectedVersion, input)
+            .failsToCompile()
+            .withErrorContaining("Unknown provider source type YAML");
+    }
+
+    @Test
+    public void index() {
+        process("-AversionName=" + expectedVersion, indexInput("properties|/app.properties|versionName",
+            "manifest|META-INF/build.mf|Implementation-Version"),
+            new ResourceWriter("app.properties", "versionName=1.2.3 (build: #4)\n",
+                "META-INF/build.mf", "Manifest-Version: 1.0\nImplementation-Version: 1.2.3\n"))
+            .compilesWithoutError()
+            .and()
+            .generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/versionname.idx")
+            .withStringContents(StandardCharsets.ISO_8859_1, "# Generated by " + VersionNameProcessor.class.getName()
+                + "\n" + "properties|/app.properties|versionName=1.2.3 (build\\: \\#4)" + System.lineSeparator()
+                + "manifest|META-INF/build.mf|Implementation-Version=1.2.3" + System.lineSeparator());
+    }
+
+    @Test
+    public void indexResourceMissing() {
+        process("-AversionName=" + expectedVersion, indexInput("properties|/app.properties|versionName"))
+            .failsToCompile()
+            .withErrorContaining("Unable to read app.properties from class output for index entry "
+                + "properties|/app.properties|versionName");
+    }
+
+    @Test
+    public void indexFromResourceDir() throws IOException {
+        File resourceDir = temporaryFolder.newFolder("resources");
+        Files.write(new File(resourceDir, "app.properties").toPath(),
+            "versionName=1.2.3\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        // The class output is not read if a resource directory is passed
+        Truth.assert_()
+            .about(JavaSourcesSubjectFactory.javaSources())
+            .that(Collections.singletonList(indexInput("properties|/app.properties|versionName")))
+            .withCompilerOptions("-AversionName=" + expectedVersion, "-AversionName.resourceDir=" + resourceDir)
+            .processedWith(new ResourceWriter("app.properties", "versionName=0.0.1\n"), new VersionNameProcessor())
+            .compilesWithoutError()
+            .and()
+            .generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/versionname.idx")
+            .withStringContents(StandardCharsets.ISO_8859_1, "# Generated by " + VersionNameProcessor.class.getName()
+                + "\n" + "properties|/app.properties|versionName=1.2.3" + System.lineSeparator());
+    }
+
+    @Test
+    public void indexResourceMissingFromResourceDir() throws IOException {
+        File resourceDir = temporaryFolder.newFolder("resources");
+
+        Truth.assert_()
+            .about(JavaSourcesSubjectFactory.javaSources())
+            .that(Collections.singletonList(indexInput("properties|/app.properties|versionName")))
+            .withCompilerOptions("-AversionName=" + expectedVersion, "-AversionName.resourceDir=" + resourceDir)
+            .processedWith(new VersionNameProcessor())
+            .failsToCompile()
+            .withErrorContaining("Unable to read app.properties from " + resourceDir + " for index entry "
+                + "properties|/app.properties|versionName");
+    }
+
+    @Test
+    public void indexKeyMissing() {
+        process("-AversionName=" + expectedVersion, indexInput("properties|/app.properties|versionName"),
+            new ResourceWriter("app.properties", "other=1.2.3\n"))
+            .failsToCompile()
+            .withErrorContaining("No version name for index entry properties|/app.properties|versionName in "
+                + "app.properties");
+    }
+
+    @Test
+    public void indexMalformedEntry() {
+        process("-AversionName=" + expectedVersion, indexInput("yaml|/app.yaml"))
+            .failsToCompile()
+            .withErrorContaining("Malformed index entry \"yaml|/app.yaml\"");
+    }
+
+    @Test
+    public void registeredAsAggregatingIncrementalProcessor() throws IOException {
+        URL registration = getClass().getClassLoader().getResource(
+            "META-INF/gradle/incremental.annotation.processors");
+        assertNotNull("Processor not registered for incremental annotation processing", registration);
+
+        try (Scanner scanner = new Scanner(registration.openStream(), "UTF-8")) {
+            assertEquals(VersionNameProcessor.class.getName() + ",aggregating", scanner.nextLine());
+        }
     }
 
     @Test
@@ -181,6 +523,29 @@ public class VersionNameProcessorTest {
             .withErrorContaining(expectedErrorMissingCompilerArg);
     }
 
+    private JavaFileObject indexInput(String... entries) {
+        return JavaFileObjects.forSourceString(
+            "com.example.A",
+            Joiner.on(System.lineSeparator()).join(
+                "package com.example;",
+                "",
+                "import com.cloudogu.versionname.VersionName;",
+                "",
+                "@VersionName(index = {\"" + Joiner.on("\", \"").join(entries) + "\"})",
+                "public class A {",
+                "}"
+            )
+        );
+    }
+
+    private CompileTester process(String compilerArgString, JavaFileObject source, ResourceWriter resources) {
+        return Truth.assert_()
+            .about(JavaSourcesSubjectFactory.javaSources())
+            .that(Collections.singletonList(source))
+            .withCompilerOptions(compilerArgString)
+            .processedWith(resources, new VersionNameProcessor());
+    }
+
     private CompileTester process(String compilerArgString, JavaFileObject... sources) {
 
         JavaSourcesSubject src = Truth.assert_()
@@ -203,24 +568,98 @@ public class VersionNameProcessorTest {
     }
 
     private JavaFileObject expectedOutput(String className, String fieldName, String packageName) {
+        return expectedOutput(className, packageName, new String[]{fieldName});
+    }
+
+    private JavaFileObject expectedOutput(String className, String packageName, String... fieldNames) {
         String optionalPackage = "";
         if (!packageName.isEmpty()) {
             optionalPackage = "package " + packageName + ";";
         }
+        List<String> lines = new ArrayList<>(Arrays.asList(
+            optionalPackage,
+            "",
+            "import java.lang.String;",
+            "",
+            "public final class " + className + " {",
+            ""));
+        for (String fieldName : fieldNames) {
+            lines.add("  public static final String " + fieldName + " = \"" + expectedVersion + "\";");
+            lines.add("");
+        }
+        lines.add("}");
         JavaFileObject src = JavaFileObjects.forSourceString(
+            "VersionName",
+            Joiner.on(System.lineSeparator()).join(lines)
+        );
+        return src;
+    }
+
+    private JavaFileObject expectedSemanticVersionOutput(String versionName, int major, int minor, int patch,
+                                                         String qualifier, String sortKey) {
+        return JavaFileObjects.forSourceString(
             "VersionName",
             Joiner.on(System.lineSeparator()).join(
-                optionalPackage,
+                "package " + DEFAULT_PACKAGE_NAME + ";",
                 "",
                 "import java.lang.String;",
                 "",
-                "public final class " + className + " {",
+                "public final class " + DEFAULT_CLASS_NAME + " {",
+                "",
+                "  public static final String " + DEFAULT_FIELD_NAME + " = \"" + versionName + "\";",
+                "",
+                "  public static final int MAJOR = " + major + ";",
+                "",
+                "  public static final int MINOR = " + minor + ";",
+                "",
+                "  public static final int PATCH = " + patch + ";",
                 "",
-                "  public static final String " + fieldName + " = \"" + expectedVersion + "\";",
+                "  public static final String QUALIFIER = \"" + qualifier + "\";",
+                "",
+                "  public static final long " + OTHER_FIELD_NAME + " = " + sortKey + ";",
                 "",
                 "}"
             )
         );
-        return src;
+    }
+
+    /**
+     * Writes resources to the class output before {@link VersionNameProcessor} runs, like maven's
+     * <code>process-resources</code> phase. Bypasses the {@link javax.annotation.processing.Filer}, which does not
+     * allow for reading files it has written.
+     */
+    @SupportedAnnotationTypes("*")
+    private static class ResourceWriter extends AbstractProcessor {
+
+        private final String[] pathsAndContents;
+
+        ResourceWriter(String... pathsAndContents) {
+            this.pathsAndContents = pathsAndContents;
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return SourceVersion.latestSupported();
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            if (roundEnv.processingOver() || !roundEnv.getRootElements().stream()
+                .anyMatch(element -> element.getSimpleName().contentEquals("A"))) {
+                return false;
+            }
+            JavaFileManager fileManager = ((JavacProcessingEnvironment) processingEnv).getContext()
+                .get(JavaFileManager.class);
+            for (int i = 0; i < pathsAndContents.length; i += 2) {
+                try (OutputStream out = fileManager
+                    .getFileForOutput(StandardLocation.CLASS_OUTPUT, "", pathsAndContents[i], null)
+                    .openOutputStream()) {
+                    out.write(pathsAndContents[i + 1].getBytes(StandardCharsets.ISO_8859_1));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return false;
+        }
     }
 }
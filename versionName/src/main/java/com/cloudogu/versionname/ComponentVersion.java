@@ -0,0 +1,117 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+/**
+ * The version information a single jar or class path directory declares in the main section of its
+ * <code>META-INF/MANIFEST.MF</code>, as collected by {@link VersionRegistry}.
+ * <p>Any of the attributes may be <code>null</code>, but at least one of them is set.</p>
+ */
+public final class ComponentVersion {
+
+    private final String location;
+    private final String implementationTitle;
+    private final String implementationVersion;
+    private final String bundleSymbolicName;
+    private final String bundleVersion;
+    private final String versionName;
+
+    ComponentVersion(String location, String implementationTitle, String implementationVersion,
+                     String bundleSymbolicName, String bundleVersion, String versionName) {
+        this.location = location;
+        this.implementationTitle = implementationTitle;
+        this.implementationVersion = implementationVersion;
+        this.bundleSymbolicName = bundleSymbolicName;
+        this.bundleVersion = bundleVersion;
+        this.versionName = versionName;
+    }
+
+    /**
+     * @return the URL of the jar or directory the manifest belongs to, e.g. <code>file:/app/lib/library.jar</code> or
+     * <code>file:/app/classes/</code>
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the <code>Implementation-Title</code> attribute or <code>null</code>
+     */
+    public String getImplementationTitle() {
+        return implementationTitle;
+    }
+
+    /**
+     * @return the <code>Implementation-Version</code> attribute or <code>null</code>
+     */
+    public String getImplementationVersion() {
+        return implementationVersion;
+    }
+
+    /**
+     * @return the <code>Bundle-SymbolicName</code> attribute without directives such as
+     * <code>;singleton:=true</code>, or <code>null</code>
+     */
+    public String getBundleSymbolicName() {
+        return bundleSymbolicName;
+    }
+
+    /**
+     * @return the <code>Bundle-Version</code> attribute or <code>null</code>
+     */
+    public String getBundleVersion() {
+        return bundleVersion;
+    }
+
+    /**
+     * @return the <code>versionName</code> attribute or <code>null</code>
+     */
+    public String getVersionName() {
+        return versionName;
+    }
+
+    /**
+     * @return the <code>Implementation-Title</code>, if missing the <code>Bundle-SymbolicName</code>, or
+     * <code>null</code> if there is neither
+     */
+    public String getName() {
+        return implementationTitle != null ? implementationTitle : bundleSymbolicName;
+    }
+
+    /**
+     * @return the <code>versionName</code>, if missing the <code>Implementation-Version</code>, if missing the
+     * <code>Bundle-Version</code>, or <code>null</code> if there is none of them
+     */
+    public String getVersion() {
+        if (versionName != null) {
+            return versionName;
+        }
+        return implementationVersion != null ? implementationVersion : bundleVersion;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + " " + getVersion() + " (" + location + ")";
+    }
+}
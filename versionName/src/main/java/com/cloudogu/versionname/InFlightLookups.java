@@ -0,0 +1,206 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs lookups asynchronously, so that concurrent callers of the same lookup share a single execution.
+ * <p>The lookup runs with the context class loader of the caller that started it, as version names are looked up per
+ * context class loader.</p>
+ */
+final class InFlightLookups {
+
+    /**
+     * Maximum number of lookups run concurrently by the default executor.
+     */
+    static final int DEFAULT_EXECUTOR_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of lookups waiting for a thread of the default executor. Further lookups are rejected.
+     */
+    static final int DEFAULT_EXECUTOR_QUEUE_SIZE = 1000;
+
+    private final ConcurrentMap<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    // The lookup run by the current thread, which must not wait for itself
+    private final ThreadLocal<Key> running = new ThreadLocal<>();
+
+    /**
+     * @param lookup the synchronous lookup, run on <code>executor</code> unless the same lookup is already in flight
+     * @return a future completed with the result of <code>lookup</code>. Each caller gets a future of its own, so
+     * cancelling it does not affect other callers. Completed exceptionally with a
+     * {@link RejectedExecutionException} if <code>executor</code> rejects the lookup.
+     */
+    CompletableFuture<String> lookup(SourceType sourceType, String resourcePath, String key, Executor executor,
+                                     Supplier<String> lookup) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Key inFlightKey = new Key(classLoader, sourceType, resourcePath, key);
+
+        CompletableFuture<String> started = new CompletableFuture<>();
+        CompletableFuture<String> shared = inFlight.putIfAbsent(inFlightKey, started);
+        if (shared == null) {
+            shared = started;
+            start(inFlightKey, started, classLoader, executor, lookup);
+        }
+        return shared.thenApply(Function.identity());
+    }
+
+    /**
+     * @return the shared future of the lookup if it is in flight and not run by the current thread, otherwise
+     * <code>null</code>. Must not be cancelled or completed by the caller.
+     */
+    CompletableFuture<String> find(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        if (inFlight.isEmpty()) {
+            return null;
+        }
+        Key inFlightKey = new Key(classLoader, sourceType, resourcePath, key);
+        if (inFlightKey.equals(running.get())) {
+            return null;
+        }
+        return inFlight.get(inFlightKey);
+    }
+
+    /**
+     * @return the number of lookups currently in flight
+     */
+    int size() {
+        return inFlight.size();
+    }
+
+    private void start(Key inFlightKey, CompletableFuture<String> future, ClassLoader classLoader, Executor executor,
+                       Supplier<String> lookup) {
+        try {
+            executor.execute(() -> {
+                Thread thread = Thread.currentThread();
+                ClassLoader originalClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader(classLoader);
+                running.set(inFlightKey);
+                try {
+                    complete(inFlightKey, future, lookup.get(), null);
+                } catch (RuntimeException e) {
+                    complete(inFlightKey, future, null, e);
+                } catch (Error e) {
+                    complete(inFlightKey, future, null, e);
+                    throw e;
+                } finally {
+                    running.remove();
+                    thread.setContextClassLoader(originalClassLoader);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            complete(inFlightKey, future, null, e);
+        }
+    }
+
+    private void complete(Key inFlightKey, CompletableFuture<String> future, String versionName, Throwable failure) {
+        // Remove first, so callers arriving after completion start a new lookup, which is answered by the cache
+        inFlight.remove(inFlightKey, future);
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(versionName);
+        }
+    }
+
+    /**
+     * @return an executor with a single daemon thread, which times out when idle. Lookups are run one after another,
+     * so that lookups started at startup don't compete with the application for CPU and I/O.
+     */
+    static ThreadPoolExecutor createPrefetchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "versionName-prefetch");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setContextClassLoader(null);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return a bounded executor with daemon threads, which time out when idle
+     */
+    static ThreadPoolExecutor createDefaultExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_EXECUTOR_THREADS, DEFAULT_EXECUTOR_THREADS,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(DEFAULT_EXECUTOR_QUEUE_SIZE), runnable -> {
+                Thread thread = new Thread(runnable, "versionName-lookup-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                // Set per lookup, don't keep the class loader of the first caller from being collected
+                thread.setContextClassLoader(null);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Identifies a lookup. Holds the class loader only while the lookup is in flight.
+     */
+    private static final class Key {
+        private final ClassLoader classLoader;
+        private final SourceType sourceType;
+        private final String resourcePath;
+        private final String key;
+
+        Key(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+            this.classLoader = classLoader;
+            this.sourceType = sourceType;
+            this.resourcePath = resourcePath;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return classLoader == other.classLoader && sourceType == other.sourceType
+                && Objects.equals(resourcePath, other.resourcePath) && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(classLoader), sourceType, resourcePath, key);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens resources located in jar files on the local file system (<code>jar:file:...!/...</code> URLs) via a
+ * {@link JarHandlePool}, bypassing {@link java.net.JarURLConnection} and its global cache of
+ * {@link java.util.jar.JarFile}s. The jars are either opened as {@link java.util.jar.JarFile} or memory-mapped via
+ * {@link MappedJar}.
+ * <p>All other URLs, as well as jars and entries {@link MappedJar} does not support, are opened via
+ * {@link URL#openStream()}.</p>
+ */
+final class JarEntryReader {
+
+    /**
+     * System property that allows for memory-mapping jars, e.g. <code>-DversionName.mappedJarReader=true</code>.
+     */
+    static final String PROPERTY_MAPPED_JAR_READER_ENABLED = "versionName.mappedJarReader";
+
+    private static final String JAR_PROTOCOL = "jar";
+    private static final String FILE_URL_PREFIX = "file:";
+    private static final String SEPARATOR = "!/";
+
+    private final JarHandlePool pool;
+    private volatile boolean mapped;
+
+    JarEntryReader(JarHandlePool pool, boolean mapped) {
+        this.pool = pool;
+        this.mapped = mapped;
+    }
+
+    /**
+     * @return a reader that memory-maps jars if {@link #PROPERTY_MAPPED_JAR_READER_ENABLED} is set to
+     * <code>true</code> and whose pool is configured via system properties as well
+     */
+    static JarEntryReader fromSystemProperties() {
+        return new JarEntryReader(JarHandlePool.fromSystemProperties(),
+            Boolean.getBoolean(PROPERTY_MAPPED_JAR_READER_ENABLED));
+    }
+
+    JarHandlePool getPool() {
+        return pool;
+    }
+
+    boolean isMapped() {
+        return mapped;
+    }
+
+    void setMapped(boolean mapped) {
+        this.mapped = mapped;
+    }
+
+    /**
+     * @return a stream of the resource located at <code>url</code>
+     * @throws IOException if the resource cannot be read
+     */
+    InputStream openStream(URL url) throws IOException {
+        if (JAR_PROTOCOL.equals(url.getProtocol())) {
+            InputStream stream = openPooled(url.getFile());
+            if (stream != null) {
+                return stream;
+            }
+        }
+        return url.openStream();
+    }
+
+    /**
+     * Closes the pooled jars on the classpath of <code>classLoader</code>, if it is a {@link URLClassLoader}, so they
+     * are not kept open after the class loader is discarded. The jars of its parents are kept.
+     */
+    void flush(ClassLoader classLoader) {
+        if (!(classLoader instanceof URLClassLoader)) {
+            return;
+        }
+        List<File> jars = new ArrayList<>();
+        for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+            File jar = url.toString().startsWith(FILE_URL_PREFIX) ? toFile(url.toString()) : null;
+            if (jar != null) {
+                jars.add(jar);
+            }
+        }
+        pool.flush(jars);
+    }
+
+    /**
+     * @param spec the part of the jar URL after <code>jar:</code>, e.g. <code>file:/app.jar!/META-INF/MANIFEST.MF</code>
+     * @return a stream of the entry or <code>null</code> if it cannot be read via the pool
+     */
+    private InputStream openPooled(String spec) throws IOException {
+        int separator = spec.indexOf(SEPARATOR);
+        if (!spec.startsWith(FILE_URL_PREFIX) || separator < 0) {
+            return null;
+        }
+        String entryName = spec.substring(separator + SEPARATOR.length());
+        // Nested jars and encoded entry names are left to the JDK
+        if (entryName.isEmpty() || entryName.contains(SEPARATOR) || entryName.indexOf('%') >= 0) {
+            return null;
+        }
+        File jar = toFile(spec.substring(0, separator));
+        if (jar == null || !jar.isFile()) {
+            return null;
+        }
+        return pool.openStream(jar, entryName, mapped);
+    }
+
+    private static File toFile(String fileUrl) {
+        try {
+            URI uri = new URI(fileUrl);
+            if (uri.getAuthority() != null) {
+                // UNC paths
+                return null;
+            }
+            return new File(uri);
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
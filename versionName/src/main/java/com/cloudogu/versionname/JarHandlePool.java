@@ -0,0 +1,443 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * A bounded pool of open jars, so reading resources from the same jars again does not reopen them, without relying on
+ * the global cache of {@link java.net.JarURLConnection} that keeps jars open for the lifetime of the JVM.
+ * <p>The least recently used jar is closed when the pool exceeds its maximum size. Jars that have not been used for
+ * longer than the idle timeout are closed by a daemon thread that only runs as long as the pool is not empty. Jars are
+ * never closed while a stream of one of their entries is still open; in this case they are closed when the last
+ * stream is closed.</p>
+ * <p>Each jar is pooled along with its length and modification time when it was opened. A jar that has been replaced
+ * since, e.g. when an application is redeployed, is reopened.</p>
+ * <p>A maximum size of 0 disables pooling: each jar is closed as soon as its stream is closed.</p>
+ */
+final class JarHandlePool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JarHandlePool.class);
+
+    /**
+     * System property for the maximum number of open jars, e.g. <code>-DversionName.jarPool.maxSize=1000</code>.
+     */
+    static final String PROPERTY_MAX_SIZE = "versionName.jarPool.maxSize";
+
+    /**
+     * System property for the time in milliseconds after which unused jars are closed, e.g.
+     * <code>-DversionName.jarPool.idleTimeoutMillis=10000</code>.
+     */
+    static final String PROPERTY_IDLE_TIMEOUT_MILLIS = "versionName.jarPool.idleTimeoutMillis";
+
+    static final int DEFAULT_MAX_SIZE = 1024;
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60000;
+
+    static final String LOG_EXCEPTION_ON_CLOSE = "Exception while closing jar {}";
+
+    private final LongSupplier nanoTime;
+
+    // Access order, so the eldest entry is the least recently used one. Guarded by this.
+    private final LinkedHashMap<File, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxSize;
+    private long idleTimeoutNanos;
+    private boolean sweepScheduled;
+
+    private final ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "versionName-jar-pool");
+        thread.setDaemon(true);
+        // Don't keep the class loader of the thread that happened to open the first jar from being collected
+        thread.setContextClassLoader(null);
+        return thread;
+    });
+
+    JarHandlePool(int maxSize, long idleTimeout, TimeUnit unit, LongSupplier nanoTime) {
+        this.maxSize = maxSize;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.nanoTime = nanoTime;
+        sweeper.setKeepAliveTime(1, TimeUnit.SECONDS);
+        sweeper.allowCoreThreadTimeOut(true);
+        sweeper.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return a pool configured via {@link #PROPERTY_MAX_SIZE} and {@link #PROPERTY_IDLE_TIMEOUT_MILLIS}
+     */
+    static JarHandlePool fromSystemProperties() {
+        return new JarHandlePool(Integer.getInteger(PROPERTY_MAX_SIZE, DEFAULT_MAX_SIZE),
+            Long.getLong(PROPERTY_IDLE_TIMEOUT_MILLIS, DEFAULT_IDLE_TIMEOUT_MILLIS), TimeUnit.MILLISECONDS,
+            System::nanoTime);
+    }
+
+    /**
+     * Sets the maximum number of open jars, closing the least recently used ones if there are more.
+     *
+     * @param maxSize 0 disables pooling
+     */
+    void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        List<Handle> toClose;
+        synchronized (this) {
+            this.maxSize = maxSize;
+            toClose = evictExcess();
+        }
+        close(toClose);
+    }
+
+    synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    void setIdleTimeout(long idleTimeout, TimeUnit unit) {
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("idleTimeout must be positive: " + idleTimeout);
+        }
+        synchronized (this) {
+            idleTimeoutNanos = unit.toNanos(idleTimeout);
+        }
+        sweep();
+    }
+
+    synchronized long getIdleTimeout(TimeUnit unit) {
+        return unit.convert(idleTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of jars in the pool
+     */
+    synchronized int size() {
+        return handles.size();
+    }
+
+    /**
+     * Opens an entry of a jar, reusing the jar if it is in the pool. The jar is returned to the pool when the stream
+     * is closed.
+     *
+     * @param mapped <code>true</code> to read the jar via {@link MappedJar}, <code>false</code> to use
+     *               {@link JarFile}
+     * @return a stream of the entry or <code>null</code> if {@link MappedJar} does not support the jar or entry
+     * @throws FileNotFoundException if the jar does not contain the entry
+     */
+    InputStream openStream(File file, String entryName, boolean mapped) throws IOException {
+        Handle handle = acquire(file, mapped);
+        if (handle == null) {
+            return null;
+        }
+        InputStream stream = null;
+        try {
+            stream = handle.open(entryName);
+            if (stream == null && !mapped) {
+                throw new FileNotFoundException("JAR entry " + entryName + " not found in " + file);
+            }
+            return stream == null ? null : new ReleasingInputStream(stream, handle);
+        } finally {
+            if (stream == null) {
+                release(handle);
+            }
+        }
+    }
+
+    /**
+     * Closes all jars. Jars that are still being read are closed as soon as their streams are closed.
+     */
+    void flush() {
+        List<Handle> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (Handle handle : handles.values()) {
+                retire(handle, toClose);
+            }
+            handles.clear();
+        }
+        close(toClose);
+    }
+
+    /**
+     * Closes the given jars, e.g. those of a class loader that is discarded. Jars that are still being read are closed
+     * as soon as their streams are closed.
+     */
+    void flush(Collection<File> files) {
+        List<Handle> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (File file : files) {
+                Handle handle = handles.remove(file);
+                if (handle != null) {
+                    retire(handle, toClose);
+                }
+            }
+        }
+        close(toClose);
+    }
+
+    /**
+     * Closes all jars that have been idle for longer than the idle timeout.
+     */
+    void sweep() {
+        List<Handle> toClose = new ArrayList<>();
+        synchronized (this) {
+            long now = nanoTime.getAsLong();
+            for (Iterator<Handle> iterator = handles.values().iterator(); iterator.hasNext(); ) {
+                Handle handle = iterator.next();
+                if (handle.inUse == 0 && now - handle.lastUsed >= idleTimeoutNanos) {
+                    iterator.remove();
+                    retire(handle, toClose);
+                }
+            }
+            sweepScheduled = false;
+            scheduleSweepIfNecessary();
+        }
+        close(toClose);
+    }
+
+    private Handle acquire(File file, boolean mapped) throws IOException {
+        // Read before opening, so a jar replaced in between is reopened next time
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Handle pooled = handles.get(file);
+            if (pooled != null && pooled.matches(mapped, length, lastModified)) {
+                pooled.inUse++;
+                return pooled;
+            }
+        }
+
+        // Open outside of the lock, so jars can be opened in parallel
+        Handle opened = mapped ? MappedJarHandle.open(file, length, lastModified)
+            : new JarFileHandle(file, length, lastModified);
+        if (opened == null) {
+            return null;
+        }
+        List<Handle> toClose = new ArrayList<>();
+        Handle acquired;
+        synchronized (this) {
+            Handle pooled = handles.get(file);
+            if (pooled != null && pooled.matches(mapped, length, lastModified)) {
+                // Another thread was faster
+                toClose.add(opened);
+                acquired = pooled;
+            } else {
+                if (pooled != null) {
+                    handles.remove(file);
+                    retire(pooled, toClose);
+                }
+                acquired = opened;
+                if (maxSize > 0) {
+                    handles.put(file, opened);
+                    toClose.addAll(evictExcess());
+                    scheduleSweepIfNecessary();
+                } else {
+                    opened.pooled = false;
+                }
+            }
+            acquired.inUse++;
+        }
+        close(toClose);
+        return acquired;
+    }
+
+    private void release(Handle handle) {
+        boolean close;
+        synchronized (this) {
+            handle.inUse--;
+            handle.lastUsed = nanoTime.getAsLong();
+            close = !handle.pooled && handle.inUse == 0;
+        }
+        if (close) {
+            close(handle);
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private List<Handle> evictExcess() {
+        List<Handle> toClose = new ArrayList<>();
+        Iterator<Map.Entry<File, Handle>> eldest = handles.entrySet().iterator();
+        while (handles.size() > maxSize) {
+            Handle handle = eldest.next().getValue();
+            eldest.remove();
+            retire(handle, toClose);
+        }
+        return toClose;
+    }
+
+    /**
+     * Must be called while holding the lock, after removing the handle from the pool.
+     */
+    private static void retire(Handle handle, List<Handle> toClose) {
+        handle.pooled = false;
+        if (handle.inUse == 0) {
+            toClose.add(handle);
+        }
+    }
+
+    /**
+     * Must be called while holding the lock.
+     */
+    private void scheduleSweepIfNecessary() {
+        if (!sweepScheduled && !handles.isEmpty()) {
+            sweepScheduled = true;
+            sweeper.schedule(this::sweep, idleTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static void close(List<Handle> handles) {
+        for (Handle handle : handles) {
+            close(handle);
+        }
+    }
+
+    private static void close(Handle handle) {
+        try {
+            handle.close();
+        } catch (IOException e) {
+            LOG.warn(LOG_EXCEPTION_ON_CLOSE, handle.file, e);
+        }
+    }
+
+    /**
+     * An open jar. The mutable fields are guarded by the pool.
+     */
+    private abstract static class Handle {
+        final File file;
+        final boolean mapped;
+        final long length;
+        final long lastModified;
+        int inUse;
+        long lastUsed;
+        boolean pooled = true;
+
+        Handle(File file, boolean mapped, long length, long lastModified) {
+            this.file = file;
+            this.mapped = mapped;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return <code>true</code> if the handle is of the requested kind and the jar has not changed since it was
+         * opened
+         */
+        boolean matches(boolean mapped, long length, long lastModified) {
+            return this.mapped == mapped && this.length == length && this.lastModified == lastModified;
+        }
+
+        /**
+         * @return a stream of the entry or <code>null</code> if there is no such entry or it is not supported
+         */
+        abstract InputStream open(String entryName) throws IOException;
+
+        abstract void close() throws IOException;
+    }
+
+    private static final class JarFileHandle extends Handle {
+        private final JarFile jarFile;
+
+        JarFileHandle(File file, long length, long lastModified) throws IOException {
+            super(file, false, length, lastModified);
+            // Only resources are read, so there is no need for verifying signatures
+            jarFile = new JarFile(file, false);
+        }
+
+        @Override
+        InputStream open(String entryName) throws IOException {
+            ZipEntry entry = jarFile.getEntry(entryName);
+            return entry == null ? null : jarFile.getInputStream(entry);
+        }
+
+        @Override
+        void close() throws IOException {
+            jarFile.close();
+        }
+    }
+
+    private static final class MappedJarHandle extends Handle {
+        private final MappedJar mappedJar;
+
+        private MappedJarHandle(File file, long length, long lastModified, MappedJar mappedJar) {
+            super(file, true, length, lastModified);
+            this.mappedJar = mappedJar;
+        }
+
+        static MappedJarHandle open(File file, long length, long lastModified) throws IOException {
+            MappedJar mappedJar = MappedJar.open(file);
+            return mappedJar == null ? null : new MappedJarHandle(file, length, lastModified, mappedJar);
+        }
+
+        @Override
+        InputStream open(String entryName) throws IOException {
+            return mappedJar.getEntryStream(entryName);
+        }
+
+        @Override
+        void close() {
+            // The file is not kept open, the mapping is released on garbage collection
+        }
+    }
+
+    /**
+     * Returns the jar to the pool when closed.
+     */
+    private final class ReleasingInputStream extends FilterInputStream {
+        private final Handle handle;
+        private boolean closed;
+
+        ReleasingInputStream(InputStream in, Handle handle) {
+            super(in);
+            this.handle = handle;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                release(handle);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Emits JDK Flight Recorder events for lookups of version names.
+ * <p>Only loaded if <code>jdk.jfr</code> is available (JDK 8u262 and later), see
+ * {@link LookupListeners#createJfrListener()}. Creating an instance registers the event classes with JFR, so by
+ * default it is only created once {@link #isRecorderInitialized()}. Events are only created if they are enabled in a
+ * running recording, which {@link #isEnabled()} checks at the cost of reading a field.</p>
+ * <p>Events are committed when the step they describe has finished, so the time the step took is contained in the
+ * <code>elapsed</code> field of each event rather than in its duration.</p>
+ */
+final class JfrLookupListener implements VersionLookupListener {
+
+    private static final String CATEGORY = "versionName";
+
+    // Events are never committed, just asked whether they are enabled
+    private final LookupEvent lookupProbe = new LookupEvent();
+    private final StrategyEvent strategyProbe = new StrategyEvent();
+    private final ResourceEvent resourceProbe = new ResourceEvent();
+
+    /**
+     * @return <code>true</code> if JFR has been initialized, e.g. by starting a recording. Doesn't register the events.
+     */
+    static boolean isRecorderInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * @return <code>true</code> if any of the events is enabled in a running recording
+     */
+    boolean isEnabled() {
+        return lookupProbe.isEnabled() || strategyProbe.isEnabled() || resourceProbe.isEnabled();
+    }
+
+    @Override
+    public void onStrategyTried(VersionLookup lookup, LoadingStrategy strategy, boolean hit, boolean memoized,
+                                long durationNanos) {
+        StrategyEvent event = new StrategyEvent();
+        if (event.isEnabled()) {
+            event.resourcePath = lookup.getResourcePath();
+            event.strategy = strategy.getClass().getName();
+            event.hit = hit;
+            event.memoized = memoized;
+            event.elapsed = durationNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onResourceRead(VersionLookup lookup, URL url, long bytesRead, long durationNanos, boolean found) {
+        ResourceEvent event = new ResourceEvent();
+        if (event.isEnabled()) {
+            setResource(event, lookup, url, durationNanos);
+            event.bytesRead = bytesRead;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onResourceFailed(VersionLookup lookup, URL url, IOException exception, long durationNanos) {
+        ResourceEvent event = new ResourceEvent();
+        if (event.isEnabled()) {
+            setResource(event, lookup, url, durationNanos);
+            event.error = String.valueOf(exception);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onLookupFinished(VersionLookup lookup, Outcome outcome, long durationNanos) {
+        LookupEvent event = new LookupEvent();
+        if (event.isEnabled()) {
+            event.sourceType = lookup.getSourceType().name();
+            event.resourcePath = lookup.getResourcePath();
+            event.key = lookup.getKey();
+            event.outcome = outcome.name();
+            event.elapsed = durationNanos;
+            event.commit();
+        }
+    }
+
+    private static void setResource(ResourceEvent event, VersionLookup lookup, URL url, long durationNanos) {
+        event.resourcePath = lookup.getResourcePath();
+        event.key = lookup.getKey();
+        event.url = String.valueOf(url);
+        event.elapsed = durationNanos;
+    }
+
+    @Name("com.cloudogu.versionname.Lookup")
+    @Label("Version Name Lookup")
+    @Description("A call to VersionNames that looks up a version name")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class LookupEvent extends Event {
+        @Label("Source Type")
+        String sourceType;
+
+        @Label("Resource Path")
+        String resourcePath;
+
+        @Label("Key")
+        String key;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Elapsed Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    /**
+     * Disabled by default, as all strategies may be tried for each lookup.
+     */
+    @Name("com.cloudogu.versionname.LoadingStrategy")
+    @Label("Version Name Loading Strategy")
+    @Description("A loading strategy asked for the resources containing version names")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Enabled(false)
+    static final class StrategyEvent extends Event {
+        @Label("Resource Path")
+        String resourcePath;
+
+        @Label("Strategy")
+        String strategy;
+
+        @Label("Hit")
+        boolean hit;
+
+        @Label("Memoized")
+        boolean memoized;
+
+        @Label("Elapsed Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    /**
+     * Disabled by default, as a lookup may read thousands of resources.
+     */
+    @Name("com.cloudogu.versionname.Resource")
+    @Label("Version Name Resource")
+    @Description("A resource read while looking up a version name")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Enabled(false)
+    static final class ResourceEvent extends Event {
+        @Label("Resource Path")
+        String resourcePath;
+
+        @Label("Key")
+        String key;
+
+        @Label("URL")
+        String url;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytesRead;
+
+        @Label("Found")
+        boolean found;
+
+        @Label("Error")
+        String error;
+
+        @Label("Elapsed Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Assembles the {@link LoadingStrategy loading strategies} to use: the built-in ones plus those discovered via
+ * {@link ServiceLoader}, without the excluded ones, ordered by priority.
+ */
+final class LoadingStrategies {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadingStrategies.class);
+
+    /**
+     * System property containing a comma-separated list of strategies not to use, by simple or fully qualified class
+     * name, e.g. <code>-DversionName.excludedLoadingStrategies=GetResourcesLoadingStrategy</code>.
+     */
+    static final String PROPERTY_EXCLUDED_STRATEGIES = "versionName.excludedLoadingStrategies";
+
+    static final String LOG_EXCEPTION_DISCOVERING_STRATEGY = "Exception while discovering loading strategy, skipping it";
+
+    private static final Comparator<LoadingStrategy> BY_PRIORITY =
+        (first, second) -> Integer.compare(first.getPriority(), second.getPriority());
+
+    private LoadingStrategies() {
+    }
+
+    /**
+     * @return the strategies to use, based on the system properties and the providers visible to
+     * <code>classLoader</code>
+     */
+    static List<LoadingStrategy> discover(ClassLoader classLoader) {
+        List<LoadingStrategy> strategies = new ArrayList<>(Arrays.<LoadingStrategy>asList(
+            new VersionNames.GetResourcesLoadingStrategy(),
+            new VersionNames.GetSingleResourceLoadingStrategy(),
+            new VersionNames.RelativePathLoadingStrategy()
+        ));
+        strategies.addAll(ServiceProviders.load(LoadingStrategy.class, classLoader, LOG,
+            LOG_EXCEPTION_DISCOVERING_STRATEGY));
+        return arrange(strategies, parseExcluded(System.getProperty(PROPERTY_EXCLUDED_STRATEGIES)));
+    }
+
+    /**
+     * @return <code>strategies</code> without the <code>excluded</code> ones, in ascending order of priority
+     */
+    static List<LoadingStrategy> arrange(List<? extends LoadingStrategy> strategies, Set<String> excluded) {
+        List<LoadingStrategy> arranged = new ArrayList<>(strategies.size());
+        for (LoadingStrategy strategy : strategies) {
+            if (!excluded.contains(strategy.getClass().getName())
+                && !excluded.contains(strategy.getClass().getSimpleName())) {
+                arranged.add(strategy);
+            }
+        }
+        // Stable, so built-in strategies come first in case of equal priorities
+        arranged.sort(BY_PRIORITY);
+        return Collections.unmodifiableList(arranged);
+    }
+
+    static Set<String> parseExcluded(String excluded) {
+        Set<String> names = new HashSet<>();
+        if (excluded != null) {
+            for (String name : excluded.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+}
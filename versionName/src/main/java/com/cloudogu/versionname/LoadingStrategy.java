@@ -0,0 +1,69 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+
+/**
+ * Finds resources such as the manifest or a properties file on the classpath.
+ * <p>Strategies are tried in ascending order of their {@link #getPriority() priority}, until one of them yields
+ * resources. Besides the built-in strategies, further ones are discovered once via {@link java.util.ServiceLoader}.
+ * To provide a strategy, implement this interface with a public no-arg constructor and list the implementation in
+ * <code>META-INF/services/com.cloudogu.versionname.LoadingStrategy</code>.</p>
+ *
+ * @see VersionNames#setLoadingStrategies(java.util.List)
+ */
+public interface LoadingStrategy {
+
+    /**
+     * Priority of {@link VersionNames.GetResourcesLoadingStrategy}.
+     */
+    int PRIORITY_GET_RESOURCES = 100;
+
+    /**
+     * Priority of {@link VersionNames.GetSingleResourceLoadingStrategy}.
+     */
+    int PRIORITY_GET_SINGLE_RESOURCE = 200;
+
+    /**
+     * Priority of {@link VersionNames.RelativePathLoadingStrategy}.
+     */
+    int PRIORITY_RELATIVE_PATH = 300;
+
+    /**
+     * @param classLoader  the context class loader of the current thread
+     * @param resourcePath the path of the resource, as passed to {@link VersionNames}
+     * @return the resources found, in the order they are to be read. Empty if none found, never <code>null</code>.
+     * @throws IOException if an I/O error occurs. The next strategy is tried then.
+     */
+    Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) throws IOException;
+
+    /**
+     * @return the priority of this strategy. Lower values are tried first. Strategies with equal priority are tried
+     * in the order built-in first, then in the order of discovery.
+     */
+    int getPriority();
+}
@@ -0,0 +1,129 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which loading strategy yielded resources per class loader and resource path, so later lookups can try it
+ * right away. Also counts attempts and hits per strategy.
+ * <p>The class loaders are held weakly, see {@link WeakClassLoaderMap}.</p>
+ *
+ * @param <S> the type of the loading strategies
+ */
+final class LoadingStrategyMemo<S> {
+
+    private final WeakClassLoaderMap<ConcurrentMap<String, S>> memos = new WeakClassLoaderMap<>();
+
+    private final ConcurrentMap<S, Counters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @return the strategy that yielded resources for <code>resourcePath</code> last time, or <code>null</code>
+     */
+    S get(ClassLoader classLoader, String resourcePath) {
+        if (classLoader == null) {
+            return null;
+        }
+        ConcurrentMap<String, S> memo = memos.get(classLoader);
+        return memo == null ? null : memo.get(resourcePath);
+    }
+
+    void remember(ClassLoader classLoader, String resourcePath, S strategy) {
+        if (classLoader == null) {
+            return;
+        }
+        ConcurrentMap<String, S> memo = memos.computeIfAbsent(classLoader, cl -> new ConcurrentHashMap<>());
+        memo.put(resourcePath, strategy);
+    }
+
+    /**
+     * Forgets the strategy remembered for <code>resourcePath</code>, e.g. because it stopped yielding resources.
+     */
+    void forget(ClassLoader classLoader, String resourcePath) {
+        if (classLoader == null) {
+            return;
+        }
+        ConcurrentMap<String, S> memo = memos.get(classLoader);
+        if (memo != null) {
+            memo.remove(resourcePath);
+        }
+    }
+
+    void invalidate() {
+        memos.clear();
+    }
+
+    void invalidate(ClassLoader classLoader) {
+        memos.remove(classLoader);
+    }
+
+    /**
+     * @param strategy the strategy that has been tried
+     * @param hit      <code>true</code> if it yielded resources
+     * @param memoized <code>true</code> if it was tried because it had been remembered
+     */
+    void recordAttempt(S strategy, boolean hit, boolean memoized) {
+        Counters strategyCounters = counters.computeIfAbsent(strategy, s -> new Counters());
+        strategyCounters.attempts.increment();
+        if (hit) {
+            strategyCounters.hits.increment();
+            if (memoized) {
+                strategyCounters.memoizedHits.increment();
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the counters of <code>strategies</code>, in the same order
+     */
+    List<LoadingStrategyStatistics> statistics(List<? extends S> strategies) {
+        List<LoadingStrategyStatistics> statistics = new ArrayList<>(strategies.size());
+        for (S strategy : strategies) {
+            Counters strategyCounters = counters.get(strategy);
+            String name = strategy.getClass().getSimpleName();
+            if (strategyCounters == null) {
+                statistics.add(new LoadingStrategyStatistics(name, 0, 0, 0));
+            } else {
+                statistics.add(new LoadingStrategyStatistics(name, strategyCounters.attempts.sum(),
+                    strategyCounters.hits.sum(), strategyCounters.memoizedHits.sum()));
+            }
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    void resetStatistics() {
+        counters.clear();
+    }
+
+    private static final class Counters {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder memoizedHits = new LongAdder();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+/**
+ * Snapshot of how often a loading strategy has been tried and how often it yielded resources.
+ *
+ * @see VersionNames#getLoadingStrategyStatistics()
+ */
+public final class LoadingStrategyStatistics {
+
+    private final String strategy;
+    private final long attempts;
+    private final long hits;
+    private final long memoizedHits;
+
+    LoadingStrategyStatistics(String strategy, long attempts, long hits, long memoizedHits) {
+        this.strategy = strategy;
+        this.attempts = attempts;
+        this.hits = hits;
+        this.memoizedHits = memoizedHits;
+    }
+
+    /**
+     * @return the name of the loading strategy
+     */
+    public String getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return how often the strategy has been tried
+     */
+    public long getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return how often the strategy yielded resources
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how often the strategy yielded resources when it was tried right away, because it had been successful
+     * for the same class loader and resource path before. Included in {@link #getHits()}.
+     */
+    public long getMemoizedHits() {
+        return memoizedHits;
+    }
+
+    /**
+     * @return {@link #getHits()} divided by {@link #getAttempts()}, or 0 if the strategy has not been tried yet
+     */
+    public double getHitRate() {
+        return attempts == 0 ? 0 : (double) hits / attempts;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + "{attempts=" + attempts + ", hits=" + hits + ", memoizedHits=" + memoizedHits + '}';
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Passes events on to all registered {@link VersionLookupListener}s, isolating the lookup from exceptions thrown by
+ * them, and to {@link JfrLookupListener} if JDK Flight Recorder is available and records any of its events.
+ * <p>Creating the {@link JfrLookupListener} registers its event classes with JFR, which takes hundreds of
+ * milliseconds. So by default, it is only created once JFR has been initialized, e.g. by a recording, see
+ * {@link #PROPERTY_JFR_ENABLED}.</p>
+ */
+final class LookupListeners implements VersionLookupListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LookupListeners.class);
+
+    /**
+     * System property that allows for disabling JDK Flight Recorder events, e.g. <code>-DversionName.jfr=false</code>.
+     * With <code>true</code>, the events are registered on startup rather than when JFR is initialized.
+     */
+    static final String PROPERTY_JFR_ENABLED = "versionName.jfr";
+
+    static final String LOG_EXCEPTION_IN_LISTENER = "Exception in version lookup listener {}";
+    static final String LOG_JFR_UNAVAILABLE = "JDK Flight Recorder not available, not emitting events";
+
+    private final List<VersionLookupListener> listeners = new CopyOnWriteArrayList<>();
+
+    // null if JFR is not available, disabled or not initialized yet
+    private volatile JfrLookupListener jfrListener;
+
+    // true until the JFR listener is created, once JFR has been initialized
+    private volatile boolean jfrPending;
+
+    LookupListeners(JfrLookupListener jfrListener) {
+        this(jfrListener, false);
+    }
+
+    private LookupListeners(JfrLookupListener jfrListener, boolean jfrPending) {
+        this.jfrListener = jfrListener;
+        this.jfrPending = jfrPending;
+        if (jfrListener != null) {
+            listeners.add(jfrListener);
+        }
+    }
+
+    /**
+     * @return listeners that emit JDK Flight Recorder events if available, unless disabled via
+     * {@link #PROPERTY_JFR_ENABLED}. Unless enabled explicitly, the events are registered once JFR is initialized.
+     */
+    static LookupListeners fromSystemProperties() {
+        String jfr = System.getProperty(PROPERTY_JFR_ENABLED);
+        if ("false".equalsIgnoreCase(jfr)) {
+            return new LookupListeners(null);
+        }
+        if ("true".equalsIgnoreCase(jfr)) {
+            return new LookupListeners(createJfrListener());
+        }
+        return new LookupListeners(null, isJfrAvailable());
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            // Doesn't initialize JFR
+            Class.forName("jdk.jfr.FlightRecorder", false, LookupListeners.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.debug(LOG_JFR_UNAVAILABLE, e);
+            return false;
+        }
+    }
+
+    /**
+     * @return a listener that emits JFR events or <code>null</code> if the JVM does not provide the JFR API
+     */
+    static JfrLookupListener createJfrListener() {
+        try {
+            Class.forName("jdk.jfr.Event", false, LookupListeners.class.getClassLoader());
+            JfrLookupListener listener = new JfrLookupListener();
+            // Make sure the event classes can be loaded
+            listener.isEnabled();
+            return listener;
+        } catch (ClassNotFoundException | LinkageError e) {
+            LOG.debug(LOG_JFR_UNAVAILABLE, e);
+            return null;
+        }
+    }
+
+    void add(VersionLookupListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        listeners.add(listener);
+    }
+
+    void remove(VersionLookupListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return <code>true</code> if there are listeners, so events need to be created
+     */
+    boolean isActive() {
+        if (jfrPending && JfrLookupListener.isRecorderInitialized()) {
+            startJfr();
+        }
+        JfrLookupListener jfr = jfrListener;
+        int size = listeners.size();
+        if (jfr == null) {
+            return size > 0;
+        }
+        // JFR events are cheap to check for but expensive to create
+        return size > 1 || jfr.isEnabled();
+    }
+
+    private synchronized void startJfr() {
+        if (jfrPending) {
+            JfrLookupListener jfr = createJfrListener();
+            if (jfr != null) {
+                listeners.add(jfr);
+                jfrListener = jfr;
+            }
+            jfrPending = false;
+        }
+    }
+
+    @Override
+    public void onCacheLookup(VersionLookup lookup, boolean hit) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onCacheLookup(lookup, hit);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onIndexLookup(VersionLookup lookup, boolean hit) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onIndexLookup(lookup, hit);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onStrategyTried(VersionLookup lookup, LoadingStrategy strategy, boolean hit, boolean memoized,
+                                long durationNanos) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onStrategyTried(lookup, strategy, hit, memoized, durationNanos);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onResourcesEnumerated(VersionLookup lookup, int count) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onResourcesEnumerated(lookup, count);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onResourceRead(VersionLookup lookup, URL url, long bytesRead, long durationNanos, boolean found) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onResourceRead(lookup, url, bytesRead, durationNanos, found);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onResourceFailed(VersionLookup lookup, URL url, IOException exception, long durationNanos) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onResourceFailed(lookup, url, exception, durationNanos);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+
+    @Override
+    public void onLookupFinished(VersionLookup lookup, Outcome outcome, long durationNanos) {
+        for (VersionLookupListener listener : listeners) {
+            try {
+                listener.onLookupFinished(lookup, outcome, durationNanos);
+            } catch (RuntimeException e) {
+                LOG.warn(LOG_EXCEPTION_IN_LISTENER, listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads single attributes from the main section of a manifest without parsing the whole manifest.
+ * <p>In contrast to {@link java.util.jar.Manifest}, this stops reading as soon as the main section ends. Other
+ * attributes and entry sections are skipped byte by byte and never converted to strings.</p>
+ * <p>Follows the parsing rules of {@link java.util.jar.Manifest}: Attribute names are case-insensitive, the name is
+ * separated from the value by <code>": "</code>, values are UTF-8 and may be continued on following lines that start
+ * with a single space. If an attribute occurs more than once, which the JAR spec does not allow for, the last
+ * occurrence wins. Lines end with <code>LF</code>, <code>CR LF</code> or <code>CR</code>, as defined by the JAR spec and
+ * implemented by {@link java.util.jar.Manifest} since Java 9. On Java 8, {@link java.util.jar.Manifest} only ends lines
+ * with <code>LF</code> and keeps a lone <code>CR</code> as part of the value.</p>
+ */
+final class ManifestScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    // Bytes of the value of the attribute being read, null as long as no attribute has been found
+    private byte[] value;
+    private int valueLength;
+
+    private ManifestScanner(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @param in            the manifest. Not closed by this method.
+     * @param attributeName the name of the main attribute to return, case-insensitive
+     * @return the value of the attribute or <code>null</code> if the main section does not contain it
+     * @throws IOException if reading fails or the main section is malformed
+     */
+    static String findMainAttribute(InputStream in, String attributeName) throws IOException {
+        return findMainAttributes(in, attributeName)[0];
+    }
+
+    /**
+     * Reads several attributes in one pass over the main section.
+     *
+     * @param in             the manifest. Not closed by this method.
+     * @param attributeNames the names of the main attributes to return, case-insensitive. At most 64.
+     * @return the value of each attribute, at the same index as its name. <code>null</code> if the main section does
+     * not contain it.
+     * @throws IOException if reading fails or the main section is malformed
+     */
+    static String[] findMainAttributes(InputStream in, String... attributeNames) throws IOException {
+        if (attributeNames.length > Long.SIZE) {
+            throw new IllegalArgumentException("Too many attribute names: " + attributeNames.length);
+        }
+        byte[][] names = new byte[attributeNames.length][];
+        boolean anyName = false;
+        for (int i = 0; i < attributeNames.length; i++) {
+            // Attribute names are ASCII only, so there can't be a match for null
+            names[i] = toLowerCaseAscii(attributeNames[i]);
+            anyName |= names[i] != null;
+        }
+        if (!anyName) {
+            return new String[attributeNames.length];
+        }
+        return new ManifestScanner(in).findMainAttributes(names);
+    }
+
+    private String[] findMainAttributes(byte[][] names) throws IOException {
+        String[] values = new String[names.length];
+        // Bit i is set if names[i] is requested
+        long requested = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null) {
+                requested |= 1L << i;
+            }
+        }
+        // Index of the attribute whose value is being read, -1 if none
+        int current = -1;
+        boolean headerRead = false;
+
+        while (true) {
+            int first = peek();
+            if (first == EOF || first == '\r' || first == '\n') {
+                // End of main section
+                break;
+            }
+            if (first == ' ') {
+                if (!headerRead) {
+                    throw new IOException("misplaced continuation line");
+                }
+                read();
+                if (current >= 0) {
+                    appendRestOfLineToValue();
+                } else {
+                    skipRestOfLine();
+                }
+            } else {
+                if (current >= 0) {
+                    // The attribute has been read completely. Like in Manifest, a later occurrence replaces it.
+                    values[current] = valueToString();
+                    current = -1;
+                }
+                headerRead = true;
+                current = readName(names, requested);
+                if (current >= 0) {
+                    if (value == null) {
+                        value = new byte[64];
+                    }
+                    valueLength = 0;
+                    appendRestOfLineToValue();
+                } else {
+                    skipRestOfLine();
+                }
+            }
+        }
+
+        if (current >= 0) {
+            values[current] = valueToString();
+        }
+        return values;
+    }
+
+    private String valueToString() {
+        return new String(value, 0, valueLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a header name including its <code>": "</code> separator.
+     *
+     * @param candidates bit i is set if <code>expectedNames[i]</code> may match
+     * @return the index of the candidate that matches, ignoring case, or -1 if none
+     */
+    private int readName(byte[][] expectedNames, long candidates) throws IOException {
+        int index = 0;
+        long matches = candidates;
+        while (true) {
+            int b = read();
+            if (b == EOF || b == '\r' || b == '\n') {
+                throw new IOException("invalid header field");
+            }
+            if (b == ':') {
+                break;
+            }
+            if (matches != 0) {
+                int lowerCase = toLowerCaseAscii(b);
+                for (long remaining = matches; remaining != 0; remaining &= remaining - 1) {
+                    int i = Long.numberOfTrailingZeros(remaining);
+                    if (index >= expectedNames[i].length || lowerCase != expectedNames[i][index]) {
+                        matches &= ~(1L << i);
+                    }
+                }
+            }
+            index++;
+        }
+        if (read() != ' ') {
+            throw new IOException("invalid header field");
+        }
+        for (long remaining = matches; remaining != 0; remaining &= remaining - 1) {
+            int i = Long.numberOfTrailingZeros(remaining);
+            if (index == expectedNames[i].length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Appends the remainder of the current line to {@link #value} and consumes the line break.
+     */
+    private void appendRestOfLineToValue() throws IOException {
+        while (true) {
+            int b = read();
+            if (b == EOF || b == '\n') {
+                return;
+            }
+            if (b == '\r') {
+                skipLineFeed();
+                return;
+            }
+            if (valueLength == value.length) {
+                value = Arrays.copyOf(value, value.length * 2);
+            }
+            value[valueLength++] = (byte) b;
+        }
+    }
+
+    private void skipRestOfLine() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return;
+            }
+            // Scan the buffer directly, this is the hot loop for large manifests
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    position = i + 1;
+                    return;
+                }
+                if (b == '\r') {
+                    position = i + 1;
+                    skipLineFeed();
+                    return;
+                }
+            }
+            position = limit;
+        }
+    }
+
+    private void skipLineFeed() throws IOException {
+        if (peek() == '\n') {
+            position++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            // Like java.util.jar.Manifest, treat streams that return 0 bytes as exhausted
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private static int toLowerCaseAscii(int b) {
+        if (b >= 'A' && b <= 'Z') {
+            return b + ('a' - 'A');
+        }
+        return b;
+    }
+
+    private static byte[] toLowerCaseAscii(String s) {
+        byte[] result = new byte[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c > 127) {
+                return null;
+            }
+            result[i] = (byte) toLowerCaseAscii(c);
+        }
+        return result;
+    }
+}
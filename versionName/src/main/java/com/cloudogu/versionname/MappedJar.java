@@ -0,0 +1,339 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A jar (or any zip file) that is mapped into memory, so single entries can be read without opening a
+ * {@link java.util.jar.JarFile} or going through {@link java.net.JarURLConnection}.
+ * <p>Entries are looked up by walking the central directory, which is located via the end of central directory record.
+ * As jar tools write <code>META-INF/MANIFEST.MF</code> as one of the first entries, looking up the manifest usually
+ * ends after one or two entries. Deflated entries are inflated lazily using pooled {@link Inflater}s, so scanners
+ * that stop reading early don't inflate the whole entry.</p>
+ * <p>Only plain zip files are supported: no ZIP64, no encryption and no compression methods other than stored and
+ * deflated. {@link #open(File)} and {@link #getEntryStream(String)} return <code>null</code> for anything else, so
+ * callers can fall back to the JDK.</p>
+ * <p>The mapping is released when the instance is garbage collected. Instances are thread-safe.</p>
+ */
+final class MappedJar {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final long ZIP64_MAGIC_SIZE = 0xFFFFFFFFL;
+
+    // Bytes copied from the mapping into the inflater at once
+    private static final int INPUT_CHUNK_SIZE = 8192;
+
+    // Inflaters hold native memory, so they are reused rather than created per entry. Not a ThreadLocal, so web
+    // apps don't leak their class loader into the server's threads.
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<>();
+    private static final int MAX_POOLED_INFLATERS = Runtime.getRuntime().availableProcessors();
+    private static final AtomicInteger POOLED_INFLATERS = new AtomicInteger();
+
+    private final ByteBuffer mapping;
+    private final int centralDirectoryOffset;
+    private final int centralDirectoryEnd;
+    private final int entries;
+
+    private MappedJar(ByteBuffer mapping, int centralDirectoryOffset, int centralDirectoryEnd, int entries) {
+        this.mapping = mapping;
+        this.centralDirectoryOffset = centralDirectoryOffset;
+        this.centralDirectoryEnd = centralDirectoryEnd;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps <code>file</code> into memory and locates its central directory.
+     *
+     * @return the mapped jar or <code>null</code> if the file is not supported, e.g. ZIP64 or larger than 2 GB
+     * @throws IOException if the file cannot be read
+     */
+    static MappedJar open(File file) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < END_OF_CENTRAL_DIRECTORY_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // The mapping stays valid after closing the channel
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer buffer = mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+        int end = findEndOfCentralDirectory(buffer);
+        if (end < 0) {
+            return null;
+        }
+        int entries = unsignedShort(buffer, end + 10);
+        long centralDirectorySize = unsignedInt(buffer, end + 12);
+        long centralDirectoryOffset = unsignedInt(buffer, end + 16);
+        if (entries == ZIP64_MAGIC_COUNT || centralDirectorySize == ZIP64_MAGIC_SIZE
+            || centralDirectoryOffset == ZIP64_MAGIC_SIZE || centralDirectoryOffset + centralDirectorySize > end) {
+            return null;
+        }
+        return new MappedJar(buffer, (int) centralDirectoryOffset, (int) (centralDirectoryOffset + centralDirectorySize),
+            entries);
+    }
+
+    /**
+     * @param name the name of the entry within the jar, e.g. <code>META-INF/MANIFEST.MF</code>
+     * @return a stream of the uncompressed contents of the entry, or <code>null</code> if there is no such entry or it
+     * is not supported
+     * @throws ZipException if the jar is corrupt
+     */
+    InputStream getEntryStream(String name) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int header = centralDirectoryOffset;
+        for (int i = 0; i < entries; i++) {
+            if (header + CENTRAL_DIRECTORY_HEADER_SIZE > centralDirectoryEnd
+                || mapping.getInt(header) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                throw new ZipException("invalid central directory header");
+            }
+            int nameLength = unsignedShort(mapping, header + 28);
+            if (header + CENTRAL_DIRECTORY_HEADER_SIZE + nameLength > centralDirectoryEnd) {
+                throw new ZipException("invalid central directory header");
+            }
+            if (nameLength == nameBytes.length && nameEquals(header + CENTRAL_DIRECTORY_HEADER_SIZE, nameBytes)) {
+                return openEntry(header);
+            }
+            header += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength
+                + unsignedShort(mapping, header + 30) + unsignedShort(mapping, header + 32);
+        }
+        return null;
+    }
+
+    private InputStream openEntry(int header) throws IOException {
+        int flags = unsignedShort(mapping, header + 8);
+        int method = unsignedShort(mapping, header + 10);
+        long compressedSize = unsignedInt(mapping, header + 20);
+        long localHeaderOffset = unsignedInt(mapping, header + 42);
+        if ((flags & FLAG_ENCRYPTED) != 0 || (method != METHOD_STORED && method != METHOD_DEFLATED)
+            || compressedSize == ZIP64_MAGIC_SIZE || localHeaderOffset == ZIP64_MAGIC_SIZE) {
+            return null;
+        }
+
+        // Name and extra field lengths of the local header may differ from the ones in the central directory
+        int local = (int) localHeaderOffset;
+        if (local + LOCAL_FILE_HEADER_SIZE > centralDirectoryOffset
+            || mapping.getInt(local) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new ZipException("invalid local file header");
+        }
+        long dataOffset = (long) local + LOCAL_FILE_HEADER_SIZE
+            + unsignedShort(mapping, local + 26) + unsignedShort(mapping, local + 28);
+        if (dataOffset + compressedSize > centralDirectoryOffset) {
+            throw new ZipException("invalid entry size");
+        }
+
+        ByteBuffer data = mapping.duplicate();
+        data.limit((int) (dataOffset + compressedSize)).position((int) dataOffset);
+        ByteBuffer slice = data.slice();
+        if (method == METHOD_STORED) {
+            return new StoredEntryInputStream(slice);
+        }
+        return new DeflatedEntryInputStream(slice);
+    }
+
+    private boolean nameEquals(int offset, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (mapping.get(offset + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset of the end of central directory record or -1 if there is none. It is searched backwards,
+     * as it is followed by a comment of variable length.
+     */
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_LENGTH);
+        for (int offset = last; offset >= first; offset--) {
+            if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                && unsignedShort(buffer, offset + 20) == last - offset) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    private static Inflater borrowInflater() {
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            return new Inflater(true);
+        }
+        POOLED_INFLATERS.decrementAndGet();
+        return inflater;
+    }
+
+    private static void returnInflater(Inflater inflater) {
+        if (POOLED_INFLATERS.incrementAndGet() <= MAX_POOLED_INFLATERS) {
+            inflater.reset();
+            INFLATERS.offer(inflater);
+        } else {
+            POOLED_INFLATERS.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    private static final class StoredEntryInputStream extends InputStream {
+
+        private final ByteBuffer data;
+
+        StoredEntryInputStream(ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return data.hasRemaining() ? data.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(len, data.remaining());
+            data.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return data.remaining();
+        }
+    }
+
+    private static final class DeflatedEntryInputStream extends InputStream {
+
+        private final ByteBuffer data;
+        private final byte[] input;
+        private Inflater inflater = borrowInflater();
+        private boolean dummyByteSupplied;
+
+        DeflatedEntryInputStream(ByteBuffer data) {
+            this.data = data;
+            // Entries such as manifests are usually much smaller than a chunk
+            this.input = new byte[Math.max(1, Math.min(INPUT_CHUNK_SIZE, data.remaining()))];
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (inflater == null) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int read = inflater.inflate(b, off, len);
+                    if (read > 0) {
+                        return read;
+                    }
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("invalid deflated data: needs dictionary");
+                    }
+                    supplyInput();
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        private void supplyInput() throws EOFException {
+            if (data.hasRemaining()) {
+                int length = Math.min(input.length, data.remaining());
+                data.get(input, 0, length);
+                inflater.setInput(input, 0, length);
+            } else if (!dummyByteSupplied) {
+                // Inflating without zlib header may need an extra byte to detect the end, see Inflater(boolean)
+                dummyByteSupplied = true;
+                input[0] = 0;
+                inflater.setInput(input, 0, 1);
+            } else {
+                throw new EOFException("Unexpected end of deflated entry");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                returnInflater(inflater);
+                inflater = null;
+            }
+        }
+    }
+}
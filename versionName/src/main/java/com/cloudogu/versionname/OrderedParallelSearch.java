@@ -0,0 +1,124 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Evaluates candidates concurrently but returns the same result as evaluating them one after another in order and
+ * stopping at the first non-<code>null</code> result.
+ * <p>As soon as a candidate yields a result, candidates that come later in order and have not been started yet are
+ * skipped. Once the result is determined, all outstanding work is cancelled.</p>
+ */
+final class OrderedParallelSearch {
+
+    private OrderedParallelSearch() {
+    }
+
+    /**
+     * @param candidates the candidates in the order they would be evaluated sequentially
+     * @param function   evaluates a single candidate, returning <code>null</code> if it does not yield a result
+     * @param executor   executes the evaluations
+     * @return the result of the first candidate in order that yields a non-<code>null</code> result, or
+     * <code>null</code> if none does
+     * @throws RuntimeException                                  the exception thrown by <code>function</code> for a
+     *                                                           candidate that would have been evaluated sequentially
+     * @throws java.util.concurrent.RejectedExecutionException if <code>executor</code> does not accept the evaluations
+     * @throws InterruptedException                              if interrupted while waiting for the evaluations
+     */
+    static <T, R> R findFirst(List<T> candidates, Function<? super T, ? extends R> function, ExecutorService executor)
+        throws InterruptedException {
+
+        AtomicInteger firstIndexWithResult = new AtomicInteger(Integer.MAX_VALUE);
+        List<Future<R>> futures = new ArrayList<>(candidates.size());
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                futures.add(executor.submit(new Evaluation<T, R>(i, candidates.get(i), function, firstIndexWithResult)));
+            }
+            // Wait in order, so earlier candidates win
+            for (Future<R> future : futures) {
+                R result = getResult(future);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static <R> R getResult(Future<R> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Function cannot throw checked exceptions
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static class Evaluation<T, R> implements Callable<R> {
+        private final int index;
+        private final T candidate;
+        private final Function<? super T, ? extends R> function;
+        private final AtomicInteger firstIndexWithResult;
+
+        Evaluation(int index, T candidate, Function<? super T, ? extends R> function,
+                   AtomicInteger firstIndexWithResult) {
+            this.index = index;
+            this.candidate = candidate;
+            this.function = function;
+            this.firstIndexWithResult = firstIndexWithResult;
+        }
+
+        @Override
+        public R call() {
+            if (index > firstIndexWithResult.get()) {
+                // An earlier candidate already yielded a result, so this one can't win
+                return null;
+            }
+            R result = function.apply(candidate);
+            if (result != null) {
+                firstIndexWithResult.accumulateAndGet(index, Math::min);
+            }
+            return result;
+        }
+    }
+}
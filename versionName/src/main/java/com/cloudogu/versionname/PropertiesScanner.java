@@ -0,0 +1,336 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a single property from a properties file without loading the whole file into a {@link java.util.Properties}.
+ * <p>Follows the grammar of {@link java.util.Properties#load(InputStream)}: ISO 8859-1 encoding, comment lines
+ * starting with <code>#</code> or <code>!</code>, lines continued by a trailing backslash, keys terminated by
+ * <code>=</code>, <code>:</code> or whitespace and escape sequences including <code>\\uXXXX</code>.</p>
+ * <p>Only keys are decoded, and only until they differ from the requested key. The value is only decoded for a
+ * matching key. Malformed <code>\\uXXXX</code> escapes therefore only cause an {@link IllegalArgumentException} if
+ * they are part of the requested property or of a key that is compared to it.</p>
+ * <p>Duplicate keys: If <code>stopAtFirstMatch</code> is <code>false</code>, the whole file is read and the last
+ * occurrence of the key is returned, like {@link java.util.Properties} does. Otherwise, reading stops at the first
+ * occurrence.</p>
+ */
+final class PropertiesScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+    /** End of the current logical line. */
+    private static final int END = -2;
+    private static final int NONE = -3;
+    /** Flag that marks a decoded char as the result of an escape sequence. */
+    private static final int ESCAPED = 0x10000;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    private boolean precedingBackslash;
+    private int pushedBack = NONE;
+
+    private PropertiesScanner(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @param in               the properties file. Not closed by this method.
+     * @param key              the key of the property to return
+     * @param stopAtFirstMatch <code>true</code> to return the first occurrence of <code>key</code> without reading the
+     *                         rest of the file, <code>false</code> to return the last one, like
+     *                         {@link java.util.Properties} does
+     * @return the value of the property or <code>null</code> if the file does not contain it
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if a <code>\\uXXXX</code> escape within the key or value is malformed
+     */
+    static String findProperty(InputStream in, String key, boolean stopAtFirstMatch) throws IOException {
+        return new PropertiesScanner(in).findProperty(key, stopAtFirstMatch);
+    }
+
+    private String findProperty(String key, boolean stopAtFirstMatch) throws IOException {
+        String value = null;
+        while (nextLogicalLine()) {
+            if (readKey(key)) {
+                value = readValue();
+                if (stopAtFirstMatch) {
+                    return value;
+                }
+            } else {
+                skipRestOfLogicalLine();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reads the key of the current logical line as long as it matches <code>key</code>. Stops after the separator
+     * if it matches.
+     *
+     * @return <code>true</code> if the key matches
+     */
+    private boolean readKey(String key) throws IOException {
+        int index = 0;
+        while (true) {
+            int c = nextDecodedChar();
+            if (c == END) {
+                pushedBack = END;
+                return index == key.length();
+            }
+            if (c == '=' || c == ':') {
+                return index == key.length() && skipSeparator(true);
+            }
+            if (c == ' ' || c == '\t' || c == '\f') {
+                return index == key.length() && skipSeparator(false);
+            }
+            if (index >= key.length() || key.charAt(index) != (char) c) {
+                return false;
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Skips whitespace and at most one <code>=</code> or <code>:</code> between key and value.
+     *
+     * @return always <code>true</code>
+     */
+    private boolean skipSeparator(boolean separatorRead) throws IOException {
+        boolean hasSeparator = separatorRead;
+        while (true) {
+            int c = nextRawChar();
+            if (c == ' ' || c == '\t' || c == '\f') {
+                continue;
+            }
+            if (!hasSeparator && (c == '=' || c == ':')) {
+                hasSeparator = true;
+                continue;
+            }
+            pushedBack = c;
+            return true;
+        }
+    }
+
+    private String readValue() throws IOException {
+        StringBuilder value = new StringBuilder();
+        int c;
+        while ((c = nextDecodedChar()) != END) {
+            value.append((char) c);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return the next char of the logical line with escape sequences resolved, {@link #ESCAPED} set for escaped
+     * chars, or {@link #END}
+     */
+    private int nextDecodedChar() throws IOException {
+        int c = nextRawChar();
+        if (c != '\\') {
+            return c;
+        }
+        c = nextRawChar();
+        switch (c) {
+            case END:
+                return END;
+            case 'u':
+                return decodeUnicode() | ESCAPED;
+            case 't':
+                return '\t' | ESCAPED;
+            case 'r':
+                return '\r' | ESCAPED;
+            case 'n':
+                return '\n' | ESCAPED;
+            case 'f':
+                return '\f' | ESCAPED;
+            default:
+                return c | ESCAPED;
+        }
+    }
+
+    private int decodeUnicode() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(nextRawChar(), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+            }
+            value = (value << 4) + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Moves to the beginning of the next logical line, skipping blank lines and comments.
+     *
+     * @return <code>false</code> if the end of the file has been reached
+     */
+    private boolean nextLogicalLine() throws IOException {
+        pushedBack = NONE;
+        precedingBackslash = false;
+        while (true) {
+            int c = peek();
+            if (c == EOF) {
+                return false;
+            }
+            if (c == ' ' || c == '\t' || c == '\f' || c == '\r' || c == '\n') {
+                position++;
+            } else if (c == '#' || c == '!') {
+                skipRestOfNaturalLine();
+            } else {
+                return true;
+            }
+        }
+    }
+
+    private void skipRestOfLogicalLine() throws IOException {
+        if (pushedBack == END) {
+            return;
+        }
+        pushedBack = NONE;
+        while (true) {
+            if (position == limit && !fill()) {
+                return;
+            }
+            // Scan the buffer directly, this is the hot loop for large files
+            int i = position;
+            while (i < limit) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r' || b == '\\') {
+                    break;
+                }
+                i++;
+            }
+            if (i > position) {
+                precedingBackslash = false;
+                position = i;
+            }
+            // Line breaks and backslashes, including continuations
+            if (i < limit && nextRawChar() == END) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the next char of the logical line, with line continuations removed, or {@link #END}
+     */
+    private int nextRawChar() throws IOException {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                return END;
+            }
+            if (c == '\n') {
+                return END;
+            }
+            if (c == '\r') {
+                skipLineFeed();
+                return END;
+            }
+            if (c != '\\') {
+                precedingBackslash = false;
+                return c;
+            }
+            precedingBackslash = !precedingBackslash;
+            if (precedingBackslash) {
+                int next = peek();
+                if (next == EOF) {
+                    // Like java.util.Properties, drop a single backslash at the end of the file
+                    return END;
+                }
+                if (next == '\r' || next == '\n') {
+                    // Line continues on the next natural line, without its leading whitespace
+                    position++;
+                    if (next == '\r') {
+                        skipLineFeed();
+                    }
+                    precedingBackslash = false;
+                    skipWhitespace();
+                    continue;
+                }
+            }
+            return c;
+        }
+    }
+
+    private void skipRestOfNaturalLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != EOF && c != '\r' && c != '\n');
+        if (c == '\r') {
+            skipLineFeed();
+        }
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\f') {
+            position++;
+            c = peek();
+        }
+    }
+
+    private void skipLineFeed() throws IOException {
+        if (peek() == '\n') {
+            position++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position] & 0xff;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        // ISO 8859-1: each byte is a char
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs identical messages at most once per interval, so a lookup that fails on every call can't flood the log.
+ * <p>Messages are identical if they have the same format and arguments, where exceptions are compared by type only.
+ * The first occurrence is logged as is. Later occurrences within the interval are counted but not logged. The first
+ * occurrence after the interval is logged with the number of occurrences suppressed before it.</p>
+ * <p>The number of distinct messages tracked is bounded by {@link #MAX_MESSAGES}; when it is reached, all of them are
+ * forgotten.</p>
+ */
+final class RateLimitedLog {
+
+    /**
+     * System property for the interval in milliseconds in which identical error messages are logged only once, e.g.
+     * <code>-DversionName.errorLog.intervalMillis=10000</code>. 0 logs all messages.
+     */
+    static final String PROPERTY_INTERVAL_MILLIS = "versionName.errorLog.intervalMillis";
+
+    static final long DEFAULT_INTERVAL_MILLIS = 60000;
+
+    static final int MAX_MESSAGES = 1024;
+
+    static final String SUPPRESSED_SUFFIX = " ({} identical messages suppressed in the last {} ms)";
+
+    private final Logger log;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private volatile long intervalNanos;
+
+    RateLimitedLog(Logger log, long interval, TimeUnit unit, LongSupplier nanoTime) {
+        this.log = log;
+        this.intervalNanos = unit.toNanos(interval);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return a log configured via {@link #PROPERTY_INTERVAL_MILLIS}
+     */
+    static RateLimitedLog fromSystemProperties(Logger log) {
+        return new RateLimitedLog(log, Long.getLong(PROPERTY_INTERVAL_MILLIS, DEFAULT_INTERVAL_MILLIS),
+            TimeUnit.MILLISECONDS, System::nanoTime);
+    }
+
+    /**
+     * Sets the interval and forgets all messages logged so far.
+     *
+     * @param interval 0 logs all messages
+     */
+    void setInterval(long interval, TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval must not be negative: " + interval);
+        }
+        intervalNanos = unit.toNanos(interval);
+        reset();
+    }
+
+    long getInterval(TimeUnit unit) {
+        return unit.convert(intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Forgets all messages logged so far, so the next occurrence of each is logged.
+     */
+    void reset() {
+        windows.clear();
+    }
+
+    void error(String format, Object... arguments) {
+        if (log.isErrorEnabled()) {
+            log(true, format, arguments);
+        }
+    }
+
+    void warn(String format, Object... arguments) {
+        if (log.isWarnEnabled()) {
+            log(false, format, arguments);
+        }
+    }
+
+    private void log(boolean error, String format, Object[] arguments) {
+        long interval = intervalNanos;
+        if (interval <= 0) {
+            write(error, format, arguments);
+            return;
+        }
+
+        String messageKey = messageKey(format, arguments);
+        Window window = windows.get(messageKey);
+        if (window == null) {
+            if (windows.size() >= MAX_MESSAGES) {
+                windows.clear();
+            }
+            window = windows.computeIfAbsent(messageKey, k -> new Window());
+        }
+
+        long now = nanoTime.getAsLong();
+        long suppressed;
+        long elapsed;
+        synchronized (window) {
+            if (window.logged && now - window.start < interval) {
+                window.suppressed++;
+                return;
+            }
+            suppressed = window.suppressed;
+            elapsed = now - window.start;
+            window.logged = true;
+            window.start = now;
+            window.suppressed = 0;
+        }
+
+        if (suppressed == 0) {
+            write(error, format, arguments);
+        } else {
+            write(error, format + SUPPRESSED_SUFFIX,
+                withSuppressed(arguments, suppressed, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        }
+    }
+
+    private void write(boolean error, String format, Object[] arguments) {
+        if (error) {
+            log.error(format, arguments);
+        } else {
+            log.warn(format, arguments);
+        }
+    }
+
+    private static String messageKey(String format, Object[] arguments) {
+        StringBuilder key = new StringBuilder(format);
+        for (Object argument : arguments) {
+            key.append('\0');
+            key.append(argument instanceof Throwable ? argument.getClass().getName() : String.valueOf(argument));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return <code>arguments</code> with the values for {@link #SUPPRESSED_SUFFIX} inserted before a trailing
+     * exception, so that it is still logged as exception
+     */
+    private static Object[] withSuppressed(Object[] arguments, long suppressed, long elapsedMillis) {
+        int exceptionIndex = arguments.length > 0 && arguments[arguments.length - 1] instanceof Throwable
+            ? arguments.length - 1 : arguments.length;
+        Object[] result = Arrays.copyOf(arguments, arguments.length + 2);
+        result[exceptionIndex] = suppressed;
+        result[exceptionIndex + 1] = elapsedMillis;
+        if (exceptionIndex < arguments.length) {
+            result[exceptionIndex + 2] = arguments[exceptionIndex];
+        }
+        return result;
+    }
+
+    private static final class Window {
+        // Guarded by this
+        private boolean logged;
+        private long start;
+        private long suppressed;
+    }
+}
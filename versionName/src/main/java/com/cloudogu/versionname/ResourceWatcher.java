@@ -0,0 +1,286 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches files for changes via a single {@link WatchService} and calls back on a single daemon thread.
+ * <p>The directory of each file is registered, as a {@link WatchService} can't watch single files. A file that is
+ * replaced, e.g. by moving a new build into place, counts as changed. Callbacks of files whose directory lost events
+ * are called, too.</p>
+ * <p>A file that is being written causes several events. Callbacks are called only once the file has not changed for
+ * {@link #QUIET_PERIOD_MILLIS}, so they don't see it half-written.</p>
+ * <p>The watch service and the thread exist only while files are watched. Both are closed when the last registration
+ * is removed, so that the thread does not keep the callbacks, and their class loaders, from being collected.</p>
+ */
+final class ResourceWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceWatcher.class);
+
+    static final String THREAD_NAME = "versionName-watcher";
+
+    /**
+     * Time a file must not have changed before its callbacks are called.
+     */
+    static final long QUIET_PERIOD_MILLIS = 200;
+
+    static final String LOG_EXCEPTION_IN_CALLBACK = "Exception while handling change of {}";
+    static final String LOG_WATCHER_STOPPED = "Watch service closed, changes of resources are not picked up anymore";
+
+    private static ResourceWatcher instance;
+
+    private final FileSystem fileSystem;
+    private final long quietPeriodNanos;
+
+    // Callbacks per file name, per directory. Guarded by this.
+    private final Map<WatchKey, Map<Path, List<Runnable>>> callbacks = new HashMap<>();
+    // Null while no file is watched. Guarded by this.
+    private WatchService watchService;
+
+    ResourceWatcher(FileSystem fileSystem, long quietPeriod, TimeUnit unit) {
+        this.fileSystem = fileSystem;
+        this.quietPeriodNanos = unit.toNanos(quietPeriod);
+    }
+
+    /**
+     * @return the watcher for the default file system, created on first use
+     */
+    static synchronized ResourceWatcher getInstance() {
+        if (instance == null) {
+            instance = new ResourceWatcher(FileSystems.getDefault(), QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts watching <code>file</code>.
+     *
+     * @param file     the file to watch, whose directory exists
+     * @param onChange called on the watcher thread each time the file is created or modified
+     * @return stops watching when run
+     * @throws IOException if the watch service can't be created or the directory of <code>file</code> can't be
+     *                     watched
+     */
+    synchronized Runnable register(Path file, Runnable onChange) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path fileName = file.getFileName();
+        WatchService service = startIfNecessary();
+        WatchKey key;
+        try {
+            key = directory.register(service, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException | RuntimeException e) {
+            stopIfUnused();
+            throw e;
+        }
+        callbacks.computeIfAbsent(key, k -> new HashMap<>())
+            .computeIfAbsent(fileName, name -> new ArrayList<>())
+            .add(onChange);
+        return () -> unregister(key, fileName, onChange);
+    }
+
+    /**
+     * @return whether the watch service and its thread are running, i.e. whether any file is watched
+     */
+    synchronized boolean isRunning() {
+        return watchService != null;
+    }
+
+    private synchronized void unregister(WatchKey key, Path fileName, Runnable onChange) {
+        Map<Path, List<Runnable>> callbacksPerFile = callbacks.get(key);
+        if (callbacksPerFile == null) {
+            return;
+        }
+        List<Runnable> callbacksForFile = callbacksPerFile.get(fileName);
+        if (callbacksForFile != null && callbacksForFile.remove(onChange) && callbacksForFile.isEmpty()) {
+            callbacksPerFile.remove(fileName);
+        }
+        if (callbacksPerFile.isEmpty()) {
+            callbacks.remove(key);
+            key.cancel();
+        }
+        stopIfUnused();
+    }
+
+    private WatchService startIfNecessary() throws IOException {
+        if (watchService == null) {
+            WatchService service = fileSystem.newWatchService();
+            Thread thread = new Thread(() -> run(service), THREAD_NAME);
+            thread.setDaemon(true);
+            // Don't keep the class loader of whoever registered first from being garbage collected
+            thread.setContextClassLoader(null);
+            thread.start();
+            watchService = service;
+        }
+        return watchService;
+    }
+
+    /**
+     * Closes the watch service if no file is watched anymore, which ends its thread.
+     */
+    private void stopIfUnused() {
+        if (callbacks.isEmpty() && watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.warn(LOG_WATCHER_STOPPED, e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void run(WatchService service) {
+        // Files that changed, per directory, mapped to the time their callbacks are due. Only used by this thread.
+        Map<WatchKey, Map<Path, Long>> pending = new HashMap<>();
+        while (true) {
+            WatchKey key;
+            try {
+                key = pending.isEmpty() ? service.take()
+                    : service.poll(nextDue(pending) - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                synchronized (this) {
+                    if (service == watchService) {
+                        // Not closed by stopIfUnused()
+                        LOG.warn(LOG_WATCHER_STOPPED, e);
+                    }
+                }
+                return;
+            }
+            if (key != null) {
+                addChanges(key, pending);
+            }
+            for (Map.Entry<Path, Runnable> callback : takeDueCallbacks(pending)) {
+                try {
+                    callback.getValue().run();
+                } catch (RuntimeException e) {
+                    LOG.error(LOG_EXCEPTION_IN_CALLBACK, callback.getKey(), e);
+                }
+            }
+        }
+    }
+
+    private static long nextDue(Map<WatchKey, Map<Path, Long>> pending) {
+        Long next = null;
+        for (Map<Path, Long> files : pending.values()) {
+            for (Long due : files.values()) {
+                // Compare differences, as nano times may overflow
+                if (next == null || due - next < 0) {
+                    next = due;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Postpones the callbacks of all files in <code>key</code>'s directory that changed, by the quiet period.
+     */
+    private void addChanges(WatchKey key, Map<WatchKey, Map<Path, Long>> pending) {
+        long due = System.nanoTime() + quietPeriodNanos;
+        Map<Path, Long> files = pending.computeIfAbsent(key, k -> new HashMap<>());
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                synchronized (this) {
+                    Map<Path, List<Runnable>> callbacksPerFile = callbacks.get(key);
+                    if (callbacksPerFile != null) {
+                        for (Path fileName : callbacksPerFile.keySet()) {
+                            files.put(fileName, due);
+                        }
+                    }
+                }
+            } else {
+                files.put((Path) event.context(), due);
+            }
+        }
+        if (files.isEmpty()) {
+            pending.remove(key);
+        }
+        synchronized (this) {
+            if (!key.reset()) {
+                // Directory is gone, there won't be any more events for it
+                callbacks.remove(key);
+                stopIfUnused();
+            }
+        }
+    }
+
+    /**
+     * @return the callbacks of all files that haven't changed for the quiet period, along with the file
+     */
+    private List<Map.Entry<Path, Runnable>> takeDueCallbacks(Map<WatchKey, Map<Path, Long>> pending) {
+        long now = System.nanoTime();
+        List<Map.Entry<Path, Runnable>> result = new ArrayList<>();
+        synchronized (this) {
+            for (Iterator<Map.Entry<WatchKey, Map<Path, Long>>> directories = pending.entrySet().iterator();
+                 directories.hasNext(); ) {
+                Map.Entry<WatchKey, Map<Path, Long>> directory = directories.next();
+                Map<Path, List<Runnable>> callbacksPerFile = callbacks.get(directory.getKey());
+                for (Iterator<Map.Entry<Path, Long>> files = directory.getValue().entrySet().iterator();
+                     files.hasNext(); ) {
+                    Map.Entry<Path, Long> file = files.next();
+                    if (callbacksPerFile == null) {
+                        files.remove();
+                    } else if (file.getValue() - now <= 0) {
+                        files.remove();
+                        List<Runnable> callbacksForFile = callbacksPerFile.get(file.getKey());
+                        if (callbacksForFile != null) {
+                            Path changed = ((Path) directory.getKey().watchable()).resolve(file.getKey());
+                            for (Runnable callback : callbacksForFile) {
+                                result.add(new AbstractMap.SimpleImmutableEntry<>(changed, callback));
+                            }
+                        }
+                    }
+                }
+                if (directory.getValue().isEmpty()) {
+                    directories.remove();
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Loads the providers of a service via {@link ServiceLoader}, skipping those that fail.
+ * <p>Gives up on the first failure to list or read the provider configurations, and on the second failure in a row
+ * with the same cause. Depending on the JDK, such failures are thrown by <code>hasNext()</code> (Java 8) or by each
+ * <code>next()</code> (Java 9 and later), without the iterator ever advancing.</p>
+ */
+final class ServiceProviders {
+
+    private ServiceProviders() {
+    }
+
+    /**
+     * @param log        logs failures to load a provider
+     * @param logMessage the message failures are logged with, at error level
+     * @return the providers of <code>service</code> visible to <code>classLoader</code> that could be loaded, in the
+     * order of {@link ServiceLoader}
+     */
+    static <S> List<S> load(Class<S> service, ClassLoader classLoader, Logger log, String logMessage) {
+        List<S> providers = new ArrayList<>();
+        Iterator<S> iterator = ServiceLoader.load(service, classLoader).iterator();
+        ServiceConfigurationError previous = null;
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    return providers;
+                }
+                providers.add(iterator.next());
+                previous = null;
+            } catch (ServiceConfigurationError e) {
+                log.error(logMessage, e);
+                if (e.getCause() instanceof IOException || isSameFailure(previous, e)) {
+                    // E.g. the class loader failed to list the provider configurations, which would fail again and again
+                    return providers;
+                }
+                previous = e;
+            }
+        }
+    }
+
+    private static boolean isSameFailure(ServiceConfigurationError previous, ServiceConfigurationError current) {
+        return previous != null
+            && Objects.equals(previous.getMessage(), current.getMessage())
+            && Objects.equals(String.valueOf(previous.getCause()), String.valueOf(current.getCause()));
+    }
+}
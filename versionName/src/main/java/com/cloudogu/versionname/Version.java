@@ -0,0 +1,488 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An immutable version such as <code>2.2.1</code>, <code>2.2.1-SNAPSHOT</code>, <code>1.0.0-rc.1+build.5</code> or
+ * <code>5.3.9.RELEASE</code>, parsed from a version name.
+ * <p>A version consists of up to three numbers (major, minor and patch version, missing ones are 0), an optional
+ * qualifier and optional build metadata after <code>+</code>. A leading <code>v</code> is ignored. The qualifier
+ * follows the numbers, separated by <code>-</code> or <code>.</code> or directly, as in <code>1.0RC1</code>.</p>
+ * <p>Versions are ordered by major, minor and patch version, then by qualifier. A version without qualifier, or with
+ * qualifier <code>GA</code>, <code>FINAL</code> or <code>RELEASE</code>, is a release. Post-releases are greater than
+ * the release: a qualifier starting with a further number after a <code>.</code>, as in <code>1.2.3.4</code> (OSGi
+ * and maven), or with <code>sp</code> or <code>patch</code>, as in <code>1.0.0-sp1</code>. Versions with any other
+ * qualifier are pre-releases, which are less than the release. Further numbers are compared numerically, followed
+ * by the rest of the qualifier, so <code>1.2.3.4-SNAPSHOT &lt; 1.2.3.4 &lt; 1.2.3.4.1</code>. Other qualifiers of the
+ * same kind are compared token by token, where tokens are runs of digits or letters separated by <code>.</code>,
+ * <code>-</code> or a change between digits and letters. So <code>rc1</code>, <code>RC-1</code> and <code>rc.1</code>
+ * are equal. Numeric tokens are compared numerically and
+ * are less than other tokens. Letter tokens are compared case-insensitively, with the well-known qualifiers ordered
+ * <code>alpha &lt; beta &lt; milestone &lt; rc = cr &lt; snapshot</code>, before all others, which are ordered
+ * alphabetically. A qualifier that has more tokens than an otherwise equal one is greater. Build metadata is ignored.
+ * {@link #equals(Object)} is consistent with this order.</p>
+ * <p>Parsing takes a single pass over the version name, without regular expressions or intermediate strings.
+ * Comparing does not allocate. {@link #parse(String)} interns versions in a small cache, so parsing the same version
+ * name repeatedly returns the same instance.</p>
+ */
+public final class Version implements Comparable<Version> {
+
+    /**
+     * Number of versions kept by {@link #parse(String)}. A power of two.
+     */
+    static final int CACHE_SIZE = 256;
+
+    private static final AtomicReferenceArray<Version> CACHE = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    // Ranks of letter tokens in qualifiers, see compareTokens()
+    private static final int RANK_ALPHA = 0;
+    private static final int RANK_BETA = 1;
+    private static final int RANK_MILESTONE = 2;
+    private static final int RANK_RELEASE_CANDIDATE = 3;
+    private static final int RANK_SNAPSHOT = 4;
+    private static final int RANK_OTHER = 5;
+
+    // Kinds of qualifiers, in ascending order, see phase()
+    private static final int PRE_RELEASE = -1;
+    private static final int RELEASE = 0;
+    private static final int POST_RELEASE = 1;
+
+    private final String versionName;
+    private final int major;
+    private final int minor;
+    private final int patch;
+    // The qualifier and build metadata are kept as ranges within versionName, so parsing doesn't create strings
+    private final int qualifierStart;
+    private final int qualifierEnd;
+    private final int phase;
+    private final int hash;
+
+    private Version(String versionName, int major, int minor, int patch, int qualifierStart, int qualifierEnd) {
+        this.versionName = versionName;
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.qualifierStart = qualifierStart;
+        this.qualifierEnd = qualifierEnd;
+        this.phase = phase(versionName, qualifierStart, qualifierEnd);
+        this.hash = computeHash();
+    }
+
+    /**
+     * Parses <code>versionName</code>. Repeated calls with the same version name usually return the same instance.
+     *
+     * @param versionName e.g. <code>2.2.1-SNAPSHOT</code>
+     * @return the version, never <code>null</code>
+     * @throws IllegalArgumentException if <code>versionName</code> is <code>null</code>, does not start with a number
+     *                                  or a number is larger than {@link Integer#MAX_VALUE}
+     */
+    public static Version parse(String versionName) {
+        if (versionName == null) {
+            throw new IllegalArgumentException("Version name is null");
+        }
+        int hashCode = versionName.hashCode();
+        int slot = (hashCode ^ (hashCode >>> 16)) & (CACHE_SIZE - 1);
+        Version cached = CACHE.get(slot);
+        if (cached != null && cached.versionName.equals(versionName)) {
+            return cached;
+        }
+        Version version = parseUncached(versionName);
+        CACHE.lazySet(slot, version);
+        return version;
+    }
+
+    /**
+     * @return a release version <code>major.minor.patch</code>
+     * @throws IllegalArgumentException if a number is negative
+     */
+    public static Version of(int major, int minor, int patch) {
+        if (major < 0 || minor < 0 || patch < 0) {
+            throw new IllegalArgumentException("Version numbers must not be negative: " + major + "." + minor + "."
+                + patch);
+        }
+        String versionName = major + "." + minor + "." + patch;
+        return new Version(versionName, major, minor, patch, versionName.length(), versionName.length());
+    }
+
+    /**
+     * Parses <code>versionName</code> without looking it up in or adding it to the cache.
+     */
+    static Version parseUncached(String versionName) {
+        int length = versionName.length();
+        int position = 0;
+        if (length > 0 && (versionName.charAt(0) == 'v' || versionName.charAt(0) == 'V')) {
+            position++;
+        }
+
+        int major = 0;
+        int minor = 0;
+        int patch = 0;
+        for (int number = 0; number < 3; number++) {
+            if (number > 0) {
+                // Minor and patch version are optional, but must be separated by a dot
+                if (position + 1 >= length || versionName.charAt(position) != '.'
+                    || !isDigit(versionName.charAt(position + 1))) {
+                    break;
+                }
+                position++;
+            }
+            if (position >= length || !isDigit(versionName.charAt(position))) {
+                throw new IllegalArgumentException("Version name \"" + versionName + "\" does not start with a number");
+            }
+            long value = 0;
+            while (position < length && isDigit(versionName.charAt(position))) {
+                value = value * 10 + (versionName.charAt(position++) - '0');
+                if (value > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Version name \"" + versionName
+                        + "\" contains a number larger than " + Integer.MAX_VALUE);
+                }
+            }
+            if (number == 0) {
+                major = (int) value;
+            } else if (number == 1) {
+                minor = (int) value;
+            } else {
+                patch = (int) value;
+            }
+        }
+
+        if (position < length && (versionName.charAt(position) == '-' || versionName.charAt(position) == '.')) {
+            position++;
+        }
+        int qualifierEnd = versionName.indexOf('+', position);
+        if (qualifierEnd < 0) {
+            qualifierEnd = length;
+        }
+        return new Version(versionName, major, minor, patch, position, qualifierEnd);
+    }
+
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    public int getPatch() {
+        return patch;
+    }
+
+    /**
+     * @return the qualifier without the leading separator, e.g. <code>SNAPSHOT</code> for
+     * <code>2.2.1-SNAPSHOT</code>. Empty if there is none.
+     */
+    public String getQualifier() {
+        return versionName.substring(qualifierStart, qualifierEnd);
+    }
+
+    /**
+     * @return the build metadata without the leading <code>+</code>, e.g. <code>build.5</code> for
+     * <code>1.0.0+build.5</code>. Empty if there is none.
+     */
+    public String getBuildMetadata() {
+        return qualifierEnd < versionName.length() ? versionName.substring(qualifierEnd + 1) : "";
+    }
+
+    /**
+     * @return <code>true</code> if this is a release or post-release, i.e. not a pre-release such as
+     * <code>1.2.3-SNAPSHOT</code>
+     */
+    public boolean isRelease() {
+        return phase != PRE_RELEASE;
+    }
+
+    /**
+     * @return <code>true</code> if this is a post-release, e.g. <code>1.2.3.4</code> or <code>1.0.0-sp1</code>, which
+     * is greater than the release <code>major.minor.patch</code>
+     */
+    public boolean isPostRelease() {
+        return phase == POST_RELEASE;
+    }
+
+    /**
+     * Compares this version to <code>major.minor.patch</code> without creating a version for it, e.g. for feature
+     * gates. Pre-releases of <code>major.minor.patch</code> are not at least <code>major.minor.patch</code>, its
+     * post-releases are.
+     *
+     * @return <code>true</code> if this version is greater than or equal to release <code>major.minor.patch</code>
+     */
+    public boolean isAtLeast(int major, int minor, int patch) {
+        if (this.major != major) {
+            return this.major > major;
+        }
+        if (this.minor != minor) {
+            return this.minor > minor;
+        }
+        if (this.patch != patch) {
+            return this.patch > patch;
+        }
+        return isRelease();
+    }
+
+    @Override
+    public int compareTo(Version other) {
+        int result = Integer.compare(major, other.major);
+        if (result == 0) {
+            result = Integer.compare(minor, other.minor);
+        }
+        if (result == 0) {
+            result = Integer.compare(patch, other.patch);
+        }
+        if (result == 0) {
+            result = compareQualifiers(versionName, qualifierStart, qualifierEnd, other.versionName,
+                other.qualifierStart, other.qualifierEnd);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Version)) {
+            return false;
+        }
+        Version other = (Version) o;
+        return hash == other.hash && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the version name this version was parsed from
+     */
+    @Override
+    public String toString() {
+        return versionName;
+    }
+
+    private static int compareQualifiers(String name, int start, int end, String otherName, int otherStart,
+                                         int otherEnd) {
+        int phase = phase(name, start, end);
+        int otherPhase = phase(otherName, otherStart, otherEnd);
+        if (phase != otherPhase || phase == RELEASE) {
+            return Integer.compare(phase, otherPhase);
+        }
+        int position = skipSeparators(name, start, end);
+        int otherPosition = skipSeparators(otherName, otherStart, otherEnd);
+        if (phase == POST_RELEASE && isDigit(name.charAt(position)) && isDigit(otherName.charAt(otherPosition))) {
+            // Further numbers: compare the number, then the rest like a qualifier, so 1.2.3.4-SNAPSHOT < 1.2.3.4
+            int numberEnd = tokenEnd(name, position, end);
+            int otherNumberEnd = tokenEnd(otherName, otherPosition, otherEnd);
+            int result = compareNumericTokens(name, position, numberEnd, otherName, otherPosition, otherNumberEnd);
+            return result != 0 ? result : compareQualifiers(name, numberEnd, end, otherName, otherNumberEnd, otherEnd);
+        }
+        while (position < end && otherPosition < otherEnd) {
+            int tokenEnd = tokenEnd(name, position, end);
+            int otherTokenEnd = tokenEnd(otherName, otherPosition, otherEnd);
+            int result = compareTokens(name, position, tokenEnd, otherName, otherPosition, otherTokenEnd);
+            if (result != 0) {
+                return result;
+            }
+            position = skipSeparators(name, tokenEnd, end);
+            otherPosition = skipSeparators(otherName, otherTokenEnd, otherEnd);
+        }
+        // The one with more tokens left is greater
+        return Boolean.compare(position < end, otherPosition < otherEnd);
+    }
+
+    private static int compareTokens(String name, int start, int end, String otherName, int otherStart,
+                                     int otherEnd) {
+        boolean numeric = isDigit(name.charAt(start));
+        boolean otherNumeric = isDigit(otherName.charAt(otherStart));
+        if (numeric != otherNumeric) {
+            return numeric ? -1 : 1;
+        }
+        if (numeric) {
+            return compareNumericTokens(name, start, end, otherName, otherStart, otherEnd);
+        }
+        int rank = rank(name, start, end);
+        int otherRank = rank(otherName, otherStart, otherEnd);
+        if (rank != otherRank || rank != RANK_OTHER) {
+            return Integer.compare(rank, otherRank);
+        }
+        int length = Math.min(end - start, otherEnd - otherStart);
+        for (int i = 0; i < length; i++) {
+            int result = Character.compare(Character.toLowerCase(name.charAt(start + i)),
+                Character.toLowerCase(otherName.charAt(otherStart + i)));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(end - start, otherEnd - otherStart);
+    }
+
+    private static int compareNumericTokens(String name, int start, int end, String otherName, int otherStart,
+                                            int otherEnd) {
+        start = skipLeadingZeros(name, start, end);
+        otherStart = skipLeadingZeros(otherName, otherStart, otherEnd);
+        // Without leading zeros, the longer number is the larger one
+        int result = Integer.compare(end - start, otherEnd - otherStart);
+        for (int i = 0; result == 0 && i < end - start; i++) {
+            result = Character.compare(name.charAt(start + i), otherName.charAt(otherStart + i));
+        }
+        return result;
+    }
+
+    private static int rank(String name, int start, int end) {
+        // Check the length first, so that most tokens are ranked without comparing characters
+        switch (end - start) {
+            case 2:
+                return matches(name, start, end, "rc") || matches(name, start, end, "cr")
+                    ? RANK_RELEASE_CANDIDATE : RANK_OTHER;
+            case 4:
+                return matches(name, start, end, "beta") ? RANK_BETA : RANK_OTHER;
+            case 5:
+                return matches(name, start, end, "alpha") ? RANK_ALPHA : RANK_OTHER;
+            case 8:
+                return matches(name, start, end, "snapshot") ? RANK_SNAPSHOT : RANK_OTHER;
+            case 9:
+                return matches(name, start, end, "milestone") ? RANK_MILESTONE : RANK_OTHER;
+            default:
+                return RANK_OTHER;
+        }
+    }
+
+    /**
+     * @return {@link #PRE_RELEASE}, {@link #RELEASE} or {@link #POST_RELEASE}, depending on the qualifier within the
+     * range of <code>name</code>
+     */
+    private static int phase(String name, int start, int end) {
+        int tokenStart = skipSeparators(name, start, end);
+        if (tokenStart == end || matches(name, tokenStart, end, "ga") || matches(name, tokenStart, end, "final")
+            || matches(name, tokenStart, end, "release")) {
+            return RELEASE;
+        }
+        if (isDigit(name.charAt(tokenStart))) {
+            // A further number as in 1.2.3.4, but not as in 1.0.0-1
+            return tokenStart > 0 && name.charAt(tokenStart - 1) == '.' ? POST_RELEASE : PRE_RELEASE;
+        }
+        int tokenEnd = tokenEnd(name, tokenStart, end);
+        return matches(name, tokenStart, tokenEnd, "sp") || matches(name, tokenStart, tokenEnd, "patch")
+            ? POST_RELEASE : PRE_RELEASE;
+    }
+
+    /**
+     * @param word lower case ASCII letters
+     * @return <code>true</code> if the range of <code>name</code> equals <code>word</code>, ignoring case
+     */
+    private static boolean matches(String name, int start, int end, String word) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            // Lower case for ASCII letters. Other characters never match a letter this way.
+            if ((name.charAt(start + i) | 0x20) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int tokenEnd(String name, int start, int end) {
+        boolean numeric = isDigit(name.charAt(start));
+        int position = start + 1;
+        while (position < end && !isSeparator(name.charAt(position)) && isDigit(name.charAt(position)) == numeric) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int skipSeparators(String name, int start, int end) {
+        int position = start;
+        while (position < end && isSeparator(name.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int skipLeadingZeros(String name, int start, int end) {
+        int position = start;
+        while (position < end - 1 && name.charAt(position) == '0') {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return !isDigit(c) && !Character.isLetter(c);
+    }
+
+    /**
+     * @return a hash code that is equal for versions that compare as equal
+     */
+    private int computeHash() {
+        return hashQualifier(31 * (31 * major + minor) + patch, qualifierStart, qualifierEnd);
+    }
+
+    /**
+     * @return <code>result</code> combined with the hash code of the qualifier within the range, following
+     * {@link #compareQualifiers(String, int, int, String, int, int)}
+     */
+    private int hashQualifier(int result, int start, int end) {
+        int phase = phase(versionName, start, end);
+        if (phase == RELEASE) {
+            return result;
+        }
+        result = 31 * result + phase;
+        int position = skipSeparators(versionName, start, end);
+        if (phase == POST_RELEASE && isDigit(versionName.charAt(position))) {
+            int numberEnd = tokenEnd(versionName, position, end);
+            return hashQualifier(hashNumber(result, position, numberEnd), numberEnd, end);
+        }
+        while (position < end) {
+            int tokenEnd = tokenEnd(versionName, position, end);
+            result = 31 * result + 1;
+            if (isDigit(versionName.charAt(position))) {
+                result = hashNumber(result, position, tokenEnd);
+            } else if (rank(versionName, position, tokenEnd) != RANK_OTHER) {
+                result = 31 * result + rank(versionName, position, tokenEnd);
+            } else {
+                for (int i = position; i < tokenEnd; i++) {
+                    result = 31 * result + Character.toLowerCase(versionName.charAt(i));
+                }
+            }
+            position = skipSeparators(versionName, tokenEnd, end);
+        }
+        return result;
+    }
+
+    private int hashNumber(int result, int start, int end) {
+        for (int i = skipLeadingZeros(versionName, start, end); i < end; i++) {
+            result = 31 * result + versionName.charAt(i);
+        }
+        return result;
+    }
+}
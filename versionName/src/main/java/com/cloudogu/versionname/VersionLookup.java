@@ -0,0 +1,69 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+/**
+ * Describes a single call to one of the methods of {@link VersionNames} that look up a version name. Passed to each
+ * event of a {@link VersionLookupListener}, so events of concurrent lookups can be told apart.
+ */
+public final class VersionLookup {
+
+    private final SourceType sourceType;
+    private final String resourcePath;
+    private final String key;
+
+    VersionLookup(SourceType sourceType, String resourcePath, String key) {
+        this.sourceType = sourceType;
+        this.resourcePath = resourcePath;
+        this.key = key;
+    }
+
+    /**
+     * @return the kind of resource the version name is looked up in
+     */
+    public SourceType getSourceType() {
+        return sourceType;
+    }
+
+    /**
+     * @return the path of the resource on the classpath. Can be <code>null</code> if the caller passed
+     * <code>null</code>.
+     */
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    /**
+     * @return the property or attribute within the resource. Can be <code>null</code> if the caller passed
+     * <code>null</code>.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return sourceType + " " + resourcePath + " " + key;
+    }
+}
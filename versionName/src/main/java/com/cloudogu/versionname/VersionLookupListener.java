@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Receives events about the steps of looking up version names, e.g. for finding out where lookup time goes in
+ * production. Register via {@link VersionNames#addLookupListener(VersionLookupListener)}.
+ * <p>All methods have empty default implementations, so only the events of interest need to be implemented. Methods
+ * are called synchronously on the thread doing the lookup, so they should return quickly. When resources are read in
+ * parallel (see {@link VersionNames#setParallelScanExecutor(java.util.concurrent.ExecutorService)}), resource events
+ * of the same lookup are called concurrently. Exceptions thrown by listeners are logged and don't affect the
+ * lookup.</p>
+ * <p>{@link VersionLookupMetrics} aggregates all events into counters and latency histograms.</p>
+ */
+public interface VersionLookupListener {
+
+    /**
+     * How a lookup ended.
+     */
+    enum Outcome {
+        /** The version name was cached from a previous lookup. */
+        CACHE_HIT,
+        /** The version name was known to a {@link VersionNameProvider}. */
+        PROVIDER_HIT,
+        /** The version name was found in the index written at build time. */
+        INDEX_HIT,
+        /** The version name was found by reading resources from the classpath. */
+        FOUND,
+        /** No version name was found, so an empty string was returned. */
+        NOT_FOUND,
+        /**
+         * A previous lookup did not find the version name a short time ago, so an empty string was returned without
+         * reading resources.
+         */
+        MISS_CACHE_HIT,
+        /** The resource path or key was <code>null</code>, so an empty string was returned. */
+        INVALID_ARGUMENT
+    }
+
+    /**
+     * Called after looking up the version name in the cache, if the cache is enabled.
+     */
+    default void onCacheLookup(VersionLookup lookup, boolean hit) {
+    }
+
+    /**
+     * Called after looking up the version name in the index written at build time, if the index is enabled and the
+     * cache did not contain the version name.
+     */
+    default void onIndexLookup(VersionLookup lookup, boolean hit) {
+    }
+
+    /**
+     * Called after a {@link LoadingStrategy} has been asked for the resources.
+     *
+     * @param hit            <code>true</code> if the strategy found at least one resource
+     * @param memoized       <code>true</code> if the strategy was tried first because it found the resource last time
+     * @param durationNanos  the time it took the strategy to find the resources
+     */
+    default void onStrategyTried(VersionLookup lookup, LoadingStrategy strategy, boolean hit, boolean memoized,
+                                 long durationNanos) {
+    }
+
+    /**
+     * Called after the resources to read the version name from have been found on the classpath.
+     *
+     * @param count the number of resources found
+     */
+    default void onResourcesEnumerated(VersionLookup lookup, int count) {
+    }
+
+    /**
+     * Called after a resource has been read.
+     *
+     * @param bytesRead      the number of bytes read, which can be less than the size of the resource, as reading
+     *                       stops once the version name is found
+     * @param durationNanos  the time it took to open, read and parse the resource
+     * @param found          <code>true</code> if the resource contained the version name
+     */
+    default void onResourceRead(VersionLookup lookup, URL url, long bytesRead, long durationNanos, boolean found) {
+    }
+
+    /**
+     * Called if reading a resource failed.
+     *
+     * @param durationNanos the time until reading failed
+     */
+    default void onResourceFailed(VersionLookup lookup, URL url, IOException exception, long durationNanos) {
+    }
+
+    /**
+     * Called when the lookup ends, right before the version name is returned to the caller.
+     *
+     * @param durationNanos the time the whole lookup took
+     */
+    default void onLookupFinished(VersionLookup lookup, Outcome outcome, long durationNanos) {
+    }
+}
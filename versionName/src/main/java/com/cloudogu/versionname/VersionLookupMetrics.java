@@ -0,0 +1,385 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link VersionLookupListener} that aggregates all events into lock-free counters and {@link LatencyHistogram}s.
+ * Recording an event does not block and, apart from the first event of each loading strategy, does not allocate.
+ * <p>Usage:</p>
+ * <pre>
+ * VersionLookupMetrics metrics = new VersionLookupMetrics();
+ * VersionNames.addLookupListener(metrics);
+ * // ...
+ * LOG.info("{}", metrics.snapshot());
+ * </pre>
+ */
+public class VersionLookupMetrics implements VersionLookupListener {
+
+    private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+    private final LatencyHistogram lookupLatency = new LatencyHistogram();
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder indexHits = new LongAdder();
+    private final LongAdder indexMisses = new LongAdder();
+
+    private final ConcurrentMap<String, StrategyMetrics> strategies = new ConcurrentHashMap<>();
+
+    private final LongAdder resourcesEnumerated = new LongAdder();
+    private final LongAdder resourcesRead = new LongAdder();
+    private final LongAdder resourcesFailed = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LatencyHistogram resourceLatency = new LatencyHistogram();
+    private final AtomicReference<SlowestResource> slowestResource = new AtomicReference<>();
+
+    public VersionLookupMetrics() {
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onCacheLookup(VersionLookup lookup, boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    @Override
+    public void onIndexLookup(VersionLookup lookup, boolean hit) {
+        (hit ? indexHits : indexMisses).increment();
+    }
+
+    @Override
+    public void onStrategyTried(VersionLookup lookup, LoadingStrategy strategy, boolean hit, boolean memoized,
+                                long durationNanos) {
+        StrategyMetrics metrics = strategies.computeIfAbsent(strategy.getClass().getSimpleName(),
+            name -> new StrategyMetrics());
+        metrics.attempts.increment();
+        if (hit) {
+            metrics.hits.increment();
+        }
+        metrics.latency.record(durationNanos);
+    }
+
+    @Override
+    public void onResourcesEnumerated(VersionLookup lookup, int count) {
+        resourcesEnumerated.add(count);
+    }
+
+    @Override
+    public void onResourceRead(VersionLookup lookup, URL url, long bytes, long durationNanos, boolean found) {
+        resourcesRead.increment();
+        bytesRead.add(bytes);
+        recordResourceLatency(url, durationNanos);
+    }
+
+    @Override
+    public void onResourceFailed(VersionLookup lookup, URL url, IOException exception, long durationNanos) {
+        resourcesFailed.increment();
+        recordResourceLatency(url, durationNanos);
+    }
+
+    @Override
+    public void onLookupFinished(VersionLookup lookup, Outcome outcome, long durationNanos) {
+        outcomes[outcome.ordinal()].increment();
+        lookupLatency.record(durationNanos);
+    }
+
+    private void recordResourceLatency(URL url, long durationNanos) {
+        resourceLatency.record(durationNanos);
+        SlowestResource slowest = slowestResource.get();
+        // Only allocates if this resource is the slowest so far
+        while (slowest == null || durationNanos > slowest.durationNanos) {
+            if (slowestResource.compareAndSet(slowest, new SlowestResource(url, durationNanos))) {
+                return;
+            }
+            slowest = slowestResource.get();
+        }
+    }
+
+    /**
+     * @return a copy of the current metrics. Events recorded concurrently may or may not be contained.
+     */
+    public Snapshot snapshot() {
+        Map<Outcome, Long> outcomeCounts = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            outcomeCounts.put(outcome, outcomes[outcome.ordinal()].sum());
+        }
+        Map<String, StrategySnapshot> strategySnapshots = new LinkedHashMap<>();
+        for (Map.Entry<String, StrategyMetrics> entry : strategies.entrySet()) {
+            StrategyMetrics metrics = entry.getValue();
+            strategySnapshots.put(entry.getKey(), new StrategySnapshot(metrics.attempts.sum(), metrics.hits.sum(),
+                metrics.latency.snapshot()));
+        }
+        SlowestResource slowest = slowestResource.get();
+        return new Snapshot(outcomeCounts, lookupLatency.snapshot(), cacheHits.sum(), cacheMisses.sum(),
+            indexHits.sum(), indexMisses.sum(), strategySnapshots, resourcesEnumerated.sum(), resourcesRead.sum(),
+            resourcesFailed.sum(), bytesRead.sum(), resourceLatency.snapshot(),
+            slowest == null ? null : slowest.url, slowest == null ? 0 : slowest.durationNanos);
+    }
+
+    /**
+     * Sets all metrics back to zero. Events recorded concurrently may or may not be dropped.
+     */
+    public void reset() {
+        for (LongAdder outcome : outcomes) {
+            outcome.reset();
+        }
+        lookupLatency.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        indexHits.reset();
+        indexMisses.reset();
+        strategies.clear();
+        resourcesEnumerated.reset();
+        resourcesRead.reset();
+        resourcesFailed.reset();
+        bytesRead.reset();
+        resourceLatency.reset();
+        slowestResource.set(null);
+    }
+
+    private static final class StrategyMetrics {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder hits = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private static final class SlowestResource {
+        final URL url;
+        final long durationNanos;
+
+        SlowestResource(URL url, long durationNanos) {
+            this.url = url;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    /**
+     * Immutable metrics of one {@link LoadingStrategy}.
+     */
+    public static final class StrategySnapshot {
+        private final long attempts;
+        private final long hits;
+        private final LatencyHistogram.Snapshot latency;
+
+        StrategySnapshot(long attempts, long hits, LatencyHistogram.Snapshot latency) {
+            this.attempts = attempts;
+            this.hits = hits;
+            this.latency = latency;
+        }
+
+        /**
+         * @return how often the strategy was asked for resources
+         */
+        public long getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return how often the strategy found at least one resource
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the time it took the strategy to find resources
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return "attempts=" + attempts + ", hits=" + hits + ", latency: " + latency;
+        }
+    }
+
+    /**
+     * An immutable copy of {@link VersionLookupMetrics}.
+     */
+    public static final class Snapshot {
+        private final Map<Outcome, Long> outcomes;
+        private final LatencyHistogram.Snapshot lookupLatency;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final long indexHits;
+        private final long indexMisses;
+        private final Map<String, StrategySnapshot> strategies;
+        private final long resourcesEnumerated;
+        private final long resourcesRead;
+        private final long resourcesFailed;
+        private final long bytesRead;
+        private final LatencyHistogram.Snapshot resourceLatency;
+        private final URL slowestResource;
+        private final long slowestResourceNanos;
+
+        @SuppressWarnings("squid:S00107") // A snapshot of all metrics
+        Snapshot(Map<Outcome, Long> outcomes, LatencyHistogram.Snapshot lookupLatency, long cacheHits,
+                 long cacheMisses, long indexHits, long indexMisses, Map<String, StrategySnapshot> strategies,
+                 long resourcesEnumerated, long resourcesRead, long resourcesFailed, long bytesRead,
+                 LatencyHistogram.Snapshot resourceLatency, URL slowestResource, long slowestResourceNanos) {
+            this.outcomes = Collections.unmodifiableMap(outcomes);
+            this.lookupLatency = lookupLatency;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.indexHits = indexHits;
+            this.indexMisses = indexMisses;
+            this.strategies = Collections.unmodifiableMap(strategies);
+            this.resourcesEnumerated = resourcesEnumerated;
+            this.resourcesRead = resourcesRead;
+            this.resourcesFailed = resourcesFailed;
+            this.bytesRead = bytesRead;
+            this.resourceLatency = resourceLatency;
+            this.slowestResource = slowestResource;
+            this.slowestResourceNanos = slowestResourceNanos;
+        }
+
+        /**
+         * @return the number of lookups that ended with <code>outcome</code>
+         */
+        public long getLookups(Outcome outcome) {
+            return outcomes.get(outcome);
+        }
+
+        /**
+         * @return the number of all lookups
+         */
+        public long getLookups() {
+            return lookupLatency.getCount();
+        }
+
+        /**
+         * @return the time the lookups took, from the call to the return of the version name
+         */
+        public LatencyHistogram.Snapshot getLookupLatency() {
+            return lookupLatency;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public long getIndexHits() {
+            return indexHits;
+        }
+
+        public long getIndexMisses() {
+            return indexMisses;
+        }
+
+        /**
+         * @return the metrics per loading strategy, by simple class name
+         */
+        public Map<String, StrategySnapshot> getStrategies() {
+            return strategies;
+        }
+
+        /**
+         * @return the number of resources found on the classpath
+         */
+        public long getResourcesEnumerated() {
+            return resourcesEnumerated;
+        }
+
+        /**
+         * @return the number of resources read successfully
+         */
+        public long getResourcesRead() {
+            return resourcesRead;
+        }
+
+        /**
+         * @return the number of resources that could not be read
+         */
+        public long getResourcesFailed() {
+            return resourcesFailed;
+        }
+
+        /**
+         * @return the number of bytes read from all resources
+         */
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return the time it took to open, read and parse each resource
+         */
+        public LatencyHistogram.Snapshot getResourceLatency() {
+            return resourceLatency;
+        }
+
+        /**
+         * @return the resource that took longest to read or <code>null</code> if no resource was read
+         */
+        public URL getSlowestResource() {
+            return slowestResource;
+        }
+
+        /**
+         * @return the time it took to read {@link #getSlowestResource()} in nanoseconds
+         */
+        public long getSlowestResourceNanos() {
+            return slowestResourceNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder()
+                .append("lookups: ").append(outcomes).append(", latency: ").append(lookupLatency)
+                .append("\ncache: hits=").append(cacheHits).append(", misses=").append(cacheMisses)
+                .append("\nindex: hits=").append(indexHits).append(", misses=").append(indexMisses);
+            for (Map.Entry<String, StrategySnapshot> strategy : strategies.entrySet()) {
+                builder.append('\n').append(strategy.getKey()).append(": ").append(strategy.getValue());
+            }
+            builder.append("\nresources: enumerated=").append(resourcesEnumerated)
+                .append(", read=").append(resourcesRead)
+                .append(", failed=").append(resourcesFailed)
+                .append(", bytes=").append(bytesRead)
+                .append(", latency: ").append(resourceLatency);
+            if (slowestResource != null) {
+                builder.append("\nslowest resource: ").append(slowestResource)
+                    .append(" (").append(TimeUnit.NANOSECONDS.toMicros(slowestResourceNanos)).append("us)");
+            }
+            return builder.toString();
+        }
+    }
+}
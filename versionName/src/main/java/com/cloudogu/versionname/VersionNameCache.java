@@ -0,0 +1,141 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches version names that have been successfully looked up, per {@link ClassLoader}.
+ * <p>The class loaders are held weakly, so a redeployed web application's class loader can still be garbage
+ * collected. Only the version name strings are held strongly. Cache hits don't take any lock.</p>
+ */
+final class VersionNameCache {
+
+    /**
+     * System property that allows for disabling the cache on startup, e.g. <code>-DversionName.cache=false</code>.
+     */
+    static final String PROPERTY_CACHE_ENABLED = "versionName.cache";
+
+    private final WeakClassLoaderMap<ConcurrentMap<Key, String>> entries = new WeakClassLoaderMap<>();
+
+    private volatile boolean enabled;
+
+    VersionNameCache(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return a cache that is enabled unless {@link #PROPERTY_CACHE_ENABLED} is set to <code>false</code>.
+     */
+    static VersionNameCache fromSystemProperties() {
+        return new VersionNameCache(!"false".equalsIgnoreCase(System.getProperty(PROPERTY_CACHE_ENABLED)));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the cache. Disabling also drops all cached entries.
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            invalidate();
+        }
+    }
+
+    /**
+     * @return the cached version name or <code>null</code> if there is none or the cache is disabled.
+     */
+    String get(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        if (!enabled || classLoader == null) {
+            return null;
+        }
+        ConcurrentMap<Key, String> entriesForClassLoader = entries.get(classLoader);
+        if (entriesForClassLoader == null) {
+            return null;
+        }
+        return entriesForClassLoader.get(new Key(sourceType, resourcePath, key));
+    }
+
+    /**
+     * Caches a version name. Does nothing if the cache is disabled.
+     */
+    void put(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key, String versionName) {
+        if (!enabled || classLoader == null) {
+            return;
+        }
+        ConcurrentMap<Key, String> entriesForClassLoader =
+            entries.computeIfAbsent(classLoader, cl -> new ConcurrentHashMap<>());
+        entriesForClassLoader.put(new Key(sourceType, resourcePath, key), versionName);
+    }
+
+    /**
+     * Drops all cached entries.
+     */
+    void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Drops all cached entries for <code>classLoader</code>.
+     */
+    void invalidate(ClassLoader classLoader) {
+        entries.remove(classLoader);
+    }
+
+    static final class Key {
+        private final SourceType sourceType;
+        private final String resourcePath;
+        private final String key;
+
+        Key(SourceType sourceType, String resourcePath, String key) {
+            this.sourceType = sourceType;
+            this.resourcePath = resourcePath;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return sourceType == other.sourceType
+                && resourcePath.equals(other.resourcePath)
+                && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceType, resourcePath, key);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An index written at build time that maps resource paths and keys to version names, so they can be looked up without
+ * scanning the classpath.
+ * <p>The index is a properties file located at {@link #INDEX_PATH}. Each key consists of the source type
+ * (<code>properties</code> or <code>manifest</code>), the resource path and the key within the resource, separated by
+ * <code>|</code>. For example:</p>
+ * <pre>
+ * properties|/app.properties|versionName=1.2.3
+ * manifest|META-INF/MANIFEST.MF|versionName=1.2.3
+ * </pre>
+ * <p>The annotation processor writes the index via <code>@VersionName(index = ...)</code>, reading the version names
+ * from the resources that are packaged. Each index only lists the resources of its own jar or class path directory.
+ * All indexes visible to a class loader are merged in class path order, so that, like the scan of the classpath, the
+ * first one that contains a version name wins.</p>
+ * <p>The indexes are read once per class loader, which is held weakly. The absence of an index is remembered as
+ * well.</p>
+ */
+final class VersionNameIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionNameIndex.class);
+
+    static final String INDEX_PATH = "META-INF/versionname.idx";
+
+    /**
+     * System property that allows for disabling the index on startup, e.g. <code>-DversionName.index=false</code>.
+     */
+    static final String PROPERTY_INDEX_ENABLED = "versionName.index";
+
+    static final String LOG_EXCEPTION_READING_INDEX = "Exception while reading version name index from {}";
+
+    private static final char SEPARATOR = '|';
+
+    // Read without locking, written while holding its lock
+    private final WeakClassLoaderMap<Map<String, String>> indexes = new WeakClassLoaderMap<>();
+    // Incremented by invalidate(), so that indexes read before are not remembered. Guarded by indexes.
+    private int generation;
+
+    private volatile boolean enabled;
+
+    VersionNameIndex(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return an index that is enabled unless {@link #PROPERTY_INDEX_ENABLED} is set to <code>false</code>.
+     */
+    static VersionNameIndex fromSystemProperties() {
+        return new VersionNameIndex(!"false".equalsIgnoreCase(System.getProperty(PROPERTY_INDEX_ENABLED)));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidate();
+    }
+
+    /**
+     * @return the version name from the index of <code>classLoader</code> or <code>null</code> if there is no index,
+     * it does not contain the version name or the index is disabled
+     */
+    String get(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        if (!enabled || classLoader == null) {
+            return null;
+        }
+        Map<String, String> index = indexes.get(classLoader);
+        if (index == null) {
+            int readGeneration;
+            synchronized (indexes) {
+                readGeneration = generation;
+            }
+            // Read without holding the lock, so that lookups of other class loaders don't wait for it
+            index = read(classLoader);
+            synchronized (indexes) {
+                Map<String, String> concurrentlyRead = indexes.get(classLoader);
+                if (concurrentlyRead != null) {
+                    index = concurrentlyRead;
+                } else if (readGeneration == generation) {
+                    indexes.put(classLoader, index);
+                }
+            }
+        }
+        String versionName = index.get(entryKey(sourceType, resourcePath, key));
+        if (versionName == null || versionName.isEmpty()) {
+            return null;
+        }
+        return versionName;
+    }
+
+    /**
+     * Drops all indexes read so far, so they are read again on the next call.
+     */
+    void invalidate() {
+        synchronized (indexes) {
+            generation++;
+            indexes.clear();
+        }
+    }
+
+    void invalidate(ClassLoader classLoader) {
+        synchronized (indexes) {
+            generation++;
+            indexes.remove(classLoader);
+        }
+    }
+
+    static String entryKey(SourceType sourceType, String resourcePath, String key) {
+        return sourceType.name().toLowerCase(Locale.ROOT) + SEPARATOR + resourcePath + SEPARATOR + key;
+    }
+
+    /**
+     * @return the merged indexes of <code>classLoader</code>. For entries contained in more than one index, the first
+     * one in class path order wins.
+     */
+    private static Map<String, String> read(ClassLoader classLoader) {
+        List<URL> urls;
+        try {
+            urls = Collections.list(classLoader.getResources(INDEX_PATH));
+        } catch (IOException e) {
+            LOG.warn(LOG_EXCEPTION_READING_INDEX, INDEX_PATH, e);
+            return Collections.emptyMap();
+        }
+        if (urls.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> index = new HashMap<>();
+        for (URL url : urls) {
+            for (Map.Entry<String, String> entry : read(url).entrySet()) {
+                index.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return index;
+    }
+
+    private static Map<String, String> read(URL url) {
+        try (InputStream in = url.openStream()) {
+            Properties properties = new Properties();
+            properties.load(in);
+            Map<String, String> index = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                index.put(name, properties.getProperty(name));
+            }
+            return index;
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn(LOG_EXCEPTION_READING_INDEX, url, e);
+            return Collections.emptyMap();
+        }
+    }
+}
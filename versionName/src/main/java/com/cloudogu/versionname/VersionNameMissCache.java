@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers lookups that did not find a version name for a limited time, per {@link ClassLoader}, so that a missing
+ * resource or key does not cause a classpath scan on every call.
+ * <p>The class loaders are held weakly, like in {@link VersionNameCache}. The number of entries per class loader is
+ * bounded by {@link #MAX_ENTRIES}; when it is reached, all entries of the class loader are dropped.</p>
+ */
+final class VersionNameMissCache {
+
+    /**
+     * System property for the time in milliseconds a lookup that did not find a version name is remembered, e.g.
+     * <code>-DversionName.missCache.ttlMillis=60000</code>. 0 disables remembering misses.
+     */
+    static final String PROPERTY_TTL_MILLIS = "versionName.missCache.ttlMillis";
+
+    static final long DEFAULT_TTL_MILLIS = 5000;
+
+    static final int MAX_ENTRIES = 1024;
+
+    private final LongSupplier nanoTime;
+
+    // Time the miss expires, in terms of nanoTime
+    private final WeakClassLoaderMap<ConcurrentMap<VersionNameCache.Key, Long>> entries = new WeakClassLoaderMap<>();
+
+    private volatile long ttlNanos;
+
+    VersionNameMissCache(long ttl, TimeUnit unit, LongSupplier nanoTime) {
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return a miss cache configured via {@link #PROPERTY_TTL_MILLIS}
+     */
+    static VersionNameMissCache fromSystemProperties() {
+        return new VersionNameMissCache(Long.getLong(PROPERTY_TTL_MILLIS, DEFAULT_TTL_MILLIS), TimeUnit.MILLISECONDS,
+            System::nanoTime);
+    }
+
+    /**
+     * Sets the time misses are remembered. Drops all misses remembered so far.
+     *
+     * @param ttl 0 disables remembering misses
+     */
+    void setTtl(long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+        }
+        ttlNanos = unit.toNanos(ttl);
+        invalidate();
+    }
+
+    long getTtl(TimeUnit unit) {
+        return unit.convert(ttlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return <code>true</code> if a lookup did not find the version name less than the TTL ago
+     */
+    boolean contains(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        if (ttlNanos <= 0 || classLoader == null) {
+            return false;
+        }
+        ConcurrentMap<VersionNameCache.Key, Long> entriesForClassLoader = entries.get(classLoader);
+        if (entriesForClassLoader == null) {
+            return false;
+        }
+        VersionNameCache.Key entryKey = new VersionNameCache.Key(sourceType, resourcePath, key);
+        Long expiry = entriesForClassLoader.get(entryKey);
+        if (expiry == null) {
+            return false;
+        }
+        if (nanoTime.getAsLong() - expiry >= 0) {
+            entriesForClassLoader.remove(entryKey, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remembers that a lookup did not find the version name. Does nothing if remembering misses is disabled.
+     */
+    void put(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        long ttl = ttlNanos;
+        if (ttl <= 0 || classLoader == null) {
+            return;
+        }
+        ConcurrentMap<VersionNameCache.Key, Long> entriesForClassLoader =
+            entries.computeIfAbsent(classLoader, cl -> new ConcurrentHashMap<>());
+        if (entriesForClassLoader.size() >= MAX_ENTRIES) {
+            // Keys are chosen by callers, don't let them grow without bounds
+            entriesForClassLoader.clear();
+        }
+        entriesForClassLoader.put(new VersionNameCache.Key(sourceType, resourcePath, key), nanoTime.getAsLong() + ttl);
+    }
+
+    /**
+     * Drops all remembered misses.
+     */
+    void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Drops all remembered misses for <code>classLoader</code>.
+     */
+    void invalidate(ClassLoader classLoader) {
+        entries.remove(classLoader);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+/**
+ * Provides version names known at compile time, so they can be looked up without reading any resources.
+ * <p>Providers are discovered once per context class loader via {@link java.util.ServiceLoader} and asked before the
+ * index and the classpath, in the order they are found. A provider is asked only for lookups of the class loader that
+ * loads it, not for lookups of its child class loaders. To provide version names, implement this interface with a
+ * public no-arg constructor and list the implementation in
+ * <code>META-INF/services/com.cloudogu.versionname.VersionNameProvider</code>. The annotation processor generates
+ * such a provider for <code>@VersionName(provider = true)</code>.</p>
+ * <p>A provider must only return version names for the lookups it belongs to, i.e. for the resource and key its own
+ * jar declares the version name in. Otherwise it hides the version names of other libraries and of the
+ * application.</p>
+ *
+ * @see VersionNames#setProvidersEnabled(boolean)
+ */
+public interface VersionNameProvider {
+
+    /**
+     * @param sourceType   the kind of resource the version name is looked up in
+     * @param resourcePath the path of the resource, as passed to {@link VersionNames}
+     * @param key          the key within the resource, as passed to {@link VersionNames}
+     * @return the version name or <code>null</code> if this provider does not know it. The next provider is asked then,
+     * then the index and the classpath.
+     */
+    String getVersionName(SourceType sourceType, String resourcePath, String key);
+}
@@ -0,0 +1,157 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * The {@link VersionNameProvider providers} of each class loader, discovered via {@link ServiceLoader}.
+ * <p>Providers are discovered once per class loader, which is held weakly. The absence of providers is remembered as
+ * well. Only providers loaded by the class loader itself are asked for its lookups. Providers of its parents, e.g.
+ * of libraries shared by the web applications of a container, would otherwise answer lookups of version names they
+ * don't belong to, in the order {@link ServiceLoader} happens to find them.</p>
+ */
+final class VersionNameProviders {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionNameProviders.class);
+
+    /**
+     * System property that allows for disabling providers on startup, e.g. <code>-DversionName.providers=false</code>.
+     */
+    static final String PROPERTY_PROVIDERS_ENABLED = "versionName.providers";
+
+    static final String LOG_EXCEPTION_DISCOVERING_PROVIDER = "Exception while discovering version name provider, skipping it";
+    static final String LOG_EXCEPTION_IN_PROVIDER = "Exception in version name provider {}, skipping it";
+    static final String LOG_FOREIGN_PROVIDER = "Skipping version name provider {}, which is loaded by another class loader";
+
+    // Read without locking, written while holding its lock
+    private final WeakClassLoaderMap<List<VersionNameProvider>> providers = new WeakClassLoaderMap<>();
+    // Incremented by invalidate(), so that providers discovered before are not remembered. Guarded by providers.
+    private int generation;
+
+    private volatile boolean enabled;
+
+    VersionNameProviders(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return providers that are enabled unless {@link #PROPERTY_PROVIDERS_ENABLED} is set to <code>false</code>.
+     */
+    static VersionNameProviders fromSystemProperties() {
+        return new VersionNameProviders(!"false".equalsIgnoreCase(System.getProperty(PROPERTY_PROVIDERS_ENABLED)));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        invalidate();
+    }
+
+    /**
+     * @return the version name from the first provider loaded by <code>classLoader</code> that knows it or
+     * <code>null</code> if there is none or providers are disabled
+     */
+    String get(ClassLoader classLoader, SourceType sourceType, String resourcePath, String key) {
+        if (!enabled || classLoader == null) {
+            return null;
+        }
+        List<VersionNameProvider> classLoaderProviders = providers.get(classLoader);
+        if (classLoaderProviders == null) {
+            int discoveryGeneration;
+            synchronized (providers) {
+                discoveryGeneration = generation;
+            }
+            // Discover without holding the lock, so that lookups of other class loaders don't wait for it
+            classLoaderProviders = discover(classLoader);
+            synchronized (providers) {
+                List<VersionNameProvider> concurrentlyDiscovered = providers.get(classLoader);
+                if (concurrentlyDiscovered != null) {
+                    classLoaderProviders = concurrentlyDiscovered;
+                } else if (discoveryGeneration == generation) {
+                    providers.put(classLoader, classLoaderProviders);
+                }
+            }
+        }
+        for (VersionNameProvider provider : classLoaderProviders) {
+            String versionName = getVersionName(provider, sourceType, resourcePath, key);
+            if (versionName != null && !versionName.isEmpty()) {
+                return versionName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops all providers discovered so far, so they are discovered again on the next call.
+     */
+    void invalidate() {
+        synchronized (providers) {
+            generation++;
+            providers.clear();
+        }
+    }
+
+    void invalidate(ClassLoader classLoader) {
+        synchronized (providers) {
+            generation++;
+            providers.remove(classLoader);
+        }
+    }
+
+    private static String getVersionName(VersionNameProvider provider, SourceType sourceType, String resourcePath,
+                                         String key) {
+        try {
+            return provider.getVersionName(sourceType, resourcePath, key);
+        } catch (RuntimeException e) {
+            LOG.warn(LOG_EXCEPTION_IN_PROVIDER, provider.getClass().getName(), e);
+            return null;
+        }
+    }
+
+    private static List<VersionNameProvider> discover(ClassLoader classLoader) {
+        List<VersionNameProvider> discovered = new ArrayList<>();
+        for (VersionNameProvider provider : ServiceProviders.load(VersionNameProvider.class, classLoader, LOG,
+            LOG_EXCEPTION_DISCOVERING_PROVIDER)) {
+            if (provider.getClass().getClassLoader() == classLoader) {
+                discovered.add(provider);
+            } else {
+                LOG.debug(LOG_FOREIGN_PROVIDER, provider.getClass().getName());
+            }
+        }
+        if (discovered.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return discovered;
+    }
+}
@@ -23,15 +23,28 @@
  */
 package com.cloudogu.versionname;
 
+import com.cloudogu.versionname.VersionLookupListener.Outcome;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.jar.Attributes;
-import java.util.jar.Manifest;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Provides access to version names written to files such as the manifest or a properties file.
@@ -40,12 +53,45 @@ public class VersionNames {
 
     private static final Logger LOG = LoggerFactory.getLogger(VersionNames.class);
 
-    // Defines which strategies are used and the order in which they are used
-    private static final List<LoadingStrategy> LOADING_STRATEGIES = Arrays.asList(
-        new GetResourcesLoadingStrategy(),
-        new GetSingleResourceLoadingStrategy(),
-        new RelativePathLoadingStrategy()
-    );
+    // Defines which strategies are used and the order in which they are used. Discovered once.
+    private static volatile List<LoadingStrategy> loadingStrategies =
+        LoadingStrategies.discover(VersionNames.class.getClassLoader());
+
+    // Successfully looked up version names, per context class loader
+    private static final VersionNameCache CACHE = VersionNameCache.fromSystemProperties();
+
+    // Lookups that did not find a version name, remembered for a while, per context class loader
+    private static final VersionNameMissCache MISSES = VersionNameMissCache.fromSystemProperties();
+
+    // Errors of lookups that fail on every call are logged once per interval. Package-private for tests.
+    static final RateLimitedLog ERROR_LOG = RateLimitedLog.fromSystemProperties(LOG);
+
+    // Loading strategy that yielded resources last time, per context class loader and resource path
+    private static final LoadingStrategyMemo<LoadingStrategy> STRATEGY_MEMO = new LoadingStrategyMemo<>();
+
+    // Version names written to an index at build time, per context class loader
+    private static final VersionNameIndex INDEX = VersionNameIndex.fromSystemProperties();
+
+    // Version names known at compile time, e.g. generated by the annotation processor. Asked before the index.
+    private static final VersionNameProviders PROVIDERS = VersionNameProviders.fromSystemProperties();
+
+    // Reads entries of jar files from a pool of open jars instead of going through JarURLConnection. Shared with
+    // VersionRegistry.
+    static final JarEntryReader JAR_READER = JarEntryReader.fromSystemProperties();
+
+    // Asynchronous lookups currently running, shared by concurrent callers
+    private static final InFlightLookups IN_FLIGHT_LOOKUPS = new InFlightLookups();
+
+    // Runs asynchronous lookups, unless the caller passes an executor. Default executor if null.
+    private static volatile Executor asyncExecutor;
+
+    // Receive events about each lookup, including JDK Flight Recorder if available
+    private static final LookupListeners LOOKUP_LISTENERS = LookupListeners.fromSystemProperties();
+
+    private static volatile DuplicatePropertyPolicy duplicatePropertyPolicy = DuplicatePropertyPolicy.LAST_WINS;
+
+    // Reads the resources found on the classpath concurrently if not null
+    private static volatile ExecutorService parallelScanExecutor;
 
     /**
      * The path of the properties file that is used for looking up the version name by default.
@@ -74,12 +120,280 @@ public class VersionNames {
      */
     static final String VERSION_STRING_ON_ERROR = "";
 
+    static final String LOG_NOT_A_VERSION = "Cannot parse version name \"{}\" as version: {}";
+
     /**
      * Utility class. Do not instantiate.
      */
     private VersionNames() {
     }
 
+    /**
+     * Enables or disables caching of version names. The cache is enabled by default, unless the system property
+     * <code>versionName.cache</code> is set to <code>false</code>.
+     * <p>Disabling the cache drops all cached entries, including remembered misses (see
+     * {@link #setMissCacheTtl(long, TimeUnit)}).</p>
+     *
+     * @param enabled <code>true</code> to cache version names per context class loader, <code>false</code> to read
+     *                them from the classpath on each call
+     */
+    public static void setCacheEnabled(boolean enabled) {
+        CACHE.setEnabled(enabled);
+        if (!enabled) {
+            MISSES.invalidate();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if version names are cached, otherwise <code>false</code>
+     */
+    public static boolean isCacheEnabled() {
+        return CACHE.isEnabled();
+    }
+
+    /**
+     * Drops all cached version names, so they are read from the classpath again on the next call, and closes all
+     * jars kept open.
+     */
+    public static void invalidateCache() {
+        CACHE.invalidate();
+        MISSES.invalidate();
+        PROVIDERS.invalidate();
+        INDEX.invalidate();
+        STRATEGY_MEMO.invalidate();
+        JAR_READER.getPool().flush();
+    }
+
+    /**
+     * Drops all version names cached for <code>classLoader</code>, e.g. when an application is redeployed, and closes
+     * the jars on its classpath kept open.
+     *
+     * @param classLoader the context class loader the version names were looked up with
+     */
+    public static void invalidateCache(ClassLoader classLoader) {
+        CACHE.invalidate(classLoader);
+        MISSES.invalidate(classLoader);
+        PROVIDERS.invalidate(classLoader);
+        INDEX.invalidate(classLoader);
+        STRATEGY_MEMO.invalidate(classLoader);
+        JAR_READER.flush(classLoader);
+    }
+
+    /**
+     * Sets the time a lookup that did not find a version name is remembered, while the cache is enabled. Within that
+     * time, looking up the same version name with the same context class loader returns the empty string right away,
+     * instead of scanning the classpath again. Default is 5 seconds, unless the system property
+     * <code>versionName.missCache.ttlMillis</code> is set.
+     * <p>Drops all misses remembered so far.</p>
+     *
+     * @param ttl 0 to scan the classpath again on each call that did not find a version name
+     */
+    public static void setMissCacheTtl(long ttl, TimeUnit unit) {
+        MISSES.setTtl(ttl, unit);
+    }
+
+    /**
+     * @return the time a lookup that did not find a version name is remembered
+     */
+    public static long getMissCacheTtl(TimeUnit unit) {
+        return MISSES.getTtl(unit);
+    }
+
+    /**
+     * Sets the interval in which identical errors of failing lookups, such as a missing resource, are logged only once.
+     * The next occurrence after the interval is logged with the number of occurrences suppressed in between. Default is
+     * 1 minute, unless the system property <code>versionName.errorLog.intervalMillis</code> is set.
+     *
+     * @param interval 0 to log each occurrence
+     */
+    public static void setErrorLogInterval(long interval, TimeUnit unit) {
+        ERROR_LOG.setInterval(interval, unit);
+    }
+
+    /**
+     * @return the interval in which identical errors of failing lookups are logged only once
+     */
+    public static long getErrorLogInterval(TimeUnit unit) {
+        return ERROR_LOG.getInterval(unit);
+    }
+
+    /**
+     * Enables or disables reading resources located in jar files (<code>jar:file:</code> URLs) by memory-mapping the
+     * jar and looking up the entry in its central directory, instead of opening it via
+     * {@link java.util.jar.JarFile}. Memory-mapped jars don't occupy file descriptors, but are only unmapped on garbage
+     * collection, which keeps them from being replaced on Windows. Disabled by default, unless the system property
+     * <code>versionName.mappedJarReader</code> is set to <code>true</code>.
+     *
+     * @param enabled <code>true</code> to read jar entries from memory-mapped jars, <code>false</code> to use
+     *                {@link java.util.jar.JarFile}
+     */
+    public static void setMappedJarReaderEnabled(boolean enabled) {
+        JAR_READER.setMapped(enabled);
+    }
+
+    /**
+     * @return <code>true</code> if jar entries are read from memory-mapped jars, otherwise <code>false</code>
+     */
+    public static boolean isMappedJarReaderEnabled() {
+        return JAR_READER.isMapped();
+    }
+
+    /**
+     * Sets the maximum number of jars kept open for reading resources from them again. If there are more, the least
+     * recently used ones are closed. Defaults to 1024, unless set via the system property
+     * <code>versionName.jarPool.maxSize</code>.
+     *
+     * @param maxSize the maximum number of open jars. 0 closes each jar right after reading from it.
+     */
+    public static void setJarPoolMaxSize(int maxSize) {
+        JAR_READER.getPool().setMaxSize(maxSize);
+    }
+
+    /**
+     * @return the maximum number of jars kept open
+     */
+    public static int getJarPoolMaxSize() {
+        return JAR_READER.getPool().getMaxSize();
+    }
+
+    /**
+     * Sets the time after which jars that have not been read from are closed. Defaults to 60 seconds, unless set in
+     * milliseconds via the system property <code>versionName.jarPool.idleTimeoutMillis</code>.
+     *
+     * @param idleTimeout a positive duration
+     * @param unit the unit of <code>idleTimeout</code>
+     */
+    public static void setJarPoolIdleTimeout(long idleTimeout, TimeUnit unit) {
+        JAR_READER.getPool().setIdleTimeout(idleTimeout, unit);
+    }
+
+    /**
+     * @return the time after which jars that have not been read from are closed
+     */
+    public static long getJarPoolIdleTimeout(TimeUnit unit) {
+        return JAR_READER.getPool().getIdleTimeout(unit);
+    }
+
+    /**
+     * Closes all jars kept open, e.g. before jars are replaced on redeploy. Jars that are currently being read are
+     * closed right after reading. Also done by {@link #invalidateCache()}.
+     */
+    public static void flushJarPool() {
+        JAR_READER.getPool().flush();
+    }
+
+    /**
+     * Enables or disables asking the {@link VersionNameProvider providers} visible to the context class loader, e.g. the
+     * one generated by the annotation processor for <code>@VersionName(provider = true)</code>. If a provider knows the
+     * version name, no resources are read. Enabled by default, unless the system property
+     * <code>versionName.providers</code> is set to <code>false</code>.
+     *
+     * @param enabled <code>true</code> to ask providers first
+     */
+    public static void setProvidersEnabled(boolean enabled) {
+        PROVIDERS.setEnabled(enabled);
+        CACHE.invalidate();
+        MISSES.invalidate();
+    }
+
+    /**
+     * @return <code>true</code> if providers are asked first, otherwise <code>false</code>
+     */
+    public static boolean isProvidersEnabled() {
+        return PROVIDERS.isEnabled();
+    }
+
+    /**
+     * Enables or disables looking up version names in an index written at build time to
+     * <code>META-INF/versionname.idx</code>. If the index of the context class loader contains a version name, the
+     * classpath is not scanned. Enabled by default, unless the system property <code>versionName.index</code> is set
+     * to <code>false</code>.
+     *
+     * @param enabled <code>true</code> to look up version names in the index first
+     */
+    public static void setIndexEnabled(boolean enabled) {
+        INDEX.setEnabled(enabled);
+        CACHE.invalidate();
+        MISSES.invalidate();
+    }
+
+    /**
+     * @return <code>true</code> if version names are looked up in the index first, otherwise <code>false</code>
+     */
+    public static boolean isIndexEnabled() {
+        return INDEX.isEnabled();
+    }
+
+    /**
+     * Returns how often each strategy for finding resources on the classpath has been tried and how often it yielded
+     * resources. The strategy that yielded resources is remembered per context class loader and resource path and
+     * tried first on the next lookup.
+     *
+     * @return a snapshot of the statistics, one per strategy, in the order the strategies are tried
+     */
+    public static List<LoadingStrategyStatistics> getLoadingStrategyStatistics() {
+        return STRATEGY_MEMO.statistics(loadingStrategies);
+    }
+
+    /**
+     * @return the strategies used for finding resources on the classpath, in the order they are tried
+     */
+    public static List<LoadingStrategy> getLoadingStrategies() {
+        return loadingStrategies;
+    }
+
+    /**
+     * Replaces the strategies used for finding resources on the classpath. By default, these are the built-in
+     * strategies plus the ones discovered via {@link java.util.ServiceLoader}, without the ones excluded via the system
+     * property <code>versionName.excludedLoadingStrategies</code> (comma-separated class names).
+     *
+     * @param strategies the strategies to use. They are tried in ascending order of their priority.
+     *                   <code>null</code> to discover the default strategies again.
+     */
+    public static void setLoadingStrategies(List<? extends LoadingStrategy> strategies) {
+        if (strategies == null) {
+            loadingStrategies = LoadingStrategies.discover(VersionNames.class.getClassLoader());
+        } else {
+            loadingStrategies = LoadingStrategies.arrange(strategies, Collections.<String>emptySet());
+        }
+        STRATEGY_MEMO.invalidate();
+    }
+
+    /**
+     * Resets the counters returned by {@link #getLoadingStrategyStatistics()}.
+     */
+    public static void resetLoadingStrategyStatistics() {
+        STRATEGY_MEMO.resetStatistics();
+    }
+
+    /**
+     * Defines which value {@link #getVersionNameFromProperties(String, String)} returns if the property is contained
+     * in the properties file more than once. Default is {@link DuplicatePropertyPolicy#LAST_WINS}.
+     *
+     * @param policy the policy to use for all following calls. Not <code>null</code>.
+     */
+    public static void setDuplicatePropertyPolicy(DuplicatePropertyPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        duplicatePropertyPolicy = policy;
+        // Cached values might have been read with the other policy
+        CACHE.invalidate();
+    }
+
+    /**
+     * Enables reading the resources found on the classpath concurrently. This can speed up lookups where many
+     * resources are found, e.g. <code>META-INF/MANIFEST.MF</code> in applications consisting of many jars.
+     * <p>The version name returned is always the same as when reading the resources one after another: The first
+     * resource in classpath order that contains the version name wins. Resources after it are skipped or cancelled.</p>
+     *
+     * @param executor executes the reads, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}. The executor is
+     *                 not shut down by this library. <code>null</code> to read resources sequentially (default).
+     */
+    public static void setParallelScanExecutor(ExecutorService executor) {
+        parallelScanExecutor = executor;
+    }
+
     /**
      * Reads the version name from a default properties file <code>/app.properties</code> and property
      * <code>versionName</code>.
@@ -98,23 +412,7 @@ public class VersionNames {
      * @return the version name or empty string if anything goes wrong. In case of error, see log for details.
      */
     public static String getVersionNameFromProperties(String propertiesFilePath, String property) {
-        return new VersionName() {
-            @Override
-            protected String handleResourceStream(InputStream resourceAsStream, String key) throws IOException {
-                Properties props = new Properties();
-
-                props.load(resourceAsStream);
-                Object versionNameObject = props.get(key);
-                // Properties.get() seems to always return strings. But: In theory, it could return any other object.
-                if (versionNameObject instanceof String) {
-                    return (String) versionNameObject;
-                } else if (versionNameObject != null) {
-                    return versionNameObject.toString();
-                } else {
-                    return null;
-                }
-            }
-        }.fromResource(propertiesFilePath, property);
+        return propertiesVersionName().fromResource(propertiesFilePath, property);
     }
 
     /**
@@ -135,14 +433,308 @@ public class VersionNames {
      * @return the version name or empty string if anything goes wrong. In case of error, see log for details.
      */
     public static String getVersionNameFromManifest(String manifestFilePath, String attribute) {
-        return new VersionName() {
+        return manifestVersionName().fromResource(manifestFilePath, attribute);
+    }
+
+    private static VersionName propertiesVersionName() {
+        return new VersionName(SourceType.PROPERTIES) {
             @Override
             protected String handleResourceStream(InputStream resourceAsStream, String key) throws IOException {
-                Manifest manifest = new Manifest(resourceAsStream);
-                Attributes attributes = manifest.getMainAttributes();
-                return attributes.getValue(key);
+                return PropertiesScanner.findProperty(resourceAsStream, key,
+                    duplicatePropertyPolicy == DuplicatePropertyPolicy.FIRST_WINS);
             }
-        }.fromResource(manifestFilePath, attribute);
+        };
+    }
+
+    private static VersionName manifestVersionName() {
+        return new VersionName(SourceType.MANIFEST) {
+            @Override
+            protected String handleResourceStream(InputStream resourceAsStream, String key) throws IOException {
+                return ManifestScanner.findMainAttribute(resourceAsStream, key);
+            }
+        };
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties()} and parses it as {@link Version}.
+     *
+     * @return the version or <code>null</code> if anything goes wrong or the version name is not a version. In case
+     * of error, see log for details.
+     */
+    public static Version getVersionFromProperties() {
+        return getVersionFromProperties(DEFAULT_PROPERTIES_FILE_PATH, DEFAULT_PROPERTY);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties(String, String)} and parses it as
+     * {@link Version}. Parsed versions are interned, so repeated calls usually return the same instance.
+     *
+     * @return the version or <code>null</code> if anything goes wrong or the version name is not a version. In case
+     * of error, see log for details.
+     */
+    public static Version getVersionFromProperties(String propertiesFilePath, String property) {
+        return toVersion(getVersionNameFromProperties(propertiesFilePath, property));
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest()} and parses it as {@link Version}.
+     *
+     * @return the version or <code>null</code> if anything goes wrong or the version name is not a version. In case
+     * of error, see log for details.
+     */
+    public static Version getVersionFromManifest() {
+        return getVersionFromManifest(DEFAULT_MANIFEST_PATH, DEFAULT_MANIFEST_ATTRIBUTE);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest(String, String)} and parses it as
+     * {@link Version}. Parsed versions are interned, so repeated calls usually return the same instance.
+     *
+     * @return the version or <code>null</code> if anything goes wrong or the version name is not a version. In case
+     * of error, see log for details.
+     */
+    public static Version getVersionFromManifest(String manifestFilePath, String attribute) {
+        return toVersion(getVersionNameFromManifest(manifestFilePath, attribute));
+    }
+
+    private static Version toVersion(String versionName) {
+        if (VERSION_STRING_ON_ERROR.equals(versionName)) {
+            return null;
+        }
+        try {
+            return Version.parse(versionName);
+        } catch (IllegalArgumentException e) {
+            ERROR_LOG.error(LOG_NOT_A_VERSION, versionName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties()} and keeps following changes of
+     * <code>/app.properties</code>, if it is a plain file.
+     *
+     * @see #watchVersionNameFromProperties(String, String)
+     */
+    public static WatchedVersionName watchVersionNameFromProperties() {
+        return watchVersionNameFromProperties(DEFAULT_PROPERTIES_FILE_PATH, DEFAULT_PROPERTY);
+    }
+
+    /**
+     * Reads the version name from <code>propertiesFilePath</code> and <code>property</code> and keeps following changes
+     * of the properties file, e.g. in exploded deployments where a new build is copied in while the application is
+     * running.
+     * <p>The properties file that contains the version name is looked up with the context class loader of the calling
+     * thread. If it is a <code>file:</code> resource, it is watched via {@link java.nio.file.WatchService} and read
+     * again only when it changes. The new version name is then cached, so that
+     * {@link #getVersionNameFromProperties(String, String)} returns it as well, and the subscribers of the returned
+     * {@link WatchedVersionName} are notified. Version names known at compile time or from the index are not taken
+     * into account, as they can't change.</p>
+     *
+     * @param propertiesFilePath path to the properties file to open from classpath, relative to this class.
+     * @param property           property within <code>propertiesFilePath</code> that is used for looking up the version name
+     * @return the watched version name. Its value is the empty string if anything goes wrong. In case of error, see log
+     * for details.
+     */
+    public static WatchedVersionName watchVersionNameFromProperties(String propertiesFilePath, String property) {
+        return propertiesVersionName().watch(propertiesFilePath, property);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest()} and keeps following changes of
+     * <code>META-INF/MANIFEST.MF</code>, if it is a plain file.
+     *
+     * @see #watchVersionNameFromProperties(String, String)
+     */
+    public static WatchedVersionName watchVersionNameFromManifest() {
+        return watchVersionNameFromManifest(DEFAULT_MANIFEST_PATH, DEFAULT_MANIFEST_ATTRIBUTE);
+    }
+
+    /**
+     * Reads the version name from <code>manifestFilePath</code> and <code>attribute</code> and keeps following changes
+     * of the manifest, if it is a plain file. See {@link #watchVersionNameFromProperties(String, String)} for details.
+     *
+     * @param manifestFilePath path to the manifest file to open from classpath, relative to this class.
+     * @param attribute        attribute within <code>manifestFilePath</code> that is used for looking up the version name
+     * @return the watched version name. Its value is the empty string if anything goes wrong. In case of error, see log
+     * for details.
+     */
+    public static WatchedVersionName watchVersionNameFromManifest(String manifestFilePath, String attribute) {
+        return manifestVersionName().watch(manifestFilePath, attribute);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties()}, but without blocking the calling thread.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #getVersionNameFromPropertiesAsync(String, String, Executor)
+     */
+    public static CompletableFuture<String> getVersionNameFromPropertiesAsync() {
+        return getVersionNameFromPropertiesAsync(DEFAULT_PROPERTIES_FILE_PATH, DEFAULT_PROPERTY);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties(String, String)}, but without blocking the
+     * calling thread.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #getVersionNameFromPropertiesAsync(String, String, Executor)
+     */
+    public static CompletableFuture<String> getVersionNameFromPropertiesAsync(String propertiesFilePath,
+                                                                             String property) {
+        return getVersionNameFromPropertiesAsync(propertiesFilePath, property, null);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromProperties(String, String)}, but without blocking the
+     * calling thread, e.g. on an event loop.
+     * <p>The version name is looked up with the context class loader of the calling thread. If it is cached, the
+     * returned future is already completed. Otherwise the lookup runs on <code>executor</code>. Concurrent callers
+     * of the same lookup share a single execution.</p>
+     *
+     * @param executor runs the lookup. If <code>null</code>, the executor set via
+     *                 {@link #setAsyncExecutor(Executor)} or a default bounded executor is used.
+     * @return a future that is completed with the version name or empty string if anything goes wrong. Completed
+     * exceptionally with a {@link java.util.concurrent.RejectedExecutionException} if the executor rejects the lookup.
+     */
+    public static CompletableFuture<String> getVersionNameFromPropertiesAsync(String propertiesFilePath,
+                                                                             String property, Executor executor) {
+        return lookupAsync(SourceType.PROPERTIES, propertiesFilePath, property, executor,
+            () -> getVersionNameFromProperties(propertiesFilePath, property));
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest()}, but without blocking the calling thread.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #getVersionNameFromPropertiesAsync(String, String, Executor)
+     */
+    public static CompletableFuture<String> getVersionNameFromManifestAsync() {
+        return getVersionNameFromManifestAsync(DEFAULT_MANIFEST_PATH, DEFAULT_MANIFEST_ATTRIBUTE);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest(String, String)}, but without blocking the
+     * calling thread.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #getVersionNameFromPropertiesAsync(String, String, Executor)
+     */
+    public static CompletableFuture<String> getVersionNameFromManifestAsync(String manifestFilePath,
+                                                                           String attribute) {
+        return getVersionNameFromManifestAsync(manifestFilePath, attribute, null);
+    }
+
+    /**
+     * Reads the version name like {@link #getVersionNameFromManifest(String, String)}, but without blocking the
+     * calling thread. See {@link #getVersionNameFromPropertiesAsync(String, String, Executor)} for details.
+     *
+     * @param executor runs the lookup. If <code>null</code>, the executor set via
+     *                 {@link #setAsyncExecutor(Executor)} or a default bounded executor is used.
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     */
+    public static CompletableFuture<String> getVersionNameFromManifestAsync(String manifestFilePath, String attribute,
+                                                                           Executor executor) {
+        return lookupAsync(SourceType.MANIFEST, manifestFilePath, attribute, executor,
+            () -> getVersionNameFromManifest(manifestFilePath, attribute));
+    }
+
+    /**
+     * Starts reading the version name like {@link #getVersionNameFromProperties()} on a background thread, e.g. at
+     * application startup.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #prefetchVersionNameFromProperties(String, String)
+     */
+    public static CompletableFuture<String> prefetchVersionNameFromProperties() {
+        return prefetchVersionNameFromProperties(DEFAULT_PROPERTIES_FILE_PATH, DEFAULT_PROPERTY);
+    }
+
+    /**
+     * Starts reading the version name like {@link #getVersionNameFromProperties(String, String)} on a background
+     * thread, e.g. at application startup. This takes the classpath scan off the critical path of the first request
+     * that needs the version name.
+     * <p>The version name is looked up with the context class loader of the calling thread. Prefetched lookups are run
+     * one after another on a single daemon thread, which does not keep the JVM from exiting.
+     * {@link #getVersionNameFromProperties(String, String)} returns the prefetched version name from the cache or, if
+     * the prefetch is still running, waits for it instead of scanning the classpath again.</p>
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     */
+    public static CompletableFuture<String> prefetchVersionNameFromProperties(String propertiesFilePath,
+                                                                             String property) {
+        return lookupAsync(SourceType.PROPERTIES, propertiesFilePath, property, PrefetchExecutor.INSTANCE,
+            () -> getVersionNameFromProperties(propertiesFilePath, property));
+    }
+
+    /**
+     * Starts reading the version name like {@link #getVersionNameFromManifest()} on a background thread, e.g. at
+     * application startup.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     * @see #prefetchVersionNameFromProperties(String, String)
+     */
+    public static CompletableFuture<String> prefetchVersionNameFromManifest() {
+        return prefetchVersionNameFromManifest(DEFAULT_MANIFEST_PATH, DEFAULT_MANIFEST_ATTRIBUTE);
+    }
+
+    /**
+     * Starts reading the version name like {@link #getVersionNameFromManifest(String, String)} on a background thread,
+     * e.g. at application startup. See {@link #prefetchVersionNameFromProperties(String, String)} for details.
+     *
+     * @return a future that is completed with the version name or empty string if anything goes wrong
+     */
+    public static CompletableFuture<String> prefetchVersionNameFromManifest(String manifestFilePath,
+                                                                           String attribute) {
+        return lookupAsync(SourceType.MANIFEST, manifestFilePath, attribute, PrefetchExecutor.INSTANCE,
+            () -> getVersionNameFromManifest(manifestFilePath, attribute));
+    }
+
+    /**
+     * Sets the executor that runs asynchronous lookups for which the caller does not pass an executor. By default,
+     * a pool of up to 4 daemon threads with a queue of 1000 lookups is used, which is only started on the first
+     * asynchronous lookup.
+     *
+     * @param executor the executor to use or <code>null</code> for the default one
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    private static CompletableFuture<String> lookupAsync(SourceType sourceType, String resourcePath, String key,
+                                                         Executor executor, Supplier<String> lookup) {
+        if (resourcePath != null && key != null
+            && CACHE.get(Thread.currentThread().getContextClassLoader(), sourceType, resourcePath, key) != null) {
+            // Answered from the cache without blocking, no need to hand off
+            return CompletableFuture.completedFuture(lookup.get());
+        }
+        Executor lookupExecutor = executor;
+        if (lookupExecutor == null) {
+            lookupExecutor = asyncExecutor;
+        }
+        if (lookupExecutor == null) {
+            lookupExecutor = DefaultAsyncExecutor.INSTANCE;
+        }
+        return IN_FLIGHT_LOOKUPS.lookup(sourceType, resourcePath, key, lookupExecutor, lookup);
+    }
+
+    /**
+     * Holds the default executor for asynchronous lookups, so it's only created when needed.
+     */
+    private static final class DefaultAsyncExecutor {
+        static final Executor INSTANCE = InFlightLookups.createDefaultExecutor();
+
+        private DefaultAsyncExecutor() {
+        }
+    }
+
+    /**
+     * Holds the executor for prefetched lookups, so it's only created when needed.
+     */
+    private static final class PrefetchExecutor {
+        static final Executor INSTANCE = InFlightLookups.createPrefetchExecutor();
+
+        private PrefetchExecutor() {
+        }
     }
 
     /**
@@ -159,6 +751,25 @@ public class VersionNames {
         static final String LOG_EXCEPTION_READING_FROM_RESOURCE = "Exception while reading version name from {}";
         static final String LOG_EXCEPTION_GETTING_MANIFESTS_FROM_CLASSPATH = "Exception while reading manifests from classpath: {}";
         static final String LOG_EXCEPTION_ON_CLOSE = "Unable to close resource stream after reading version number";
+        static final String LOG_PARALLEL_SCAN_REJECTED = "Executor rejected reading resources in parallel, reading them sequentially";
+        static final String LOG_INTERRUPTED = "Interrupted while reading version name from {}";
+        static final String LOG_IN_FLIGHT_LOOKUP_FAILED = "Asynchronous lookup of {} failed, reading version name again";
+        static final String LOG_NOT_WATCHABLE = "Version name in {} is not a file and can't change, not watching it";
+        static final String LOG_EXCEPTION_WATCHING = "Exception while watching {} for changes";
+
+        private final SourceType sourceType;
+
+        // Only set if there are listeners, when the lookup starts
+        private VersionLookupListener listener;
+        private VersionLookup lookup;
+        private Outcome outcome = Outcome.NOT_FOUND;
+
+        /**
+         * @param sourceType the kind of resource this reads from, used for caching
+         */
+        VersionName(SourceType sourceType) {
+            this.sourceType = sourceType;
+        }
 
         /**
          * Template method that implements the actual version number logic.
@@ -178,21 +789,166 @@ public class VersionNames {
          * @return the version number or {@link #VERSION_STRING_ON_ERROR}, if none found. Never <code>null</code>
          */
         public String fromResource(String resourcePath, String key) {
+            long start = 0;
+            if (LOOKUP_LISTENERS.isActive()) {
+                listener = LOOKUP_LISTENERS;
+                lookup = new VersionLookup(sourceType, resourcePath, key);
+                start = System.nanoTime();
+            }
+
             String versionName = VERSION_STRING_ON_ERROR;
             if (resourcePath == null) {
-                LOG.error(LOG_RESOURCE_PATH_NULL);
+                ERROR_LOG.error(LOG_RESOURCE_PATH_NULL);
+                outcome = Outcome.INVALID_ARGUMENT;
             } else if (key == null) {
-                LOG.error(LOG_KEY_NULL);
+                ERROR_LOG.error(LOG_KEY_NULL);
+                outcome = Outcome.INVALID_ARGUMENT;
             } else {
-                versionName = processResource(resourcePath, key);
+                versionName = processResourceCached(resourcePath, key);
             }
 
             // Never return null
             if (versionName == null) {
-                LOG.error(LOG_NOT_FOUND_IN_RESOURCE, resourcePath);
+                ERROR_LOG.error(LOG_NOT_FOUND_IN_RESOURCE, resourcePath);
                 versionName = VERSION_STRING_ON_ERROR;
             }
 
+            if (listener != null) {
+                listener.onLookupFinished(lookup, outcome, System.nanoTime() - start);
+            }
+            return versionName;
+        }
+
+        /**
+         * Looks up the resource that contains the version name, like {@link #fromResource(String, String)} but without
+         * asking {@link #CACHE}, {@link #PROVIDERS} and {@link #INDEX}, and watches it for changes if it is a file.
+         *
+         * @return the watched version name, whose value is {@link #VERSION_STRING_ON_ERROR} if none found. Never
+         * <code>null</code>
+         */
+        WatchedVersionName watch(String resourcePath, String key) {
+            if (resourcePath == null) {
+                ERROR_LOG.error(LOG_RESOURCE_PATH_NULL);
+                return WatchedVersionName.unwatched(VERSION_STRING_ON_ERROR);
+            }
+            if (key == null) {
+                ERROR_LOG.error(LOG_KEY_NULL);
+                return WatchedVersionName.unwatched(VERSION_STRING_ON_ERROR);
+            }
+
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Enumeration<URL> resources = getResources(resourcePath);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                String versionName = processUrl(resourcePath, key, url);
+                if (versionName != null) {
+                    CACHE.put(classLoader, sourceType, resourcePath, key, versionName);
+                    return watch(classLoader, resourcePath, key, url, versionName);
+                }
+            }
+            ERROR_LOG.error(LOG_NOT_FOUND_IN_RESOURCE, resourcePath);
+            return WatchedVersionName.unwatched(VERSION_STRING_ON_ERROR);
+        }
+
+        private WatchedVersionName watch(ClassLoader classLoader, String resourcePath, String key, URL url,
+                                         String versionName) {
+            Path file = toFile(url);
+            if (file == null) {
+                LOG.debug(LOG_NOT_WATCHABLE, url);
+                return WatchedVersionName.unwatched(versionName);
+            }
+            // Don't keep a redeployed web application's class loader from being garbage collected
+            Reference<ClassLoader> classLoaderReference = new WeakReference<>(classLoader);
+            WatchedVersionName watched = new WatchedVersionName(versionName, file,
+                resourceStream -> handleResourceStream(resourceStream, key),
+                newVersionName -> {
+                    ClassLoader watchedClassLoader = classLoaderReference.get();
+                    if (watchedClassLoader != null) {
+                        CACHE.put(watchedClassLoader, sourceType, resourcePath, key, newVersionName);
+                    }
+                });
+            try {
+                watched.watch();
+            } catch (IOException e) {
+                LOG.warn(LOG_EXCEPTION_WATCHING, file, e);
+            }
+            return watched;
+        }
+
+        /**
+         * @return the file <code>url</code> points to or <code>null</code> if it is not a <code>file:</code> URL
+         */
+        private static Path toFile(URL url) {
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                return Paths.get(url.toURI());
+            } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the version name from {@link #CACHE}, {@link #PROVIDERS} or {@link #INDEX}, if present, and
+         * <code>null</code> if {@link #MISSES} remembers it to be missing. Otherwise calls
+         * {@link #processResource(String, String)} and caches the result.
+         */
+        private String processResourceCached(String resourcePath, String key) {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            String versionName = CACHE.get(classLoader, sourceType, resourcePath, key);
+            if (listener != null && CACHE.isEnabled()) {
+                listener.onCacheLookup(lookup, versionName != null);
+            }
+            if (versionName != null) {
+                outcome = Outcome.CACHE_HIT;
+                return versionName;
+            }
+
+            versionName = PROVIDERS.get(classLoader, sourceType, resourcePath, key);
+            if (versionName != null) {
+                outcome = Outcome.PROVIDER_HIT;
+                return versionName;
+            }
+
+            versionName = INDEX.get(classLoader, sourceType, resourcePath, key);
+            if (listener != null && INDEX.isEnabled()) {
+                listener.onIndexLookup(lookup, versionName != null);
+            }
+            if (versionName != null) {
+                outcome = Outcome.INDEX_HIT;
+                return versionName;
+            }
+
+            if (CACHE.isEnabled() && MISSES.contains(classLoader, sourceType, resourcePath, key)) {
+                outcome = Outcome.MISS_CACHE_HIT;
+                return null;
+            }
+
+            CompletableFuture<String> inFlight = IN_FLIGHT_LOOKUPS.find(classLoader, sourceType, resourcePath, key);
+            if (inFlight != null) {
+                // Prefetched or requested asynchronously, wait for the remaining work instead of scanning again
+                try {
+                    versionName = inFlight.get();
+                    outcome = VERSION_STRING_ON_ERROR.equals(versionName) ? Outcome.NOT_FOUND : Outcome.FOUND;
+                    return versionName;
+                } catch (InterruptedException e) {
+                    LOG.error(LOG_INTERRUPTED, resourcePath);
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (ExecutionException | CancellationException e) {
+                    LOG.debug(LOG_IN_FLIGHT_LOOKUP_FAILED, resourcePath, e);
+                }
+            }
+
+            versionName = processResource(resourcePath, key);
+            if (versionName != null) {
+                outcome = Outcome.FOUND;
+                CACHE.put(classLoader, sourceType, resourcePath, key, versionName);
+            } else if (CACHE.isEnabled() && !Thread.currentThread().isInterrupted()) {
+                // An interrupted scan is incomplete, so it does not prove the version name to be missing
+                MISSES.put(classLoader, sourceType, resourcePath, key);
+            }
             return versionName;
         }
 
@@ -203,6 +959,18 @@ public class VersionNames {
         private String processResource(String resourcePath, String key) {
             Enumeration<URL> resources = getResources(resourcePath);
 
+            ExecutorService executor = parallelScanExecutor;
+            if (executor != null || listener != null) {
+                List<URL> urls = Collections.list(resources);
+                if (listener != null) {
+                    listener.onResourcesEnumerated(lookup, urls.size());
+                }
+                if (executor != null && urls.size() > 1) {
+                    return processUrlsInParallel(resourcePath, key, urls, executor);
+                }
+                resources = Collections.enumeration(urls);
+            }
+
             while (resources.hasMoreElements()) {
                 String potentialVersion = processUrl(resourcePath, key, resources.nextElement());
                 if (potentialVersion != null) {
@@ -212,22 +980,60 @@ public class VersionNames {
             return null;
         }
 
+        /**
+         * Opens and reads <code>urls</code> concurrently, but returns the same version name as reading them one after
+         * another would.
+         */
+        private String processUrlsInParallel(String resourcePath, String key, List<URL> urls,
+                                             ExecutorService executor) {
+            try {
+                return OrderedParallelSearch.findFirst(urls, url -> processUrl(resourcePath, key, url), executor);
+            } catch (RejectedExecutionException e) {
+                LOG.warn(LOG_PARALLEL_SCAN_REJECTED, e);
+                for (URL url : urls) {
+                    String potentialVersion = processUrl(resourcePath, key, url);
+                    if (potentialVersion != null) {
+                        return potentialVersion;
+                    }
+                }
+                return null;
+            } catch (InterruptedException e) {
+                LOG.error(LOG_INTERRUPTED, resourcePath);
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
         @SuppressWarnings("squid:S2583") // How can sonar be sure that openStream() always returns non-null?
         private String processUrl(String resourcePath, String key, URL url) {
+            long start = listener != null ? System.nanoTime() : 0;
             InputStream resourceStream = null;
             try {
-                resourceStream = url.openStream();
+                resourceStream = JAR_READER.openStream(url);
 
                 if (resourceStream != null) {
+                    CountingInputStream countingStream = null;
+                    if (listener != null) {
+                        countingStream = new CountingInputStream(resourceStream);
+                        resourceStream = countingStream;
+                    }
                     String potentialVersion = handleResourceStream(resourceStream, key);
-                    if (potentialVersion != null && !potentialVersion.isEmpty()) {
+                    boolean found = potentialVersion != null && !potentialVersion.isEmpty();
+                    if (countingStream != null) {
+                        listener.onResourceRead(lookup, url, countingStream.getCount(), System.nanoTime() - start,
+                            found);
+                    }
+                    if (found) {
                         return potentialVersion;
                     }
                 } else {
-                    LOG.error(LOG_RESOURCE_NOT_FOUND, resourcePath);
+                    ERROR_LOG.error(LOG_RESOURCE_NOT_FOUND, resourcePath);
                 }
             } catch (IOException e) {
-                LOG.error(LOG_EXCEPTION_READING_FROM_RESOURCE, resourcePath, e);
+                ERROR_LOG.error(LOG_EXCEPTION_READING_FROM_RESOURCE, resourcePath, e);
+                if (listener != null) {
+                    listener.onResourceFailed(lookup, url, e, System.nanoTime() - start);
+                }
             } finally {
                 closeStreamIfNotNull(resourceStream);
             }
@@ -235,11 +1041,30 @@ public class VersionNames {
         }
 
         private Enumeration<URL> getResources(String resourcePath) {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
 
-            for (LoadingStrategy loadingStrategy : LOADING_STRATEGIES) {
-                Enumeration<URL> potentialResources = tryLoading(resourcePath, loadingStrategy);
+            LoadingStrategy rememberedStrategy = STRATEGY_MEMO.get(classLoader, resourcePath);
+            if (rememberedStrategy != null) {
+                Enumeration<URL> potentialResources = tryLoading(classLoader, resourcePath, rememberedStrategy, true);
+                boolean hit = potentialResources.hasMoreElements();
+                STRATEGY_MEMO.recordAttempt(rememberedStrategy, hit, true);
+                if (hit) {
+                    return potentialResources;
+                }
+                // Strategy stopped yielding resources, so try all of them again
+                STRATEGY_MEMO.forget(classLoader, resourcePath);
+            }
 
-                if (potentialResources.hasMoreElements()) {
+            for (LoadingStrategy loadingStrategy : loadingStrategies) {
+                if (loadingStrategy == rememberedStrategy) {
+                    continue;
+                }
+                Enumeration<URL> potentialResources = tryLoading(classLoader, resourcePath, loadingStrategy, false);
+                boolean hit = potentialResources.hasMoreElements();
+                STRATEGY_MEMO.recordAttempt(loadingStrategy, hit, false);
+
+                if (hit) {
+                    STRATEGY_MEMO.remember(classLoader, resourcePath, loadingStrategy);
                     return potentialResources;
                 }
             }
@@ -247,13 +1072,21 @@ public class VersionNames {
             return Collections.enumeration(Collections.emptyList());
         }
 
-        private Enumeration<URL> tryLoading(String resourcePath, LoadingStrategy loadingStrategy) {
+        private Enumeration<URL> tryLoading(ClassLoader classLoader, String resourcePath,
+                                            LoadingStrategy loadingStrategy, boolean memoized) {
+            long start = listener != null ? System.nanoTime() : 0;
+            Enumeration<URL> resources;
             try {
-                return loadingStrategy.getResources(resourcePath);
+                resources = loadingStrategy.getResources(classLoader, resourcePath);
             } catch (IOException e) {
-                LOG.error(LOG_EXCEPTION_GETTING_MANIFESTS_FROM_CLASSPATH, resourcePath, e);
-                return Collections.enumeration(Collections.emptyList());
+                ERROR_LOG.error(LOG_EXCEPTION_GETTING_MANIFESTS_FROM_CLASSPATH, resourcePath, e);
+                resources = Collections.enumeration(Collections.emptyList());
             }
+            if (listener != null) {
+                listener.onStrategyTried(lookup, loadingStrategy, resources.hasMoreElements(), memoized,
+                    System.nanoTime() - start);
+            }
+            return resources;
         }
 
         private void closeStreamIfNotNull(InputStream resourceStream) {
@@ -267,18 +1100,51 @@ public class VersionNames {
         }
     }
 
-    private interface LoadingStrategy {
-        Enumeration<URL> getResources(String resourcePath) throws IOException;
+    /**
+     * Registers a listener that receives events about each lookup of a version name, e.g. a
+     * {@link VersionLookupMetrics}. Without listeners, no events are created.
+     *
+     * @param listener the listener to add. Must not be <code>null</code>.
+     */
+    public static void addLookupListener(VersionLookupListener listener) {
+        LOOKUP_LISTENERS.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove, so it no longer receives events
+     */
+    public static void removeLookupListener(VersionLookupListener listener) {
+        LOOKUP_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Defines which value is returned when a property is contained in a properties file more than once.
+     */
+    public enum DuplicatePropertyPolicy {
+        /**
+         * Return the last occurrence, like {@link Properties} does. Requires reading the whole file.
+         */
+        LAST_WINS,
+        /**
+         * Return the first occurrence and stop reading the file right away. Faster for large files, but differs from
+         * {@link Properties} if a property is contained more than once.
+         */
+        FIRST_WINS
     }
 
     /**
      * Should match most cases
      */
-    private static class GetResourcesLoadingStrategy implements LoadingStrategy {
+    public static final class GetResourcesLoadingStrategy implements LoadingStrategy {
 
         @Override
-        public Enumeration<URL> getResources(String resourcePath) throws IOException {
-            return Thread.currentThread().getContextClassLoader().getResources(resourcePath);
+        public Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) throws IOException {
+            return classLoader.getResources(resourcePath);
+        }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_GET_RESOURCES;
         }
     }
 
@@ -286,35 +1152,45 @@ public class VersionNames {
      * Use case: Read Properties file in war.
      * The property file is not found when using "getResourceS()", only when using "getResource()".
      */
-    private static class GetSingleResourceLoadingStrategy implements LoadingStrategy {
+    public static final class GetSingleResourceLoadingStrategy implements LoadingStrategy {
 
         @Override
-        public Enumeration<URL> getResources(String resourcePath) throws IOException {
-            URL singleResource = Thread.currentThread().getContextClassLoader().getResource(resourcePath);
+        public Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) {
+            URL singleResource = classLoader.getResource(resourcePath);
             if (singleResource != null) {
                 return  Collections.enumeration(Collections.singletonList(singleResource));
             } else {
                 return Collections.enumeration(Collections.emptyList());
             }
         }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_GET_SINGLE_RESOURCE;
+        }
     }
 
     /**
      * Use case: Read Properties file in jar
      * The property file is not found at e.g. "/app.properties" but at "app.properties".
      */
-    private static class RelativePathLoadingStrategy implements LoadingStrategy {
+    public static final class RelativePathLoadingStrategy implements LoadingStrategy {
 
         @Override
-        public Enumeration<URL> getResources(String resourcePath) throws IOException {
+        public Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) {
             if (resourcePath.startsWith("/")) {
                 String resourceAtRelativePath = resourcePath.replaceFirst("/", "");
-                URL singleResource = Thread.currentThread().getContextClassLoader().getResource(resourceAtRelativePath);
+                URL singleResource = classLoader.getResource(resourceAtRelativePath);
                 if (singleResource != null) {
                     return Collections.enumeration(Collections.singletonList(singleResource));
                 }
             }
             return Collections.enumeration(Collections.emptyList());
-        }}
-}
+        }
 
+        @Override
+        public int getPriority() {
+            return PRIORITY_RELATIVE_PATH;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable index of the version information declared by all jars and class path directories of a class loader,
+ * such as the libraries an application consists of.
+ * <p>The registry enumerates all <code>META-INF/MANIFEST.MF</code> resources once, reads their main sections in
+ * parallel and collects the attributes <code>Implementation-Title</code>, <code>Implementation-Version</code>,
+ * <code>Bundle-SymbolicName</code>, <code>Bundle-Version</code> and <code>versionName</code>. Manifests that contain
+ * none of them are left out. Afterwards, components can be queried by the location of their jar or by name without
+ * touching the class path again.</p>
+ * <pre>
+ * VersionRegistry registry = VersionRegistry.get();
+ * String slf4jVersion = registry.getVersion("slf4j.api");
+ * </pre>
+ */
+public final class VersionRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionRegistry.class);
+
+    static final String ATTRIBUTE_IMPLEMENTATION_TITLE = "Implementation-Title";
+    static final String ATTRIBUTE_IMPLEMENTATION_VERSION = "Implementation-Version";
+    static final String ATTRIBUTE_BUNDLE_SYMBOLIC_NAME = "Bundle-SymbolicName";
+    static final String ATTRIBUTE_BUNDLE_VERSION = "Bundle-Version";
+
+    static final String LOG_EXCEPTION_READING_MANIFEST = "Exception while reading version information from {}";
+    static final String LOG_EXCEPTION_GETTING_MANIFESTS = "Exception while reading manifests from classpath";
+    static final String LOG_SCAN_REJECTED = "Executor rejected reading manifests in parallel, reading them sequentially";
+    static final String LOG_INTERRUPTED = "Interrupted while reading manifests, registry is incomplete";
+
+    // Same order as the parameters of the ComponentVersion constructor
+    private static final String[] ATTRIBUTES = {
+        ATTRIBUTE_IMPLEMENTATION_TITLE,
+        ATTRIBUTE_IMPLEMENTATION_VERSION,
+        ATTRIBUTE_BUNDLE_SYMBOLIC_NAME,
+        ATTRIBUTE_BUNDLE_VERSION,
+        VersionNames.DEFAULT_MANIFEST_ATTRIBUTE
+    };
+
+    private static final String JAR_URL_PREFIX = "jar:";
+    private static final String JAR_URL_SEPARATOR = "!/";
+
+    static final int SCAN_EXECUTOR_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    // Registries returned by get(), per class loader, which is held weakly. Completed with null if the scan failed.
+    private static final WeakClassLoaderMap<CompletableFuture<VersionRegistry>> REGISTRIES =
+        new WeakClassLoaderMap<>();
+
+    private final List<ComponentVersion> components;
+    private final Map<String, ComponentVersion> byLocation;
+    private final Map<String, List<ComponentVersion>> byName;
+
+    private VersionRegistry(List<ComponentVersion> components) {
+        this.components = Collections.unmodifiableList(components);
+        Map<String, ComponentVersion> locations = new HashMap<>();
+        Map<String, List<ComponentVersion>> names = new HashMap<>();
+        for (ComponentVersion component : components) {
+            locations.putIfAbsent(component.getLocation(), component);
+            addName(names, component.getImplementationTitle(), component);
+            if (!Objects.equals(component.getBundleSymbolicName(), component.getImplementationTitle())) {
+                addName(names, component.getBundleSymbolicName(), component);
+            }
+        }
+        for (Map.Entry<String, List<ComponentVersion>> entry : names.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.byLocation = locations;
+        this.byName = names;
+    }
+
+    /**
+     * @return the registry of the context class loader of the current thread. The class path is scanned on the first
+     * call for each class loader.
+     * @see #get(ClassLoader)
+     */
+    public static VersionRegistry get() {
+        return get(Thread.currentThread().getContextClassLoader());
+    }
+
+    /**
+     * @param classLoader the class loader whose manifests to read. Not <code>null</code>.
+     * @return the registry of <code>classLoader</code>. The class path is scanned on the first call for each class
+     * loader, by a small pool of daemon threads of its own. Concurrent calls for the same class loader wait for that
+     * scan, calls for other class loaders don't. If interrupted, the registry contains the components read so far and
+     * the interrupt flag of the current thread is set. Such a registry is not remembered.
+     */
+    public static VersionRegistry get(ClassLoader classLoader) {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("classLoader must not be null");
+        }
+        while (true) {
+            CompletableFuture<VersionRegistry> future = REGISTRIES.get(classLoader);
+            boolean scanning = false;
+            if (future == null) {
+                CompletableFuture<VersionRegistry> created = new CompletableFuture<>();
+                future = REGISTRIES.computeIfAbsent(classLoader, cl -> created);
+                scanning = future == created;
+            }
+            // Scan and wait outside of computeIfAbsent(), so that other class loaders are not held up
+            VersionRegistry registry = scanning ? scanOnce(classLoader, future) : await(future);
+            if (registry != null) {
+                return registry;
+            }
+            // The scan of another thread failed or was interrupted, try again
+        }
+    }
+
+    private static VersionRegistry scanOnce(ClassLoader classLoader, CompletableFuture<VersionRegistry> future) {
+        VersionRegistry registry = null;
+        try {
+            registry = scan(classLoader, ScanExecutor.INSTANCE);
+        } finally {
+            // Don't remember a registry that is incomplete because the scan was interrupted
+            if (registry == null || Thread.currentThread().isInterrupted()) {
+                REGISTRIES.remove(classLoader, future);
+                future.complete(null);
+            } else {
+                future.complete(registry);
+            }
+        }
+        return registry;
+    }
+
+    private static VersionRegistry await(CompletableFuture<VersionRegistry> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            LOG.error(LOG_INTERRUPTED);
+            Thread.currentThread().interrupt();
+            return new VersionRegistry(Collections.<ComponentVersion>emptyList());
+        } catch (ExecutionException e) {
+            // Not completed exceptionally
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Scans the class path of <code>classLoader</code> again, independent of the registry returned by
+     * {@link #get(ClassLoader)}.
+     *
+     * @param classLoader the class loader whose manifests to read. Not <code>null</code>.
+     * @param executor    reads the manifests in parallel. The executor is not shut down by this method. If it rejects
+     *                    the reads, they are done on the calling thread.
+     * @return a new registry. If interrupted, the registry contains the components read so far and the interrupt
+     * flag of the current thread is set.
+     */
+    public static VersionRegistry scan(ClassLoader classLoader, ExecutorService executor) {
+        if (classLoader == null) {
+            throw new IllegalArgumentException("classLoader must not be null");
+        }
+        List<URL> urls;
+        try {
+            urls = Collections.list(classLoader.getResources(VersionNames.DEFAULT_MANIFEST_PATH));
+        } catch (IOException e) {
+            LOG.error(LOG_EXCEPTION_GETTING_MANIFESTS, e);
+            urls = Collections.emptyList();
+        }
+        return new VersionRegistry(readAll(urls, executor));
+    }
+
+    /**
+     * @return all components in class path order
+     */
+    public List<ComponentVersion> getComponents() {
+        return components;
+    }
+
+    /**
+     * @param location the URL of a jar or class path directory, e.g. <code>file:/app/lib/library.jar</code>. The
+     *                 <code>jar:</code> URL of the jar or of its manifest is accepted as well.
+     * @return the component at <code>location</code> or <code>null</code> if there is none
+     */
+    public ComponentVersion getByLocation(String location) {
+        return byLocation.get(toLocation(location));
+    }
+
+    /**
+     * @see #getByLocation(String)
+     */
+    public ComponentVersion getByLocation(URL location) {
+        return getByLocation(location.toString());
+    }
+
+    /**
+     * @param name an <code>Implementation-Title</code> or <code>Bundle-SymbolicName</code>, case-sensitive
+     * @return all components with that name in class path order, an empty list if there is none. More than one if a
+     * library is on the class path more than once.
+     */
+    public List<ComponentVersion> getByName(String name) {
+        List<ComponentVersion> result = byName.get(name);
+        return result != null ? result : Collections.<ComponentVersion>emptyList();
+    }
+
+    /**
+     * @param name an <code>Implementation-Title</code> or <code>Bundle-SymbolicName</code>, case-sensitive
+     * @return the {@link ComponentVersion#getVersion() version} of the first component with that name in class path
+     * order or <code>null</code> if there is none
+     */
+    public String getVersion(String name) {
+        List<ComponentVersion> result = byName.get(name);
+        return result != null ? result.get(0).getVersion() : null;
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int size() {
+        return components.size();
+    }
+
+    private static List<ComponentVersion> readAll(List<URL> urls, ExecutorService executor) {
+        List<Future<ComponentVersion>> futures = new ArrayList<>(urls.size());
+        for (URL url : urls) {
+            futures.add(submit(url, executor));
+        }
+
+        List<ComponentVersion> components = new ArrayList<>(urls.size());
+        try {
+            // Wait in order, so the components keep class path order
+            for (int i = 0; i < futures.size(); i++) {
+                ComponentVersion component = getResult(urls.get(i), futures.get(i));
+                if (component != null) {
+                    components.add(component);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.error(LOG_INTERRUPTED);
+            Thread.currentThread().interrupt();
+            for (Future<ComponentVersion> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return components;
+    }
+
+    private static Future<ComponentVersion> submit(URL url, ExecutorService executor) {
+        try {
+            return executor.submit(() -> read(url));
+        } catch (RejectedExecutionException e) {
+            LOG.warn(LOG_SCAN_REJECTED, e);
+            return CompletableFuture.completedFuture(read(url));
+        }
+    }
+
+    private static ComponentVersion getResult(URL url, Future<ComponentVersion> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException | CancellationException e) {
+            LOG.error(LOG_EXCEPTION_READING_MANIFEST, url, e.getCause() != null ? e.getCause() : e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the version information of the manifest at <code>url</code> or <code>null</code> if it contains none or
+     * cannot be read
+     */
+    static ComponentVersion read(URL url) {
+        String[] values;
+        try (InputStream in = VersionNames.JAR_READER.openStream(url)) {
+            values = ManifestScanner.findMainAttributes(in, ATTRIBUTES);
+        } catch (IOException e) {
+            LOG.error(LOG_EXCEPTION_READING_MANIFEST, url, e);
+            return null;
+        }
+        boolean anyValue = false;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = trimToNull(values[i]);
+            anyValue |= values[i] != null;
+        }
+        if (!anyValue) {
+            return null;
+        }
+        return new ComponentVersion(toLocation(url.toString()), values[0], values[1], stripDirectives(values[2]),
+            values[3], values[4]);
+    }
+
+    /**
+     * @return the URL of the jar or directory, e.g. <code>file:/app/lib/library.jar</code> for
+     * <code>jar:file:/app/lib/library.jar!/META-INF/MANIFEST.MF</code>
+     */
+    static String toLocation(String url) {
+        String location = url;
+        if (location.endsWith(VersionNames.DEFAULT_MANIFEST_PATH)) {
+            location = location.substring(0, location.length() - VersionNames.DEFAULT_MANIFEST_PATH.length());
+        }
+        if (location.startsWith(JAR_URL_PREFIX)) {
+            location = location.substring(JAR_URL_PREFIX.length());
+            if (location.endsWith(JAR_URL_SEPARATOR)) {
+                location = location.substring(0, location.length() - JAR_URL_SEPARATOR.length());
+            }
+        }
+        return location;
+    }
+
+    private static String stripDirectives(String bundleSymbolicName) {
+        if (bundleSymbolicName == null) {
+            return null;
+        }
+        int directives = bundleSymbolicName.indexOf(';');
+        return directives < 0 ? bundleSymbolicName : trimToNull(bundleSymbolicName.substring(0, directives));
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static void addName(Map<String, List<ComponentVersion>> names, String name, ComponentVersion component) {
+        if (name != null) {
+            names.computeIfAbsent(name, key -> new ArrayList<>()).add(component);
+        }
+    }
+
+    /**
+     * Reads the manifests for {@link #get(ClassLoader)}. Not the common pool, as {@link #get(ClassLoader)} may be
+     * called from one of its threads and would then wait for tasks queued behind itself.
+     */
+    private static final class ScanExecutor {
+
+        static final ThreadPoolExecutor INSTANCE = create();
+
+        private ScanExecutor() {
+        }
+
+        private static ThreadPoolExecutor create() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(SCAN_EXECUTOR_THREADS, SCAN_EXECUTOR_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "versionName-registry-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    // Don't keep the class loader of the first caller from being collected
+                    thread.setContextClassLoader(null);
+                    return thread;
+                });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
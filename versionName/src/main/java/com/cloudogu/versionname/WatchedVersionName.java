@@ -0,0 +1,191 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A version name that follows changes of the resource it was read from, e.g. an <code>app.properties</code> in an
+ * exploded deployment that is overwritten by a new build. Created by
+ * {@link VersionNames#watchVersionNameFromProperties(String, String)} and
+ * {@link VersionNames#watchVersionNameFromManifest(String, String)}.
+ * <p>Only resources that are plain files, i.e. <code>file:</code> URLs, are watched. The file is read again only when
+ * it changes and has then been left alone for a moment, so that it is not read while being written. That is done on a
+ * background thread, which then notifies the subscribers. {@link #get()} never touches the file
+ * system. Version names within jars can't change without restarting the application and are not watched.</p>
+ * <p>Call {@link #close()} to stop watching, e.g. when the web application is undeployed. The background thread
+ * ends once no version name is watched anymore.</p>
+ */
+public final class WatchedVersionName implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WatchedVersionName.class);
+
+    static final String LOG_EXCEPTION_RELOADING = "Exception while reading changed version name from {}";
+    static final String LOG_NOT_FOUND_ON_RELOAD = "Version name not found in changed {}, keeping {}";
+    static final String LOG_RELOADED = "Version name in {} changed to {}";
+    static final String LOG_EXCEPTION_IN_SUBSCRIBER = "Exception while notifying subscriber of version name change";
+
+    /**
+     * Reads the version name from a resource.
+     */
+    interface Reader {
+        /**
+         * @return the version name or <code>null</code> if the resource does not contain it
+         */
+        String read(InputStream in) throws IOException;
+    }
+
+    private final Path file;
+    private final Reader reader;
+    private final Consumer<String> onChange;
+    private final List<Consumer<? super String>> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile String versionName;
+    // Stops watching when run, null if not watching
+    private Runnable unregister;
+
+    /**
+     * @param versionName the version name read initially
+     * @param file        the file to watch or <code>null</code> if the resource can't be watched
+     * @param reader      reads the version name from <code>file</code>
+     * @param onChange    called with each new version name before the subscribers are
+     */
+    WatchedVersionName(String versionName, Path file, Reader reader, Consumer<String> onChange) {
+        this.versionName = versionName;
+        this.file = file;
+        this.reader = reader;
+        this.onChange = onChange;
+    }
+
+    /**
+     * @return a version name that is not watched
+     */
+    static WatchedVersionName unwatched(String versionName) {
+        return new WatchedVersionName(versionName, null, null, null);
+    }
+
+    /**
+     * Starts watching the file, if any.
+     *
+     * @throws IOException if the file's directory can't be watched
+     */
+    void watch() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Runnable registration = ResourceWatcher.getInstance().register(file, this::reload);
+        synchronized (this) {
+            unregister = registration;
+        }
+        // The file might have changed between reading it initially and watching it
+        reload();
+    }
+
+    /**
+     * @return the current version name. Never <code>null</code>.
+     */
+    public String get() {
+        return versionName;
+    }
+
+    /**
+     * @return <code>true</code> if changes of the resource are picked up, <code>false</code> if the resource can't be
+     * watched or {@link #close()} has been called
+     */
+    public synchronized boolean isWatching() {
+        return unregister != null;
+    }
+
+    /**
+     * @param subscriber called with the new version name, each time it changes. Called on the watcher thread, so it
+     *                   should return quickly.
+     */
+    public void subscribe(Consumer<? super String> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * @param subscriber a subscriber passed to {@link #subscribe(Consumer)} before
+     */
+    public void unsubscribe(Consumer<? super String> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Stops watching. {@link #get()} keeps returning the last version name.
+     */
+    @Override
+    public void close() {
+        Runnable registration;
+        synchronized (this) {
+            registration = unregister;
+            unregister = null;
+        }
+        if (registration != null) {
+            registration.run();
+        }
+    }
+
+    /**
+     * Reads the file and notifies the subscribers if the version name changed. Keeps the current version name if the
+     * file can't be read or does not contain a version name, e.g. while it is being replaced.
+     */
+    synchronized void reload() {
+        String newVersionName;
+        try (InputStream in = Files.newInputStream(file)) {
+            newVersionName = reader.read(in);
+        } catch (IOException e) {
+            LOG.warn(LOG_EXCEPTION_RELOADING, file, e);
+            return;
+        }
+        if (newVersionName == null || newVersionName.isEmpty()) {
+            LOG.warn(LOG_NOT_FOUND_ON_RELOAD, file, versionName);
+            return;
+        }
+        if (newVersionName.equals(versionName)) {
+            return;
+        }
+
+        LOG.info(LOG_RELOADED, file, newVersionName);
+        versionName = newVersionName;
+        onChange.accept(newVersionName);
+        for (Consumer<? super String> subscriber : subscribers) {
+            try {
+                subscriber.accept(newVersionName);
+            } catch (RuntimeException e) {
+                LOG.error(LOG_EXCEPTION_IN_SUBSCRIBER, e);
+            }
+        }
+    }
+}
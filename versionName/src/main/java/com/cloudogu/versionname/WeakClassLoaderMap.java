@@ -0,0 +1,161 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A map from class loaders, which are held weakly, to values, which are held strongly.
+ * <p>Unlike a synchronized {@link java.util.WeakHashMap}, {@link #get(ClassLoader)} does not take a lock, so the cache
+ * hits of many threads don't contend for a single monitor. Entries of class loaders that have been garbage collected
+ * are dropped on the next access.</p>
+ * <p>As with {@link java.util.WeakHashMap}, a value must not strongly reference its class loader, or the class loader
+ * is never collected.</p>
+ *
+ * @param <V> the type of the values
+ */
+final class WeakClassLoaderMap<V> {
+
+    private final ConcurrentMap<Object, V> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+
+    /**
+     * @return the value of <code>classLoader</code> or <code>null</code> if there is none
+     */
+    V get(ClassLoader classLoader) {
+        expungeCollected();
+        return entries.get(new LookupKey(classLoader));
+    }
+
+    /**
+     * @return the value of <code>classLoader</code>, computed by <code>valueFunction</code> and stored if there is none
+     */
+    V computeIfAbsent(ClassLoader classLoader, Function<ClassLoader, V> valueFunction) {
+        V value = get(classLoader);
+        if (value != null) {
+            return value;
+        }
+        return entries.computeIfAbsent(new WeakKey(classLoader, collected), key -> valueFunction.apply(classLoader));
+    }
+
+    void put(ClassLoader classLoader, V value) {
+        expungeCollected();
+        entries.put(new WeakKey(classLoader, collected), value);
+    }
+
+    void remove(ClassLoader classLoader) {
+        expungeCollected();
+        entries.remove(new LookupKey(classLoader));
+    }
+
+    /**
+     * Removes the value of <code>classLoader</code> only if it is <code>value</code>.
+     */
+    void remove(ClassLoader classLoader, V value) {
+        expungeCollected();
+        entries.remove(new LookupKey(classLoader), value);
+    }
+
+    void clear() {
+        expungeCollected();
+        entries.clear();
+    }
+
+    /**
+     * @return the number of class loaders that have a value, including collected ones not dropped yet
+     */
+    int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    private void expungeCollected() {
+        // poll() does not lock as long as the queue is empty
+        for (Reference<? extends ClassLoader> key; (key = collected.poll()) != null; ) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Holds the class loader of an entry weakly. Once it is collected, the key only equals itself, so it can still be
+     * removed.
+     */
+    private static final class WeakKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        WeakKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            hash = System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            ClassLoader classLoader = get();
+            if (classLoader == null) {
+                return false;
+            }
+            if (o instanceof WeakKey) {
+                return classLoader == ((WeakKey) o).get();
+            }
+            return o instanceof LookupKey && classLoader == ((LookupKey) o).classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Looks up an entry without creating a reference, which the garbage collector would have to process.
+     */
+    private static final class LookupKey {
+        private final ClassLoader classLoader;
+
+        LookupKey(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof WeakKey) {
+                return classLoader == ((WeakKey) o).get();
+            }
+            return o instanceof LookupKey && classLoader == ((LookupKey) o).classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(classLoader);
+        }
+    }
+}
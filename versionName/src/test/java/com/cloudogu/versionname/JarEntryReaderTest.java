@@ -0,0 +1,254 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class JarEntryReaderTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private JarHandlePool pool = new JarHandlePool(10, 1, TimeUnit.MINUTES, System::nanoTime);
+    private JarEntryReader reader = new JarEntryReader(pool, true);
+    private byte[] largeContent;
+
+    @Before
+    public void setUp() {
+        // Random and thus hardly compressible, so the deflated data spans several input chunks
+        largeContent = new byte[100000];
+        new Random(42).nextBytes(largeContent);
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} with the manifest of a jar.
+     */
+    @Test
+    public void manifest() throws Exception {
+        File jar = createJar(null);
+
+        Manifest manifest = new Manifest(reader.openStream(entryUrl(jar, "META-INF/MANIFEST.MF")));
+
+        assertEquals("1.2.3", manifest.getMainAttributes().getValue("versionName"));
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} with deflated and stored entries, which must equal the contents
+     * read via the JDK.
+     */
+    @Test
+    public void deflatedAndStoredEntries() throws Exception {
+        File jar = createJar("comment");
+
+        for (String entry : new String[] { "deflated.bin", "stored.bin", "empty.txt", "app.properties" }) {
+            assertArrayEquals(entry, readFully(entryUrl(jar, entry).openStream()),
+                readFully(reader.openStream(entryUrl(jar, entry))));
+        }
+        assertArrayEquals(largeContent, readFully(reader.openStream(entryUrl(jar, "deflated.bin"))));
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} with a missing entry. It's up to the JDK to report it.
+     */
+    @Test(expected = FileNotFoundException.class)
+    public void missingEntry() throws Exception {
+        reader.openStream(entryUrl(createJar(null), "missing.txt"));
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} with a URL that is not a <code>jar:</code> URL.
+     */
+    @Test
+    public void fileUrl() throws Exception {
+        File file = folder.newFile("app.properties");
+        write(file, "versionName=1.2.3".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("versionName=1.2.3",
+            new String(readFully(reader.openStream(file.toURI().toURL())), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} with an encoded entry name, which is left to the JDK.
+     */
+    @Test
+    public void encodedEntryName() throws Exception {
+        File jar = createJar(null);
+
+        assertEquals("versionName=1.2.3", new String(readFully(reader.openStream(
+            new URL("jar:" + jar.toURI() + "!/with%20space.properties"))), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test for {@link MappedJar#open(File)} with a file that is not a zip file.
+     */
+    @Test
+    public void noZipFile() throws Exception {
+        File file = folder.newFile("no.jar");
+        write(file, new byte[100]);
+
+        assertNull(MappedJar.open(file));
+    }
+
+    /**
+     * Test for {@link MappedJar#getEntryStream(String)} with a corrupt central directory.
+     */
+    @Test(expected = ZipException.class)
+    public void corruptCentralDirectory() throws Exception {
+        File jar = createJar(null);
+        try (RandomAccessFile file = new RandomAccessFile(jar, "rw")) {
+            // Offset of the central directory within the 22 bytes of the end of central directory record
+            file.seek(file.length() - 22 + 16);
+            int centralDirectory = file.read() | file.read() << 8 | file.read() << 16 | file.read() << 24;
+            file.seek(centralDirectory);
+            file.write(0);
+        }
+
+        MappedJar.open(jar).getEntryStream("missing.txt");
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} reading via {@link java.util.jar.JarFile} instead of
+     * {@link MappedJar}.
+     */
+    @Test
+    public void jarFile() throws Exception {
+        reader = new JarEntryReader(pool, false);
+        File jar = createJar(null);
+
+        for (String entry : new String[] { "deflated.bin", "stored.bin", "empty.txt", "app.properties" }) {
+            assertArrayEquals(entry, readFully(entryUrl(jar, entry).openStream()),
+                readFully(reader.openStream(entryUrl(jar, entry))));
+        }
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    /**
+     * Test for {@link JarEntryReader#openStream(URL)} reading a missing entry via {@link java.util.jar.JarFile}.
+     */
+    @Test(expected = FileNotFoundException.class)
+    public void jarFileMissingEntry() throws Exception {
+        reader = new JarEntryReader(pool, false);
+
+        reader.openStream(entryUrl(createJar(null), "missing.txt"));
+    }
+
+    /**
+     * Test for {@link JarEntryReader#flush(ClassLoader)}: the jars on the classpath of the class loader are closed.
+     */
+    @Test
+    public void flushClassLoader() throws Exception {
+        File jar = createJar(null);
+        File other = createJar(null);
+        readFully(reader.openStream(entryUrl(jar, "app.properties")));
+        readFully(reader.openStream(entryUrl(other, "app.properties")));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL(),
+            folder.getRoot().toURI().toURL(), new URL("http://localhost/app.jar") }, null)) {
+            reader.flush(classLoader);
+        }
+        reader.flush(getClass().getClassLoader().getParent());
+
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    private File createJar(String comment) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("versionName"), "1.2.3");
+        File jar = folder.newFile();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            out.putNextEntry(new ZipEntry("deflated.bin"));
+            out.write(largeContent);
+            out.putNextEntry(stored("stored.bin", largeContent));
+            out.write(largeContent);
+            out.putNextEntry(new ZipEntry("empty.txt"));
+            out.putNextEntry(new ZipEntry("app.properties"));
+            out.write("versionName=1.2.3".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("with space.properties"));
+            out.write("versionName=1.2.3".getBytes(StandardCharsets.UTF_8));
+            if (comment != null) {
+                out.setComment(comment);
+            }
+        }
+        return jar;
+    }
+
+    private static ZipEntry stored(String name, byte[] content) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        return entry;
+    }
+
+    private static URL entryUrl(File jar, String entry) throws IOException {
+        return new URL("jar:" + jar.toURI() + "!/" + entry);
+    }
+
+    private static void write(File file, byte[] content) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1000];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
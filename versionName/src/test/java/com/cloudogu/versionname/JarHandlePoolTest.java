@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JarHandlePoolTest {
+
+    private static final String ENTRY = "app.properties";
+    private static final String CONTENT = "versionName=1.2.3";
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final JarHandlePool pool = new JarHandlePool(2, 10, TimeUnit.SECONDS, nanoTime::get);
+
+    @After
+    public void tearDown() {
+        pool.flush();
+    }
+
+    /**
+     * Test for {@link JarHandlePool#openStream(File, String, boolean)}: the same jar is opened only once.
+     */
+    @Test
+    public void reusesJar() throws Exception {
+        File jar = createJar();
+
+        assertEquals(CONTENT, read(pool.openStream(jar, ENTRY, false)));
+        assertEquals(CONTENT, read(pool.openStream(jar, ENTRY, false)));
+
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    /**
+     * Test for {@link JarHandlePool#openStream(File, String, boolean)}: the least recently used jar is evicted.
+     */
+    @Test
+    public void evictsLeastRecentlyUsed() throws Exception {
+        File first = createJar();
+        File second = createJar();
+        File third = createJar();
+        read(pool.openStream(first, ENTRY, false));
+        read(pool.openStream(second, ENTRY, false));
+        read(pool.openStream(first, ENTRY, false));
+
+        read(pool.openStream(third, ENTRY, true));
+
+        assertEquals("Unexpected number of pooled jars", 2, pool.size());
+        // Second jar is closed, so it must be reopened. First jar must be evicted in turn.
+        read(pool.openStream(second, ENTRY, false));
+        pool.setMaxSize(1);
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    /**
+     * Test for {@link JarHandlePool#sweep()}: only jars idle for longer than the timeout are closed.
+     */
+    @Test
+    public void sweepsIdleJars() throws Exception {
+        File idle = createJar();
+        File used = createJar();
+        read(pool.openStream(idle, ENTRY, false));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        read(pool.openStream(used, ENTRY, false));
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        pool.sweep();
+
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    /**
+     * Test for {@link JarHandlePool#flush()} while an entry is still being read. The jar must only be closed after
+     * the stream is closed.
+     */
+    @Test
+    public void flushKeepsJarOpenWhileInUse() throws Exception {
+        File jar = createJar();
+        InputStream stream = pool.openStream(jar, ENTRY, false);
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        pool.sweep();
+        pool.flush();
+
+        assertEquals("Unexpected number of pooled jars", 0, pool.size());
+        assertEquals(CONTENT, read(stream));
+    }
+
+    /**
+     * Test for {@link JarHandlePool#openStream(File, String, boolean)} with pooling disabled.
+     */
+    @Test
+    public void maxSizeZero() throws Exception {
+        pool.setMaxSize(0);
+        File jar = createJar();
+
+        assertEquals(CONTENT, read(pool.openStream(jar, ENTRY, false)));
+        assertEquals(CONTENT, read(pool.openStream(jar, ENTRY, true)));
+
+        assertEquals("Unexpected number of pooled jars", 0, pool.size());
+    }
+
+    /**
+     * Test for {@link JarHandlePool#openStream(File, String, boolean)} with a missing entry in a memory-mapped jar,
+     * which is left to the caller.
+     */
+    @Test
+    public void mappedMissingEntry() throws Exception {
+        assertNull(pool.openStream(createJar(), "missing.txt", true));
+    }
+
+    /**
+     * Test for {@link JarHandlePool#openStream(File, String, boolean)}: a jar replaced since it was opened is reopened,
+     * both as {@link java.util.jar.JarFile} and memory-mapped.
+     */
+    @Test
+    public void reopensReplacedJar() throws Exception {
+        for (boolean mapped : new boolean[] { false, true }) {
+            File jar = createJar();
+            assertEquals(CONTENT, read(pool.openStream(jar, ENTRY, mapped)));
+
+            writeJar(jar, "versionName=1.2.4-SNAPSHOT");
+            assertTrue(jar.setLastModified(jar.lastModified() + TimeUnit.MINUTES.toMillis(1)));
+
+            assertEquals("versionName=1.2.4-SNAPSHOT", read(pool.openStream(jar, ENTRY, mapped)));
+            assertEquals("Unexpected number of pooled jars", 1, pool.size());
+            pool.flush();
+        }
+    }
+
+    /**
+     * Test for {@link JarHandlePool#flush(java.util.Collection)}: only the given jars are closed.
+     */
+    @Test
+    public void flushJars() throws Exception {
+        File flushed = createJar();
+        File kept = createJar();
+        read(pool.openStream(flushed, ENTRY, false));
+        read(pool.openStream(kept, ENTRY, false));
+
+        pool.flush(Arrays.asList(flushed, folder.newFile()));
+
+        assertEquals("Unexpected number of pooled jars", 1, pool.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMaxSize() {
+        pool.setMaxSize(-1);
+    }
+
+    private File createJar() throws IOException {
+        File jar = folder.newFile();
+        writeJar(jar, CONTENT);
+        return jar;
+    }
+
+    private static void writeJar(File jar, String content) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(ENTRY));
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            StringBuilder content = new StringBuilder();
+            int read;
+            while ((read = stream.read()) != -1) {
+                content.append((char) read);
+            }
+            return content.toString();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class JfrLookupListenerTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final JfrLookupListener listener = LookupListeners.createJfrListener();
+    private ClassLoader originalContextClassLoader;
+
+    @Before
+    public void setUp() {
+        originalContextClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    @After
+    public void tearDown() {
+        Thread.currentThread().setContextClassLoader(originalContextClassLoader);
+        VersionNames.invalidateCache();
+    }
+
+    /**
+     * Test for {@link JfrLookupListener#isEnabled()}, which must only be true while a recording is running.
+     */
+    @Test
+    public void isEnabled() throws Exception {
+        assertNotNull("JFR not available", listener);
+        assertFalse(listener.isEnabled());
+
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrLookupListener.LookupEvent.class);
+            recording.start();
+
+            assertTrue(listener.isEnabled());
+        }
+    }
+
+    /**
+     * Test for {@link LookupListeners#isActive()}, where the JFR listener is created once a recording is started.
+     */
+    @Test
+    public void lookupListenersStartJfrWhenRecording() {
+        LookupListeners listeners = LookupListeners.fromSystemProperties();
+
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrLookupListener.LookupEvent.class);
+            recording.start();
+            assertTrue(listeners.isActive());
+        }
+        assertFalse(listeners.isActive());
+    }
+
+    /**
+     * Test for {@link LookupListeners#isActive()} with JFR events disabled via system property.
+     */
+    @Test
+    public void lookupListenersJfrDisabled() {
+        System.setProperty(LookupListeners.PROPERTY_JFR_ENABLED, "false");
+        LookupListeners listeners;
+        try {
+            listeners = LookupListeners.fromSystemProperties();
+        } finally {
+            System.clearProperty(LookupListeners.PROPERTY_JFR_ENABLED);
+        }
+
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrLookupListener.LookupEvent.class);
+            recording.start();
+            assertFalse(listeners.isActive());
+        }
+    }
+
+    /**
+     * Test for the events emitted by {@link VersionNames#getVersionNameFromProperties()}.
+     */
+    @Test
+    public void events() throws Exception {
+        File classpath = folder.newFolder();
+        try (OutputStream out = new FileOutputStream(new File(classpath, "app.properties"))) {
+            out.write("versionName=1.2.3".getBytes(StandardCharsets.UTF_8));
+        }
+        Thread.currentThread().setContextClassLoader(
+            new URLClassLoader(new URL[] { classpath.toURI().toURL() }, null));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(JfrLookupListener.LookupEvent.class);
+            recording.enable(JfrLookupListener.StrategyEvent.class);
+            recording.enable(JfrLookupListener.ResourceEvent.class);
+            recording.start();
+
+            assertEquals("1.2.3", VersionNames.getVersionNameFromProperties());
+
+            recording.stop();
+            events = read(recording);
+        }
+
+        RecordedEvent lookup = find(events, "com.cloudogu.versionname.Lookup");
+        assertEquals("PROPERTIES", lookup.getString("sourceType"));
+        assertEquals("/app.properties", lookup.getString("resourcePath"));
+        assertEquals("versionName", lookup.getString("key"));
+        assertEquals("FOUND", lookup.getString("outcome"));
+        assertTrue(lookup.getLong("elapsed") > 0);
+
+        RecordedEvent strategy = find(events, "com.cloudogu.versionname.LoadingStrategy");
+        assertTrue(strategy.getString("strategy").endsWith("GetResourcesLoadingStrategy")
+            || strategy.getString("strategy").endsWith("GetSingleResourceLoadingStrategy"));
+
+        RecordedEvent resource = find(events, "com.cloudogu.versionname.Resource");
+        assertTrue(resource.getString("url").endsWith("app.properties"));
+        assertEquals(17, resource.getLong("bytesRead"));
+        assertTrue(resource.getBoolean("found"));
+    }
+
+    private List<RecordedEvent> read(Recording recording) throws IOException {
+        Path file = folder.newFile("recording.jfr").toPath();
+        recording.dump(file);
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().startsWith("com.cloudogu.versionname.")) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                return event;
+            }
+        }
+        throw new AssertionError("No event " + name + " in " + events);
+    }
+}
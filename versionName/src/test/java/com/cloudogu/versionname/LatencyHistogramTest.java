@@ -0,0 +1,104 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Test for {@link LatencyHistogram#bucketIndex(long)} and {@link LatencyHistogram#bucketUpperBound(int)}: each
+     * value falls into a bucket whose upper bound is at most 12.5% larger.
+     */
+    @Test
+    public void buckets() {
+        long[] values = { 0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE };
+        int previousIndex = -1;
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue("Buckets descending at " + value, index >= previousIndex);
+            assertTrue("Upper bound " + upperBound + " below " + value, upperBound >= value);
+            assertTrue("Upper bound " + upperBound + " too far above " + value,
+                upperBound - value <= value / LatencyHistogram.SUB_BUCKETS);
+            if (index > 0) {
+                assertTrue("Value " + value + " in previous bucket",
+                    LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500500, snapshot.getMean());
+        assertEquals(1000000, snapshot.getMax());
+        assertWithinBucket(500000, snapshot.getPercentile(50));
+        assertWithinBucket(990000, snapshot.getPercentile(99));
+        assertEquals(1000000, snapshot.getPercentile(100));
+        assertWithinBucket(1000, snapshot.getPercentile(0));
+    }
+
+    @Test
+    public void empty() {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getPercentile(99.9));
+    }
+
+    @Test
+    public void reset() {
+        histogram.record(42);
+        histogram.record(-1);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.snapshot().getCount());
+        assertEquals(0, histogram.snapshot().getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        histogram.snapshot().getPercentile(100.1);
+    }
+
+    private static void assertWithinBucket(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual,
+            actual >= expected && actual - expected <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
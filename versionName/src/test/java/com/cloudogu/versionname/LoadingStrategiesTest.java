@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LoadingStrategiesTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test for {@link LoadingStrategies#discover(ClassLoader)} without any providers.
+     */
+    @Test
+    public void discoverBuiltIns() {
+        List<LoadingStrategy> strategies = LoadingStrategies.discover(getClass().getClassLoader());
+
+        assertEquals("Unexpected number of strategies", 3, strategies.size());
+        assertTrue(strategies.get(0) instanceof VersionNames.GetResourcesLoadingStrategy);
+        assertTrue(strategies.get(1) instanceof VersionNames.GetSingleResourceLoadingStrategy);
+        assertTrue(strategies.get(2) instanceof VersionNames.RelativePathLoadingStrategy);
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#discover(ClassLoader)} with a provider registered in
+     * <code>META-INF/services</code>, that is sorted in by its priority.
+     */
+    @Test
+    public void discoverProvider() throws Exception {
+        File services = new File(folder.getRoot(), "META-INF/services");
+        assertTrue(services.mkdirs());
+        Files.write(new File(services, LoadingStrategy.class.getName()).toPath(),
+            ("# comment\n" + PrioritizedStrategy.class.getName() + "\n").getBytes(StandardCharsets.UTF_8));
+        ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() },
+            getClass().getClassLoader());
+
+        List<LoadingStrategy> strategies = LoadingStrategies.discover(classLoader);
+
+        assertEquals("Unexpected number of strategies", 4, strategies.size());
+        assertTrue(strategies.get(0) instanceof VersionNames.GetResourcesLoadingStrategy);
+        assertTrue(strategies.get(1) instanceof PrioritizedStrategy);
+        assertTrue(strategies.get(2) instanceof VersionNames.GetSingleResourceLoadingStrategy);
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#discover(ClassLoader)} with a provider that cannot be instantiated. It must be
+     * skipped.
+     */
+    @Test
+    public void discoverBrokenProvider() throws Exception {
+        File services = new File(folder.getRoot(), "META-INF/services");
+        assertTrue(services.mkdirs());
+        Files.write(new File(services, LoadingStrategy.class.getName()).toPath(),
+            "com.cloudogu.versionname.DoesNotExist\n".getBytes(StandardCharsets.UTF_8));
+        ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() },
+            getClass().getClassLoader());
+
+        List<LoadingStrategy> strategies = LoadingStrategies.discover(classLoader);
+
+        assertEquals("Unexpected number of strategies", 3, strategies.size());
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#discover(ClassLoader)} with a provider that cannot be instantiated, followed by
+     * one that can. Only the first must be skipped.
+     */
+    @Test(timeout = 10000)
+    public void discoverBrokenAndWorkingProvider() throws Exception {
+        File services = new File(folder.getRoot(), "META-INF/services");
+        assertTrue(services.mkdirs());
+        Files.write(new File(services, LoadingStrategy.class.getName()).toPath(),
+            ("com.cloudogu.versionname.DoesNotExist\n" + PrioritizedStrategy.class.getName() + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() },
+            getClass().getClassLoader());
+
+        List<LoadingStrategy> strategies = LoadingStrategies.discover(classLoader);
+
+        assertEquals("Unexpected number of strategies", 4, strategies.size());
+        assertTrue(strategies.get(1) instanceof PrioritizedStrategy);
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#discover(ClassLoader)} with a class loader that fails to list the provider
+     * configurations. Discovery must give up instead of trying again and again.
+     */
+    @Test(timeout = 10000)
+    public void discoverFailingClassLoader() {
+        ClassLoader classLoader = new ClassLoader(getClass().getClassLoader()) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                throw new IOException("mocked");
+            }
+        };
+
+        List<LoadingStrategy> strategies = LoadingStrategies.discover(classLoader);
+
+        assertEquals("Unexpected number of strategies", 3, strategies.size());
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#arrange(List, java.util.Set)}, excluding by simple and fully qualified name.
+     */
+    @Test
+    public void arrangeExcludes() {
+        LoadingStrategy getResources = new VersionNames.GetResourcesLoadingStrategy();
+        LoadingStrategy singleResource = new VersionNames.GetSingleResourceLoadingStrategy();
+        LoadingStrategy relativePath = new VersionNames.RelativePathLoadingStrategy();
+
+        List<LoadingStrategy> strategies = LoadingStrategies.arrange(
+            Arrays.asList(getResources, singleResource, relativePath),
+            LoadingStrategies.parseExcluded(" GetResourcesLoadingStrategy, ,"
+                + VersionNames.RelativePathLoadingStrategy.class.getName()));
+
+        assertEquals(Collections.singletonList(singleResource), strategies);
+    }
+
+    /**
+     * Test for {@link LoadingStrategies#arrange(List, java.util.Set)}: strategies with equal priority keep their order.
+     */
+    @Test
+    public void arrangeIsStable() {
+        LoadingStrategy first = new PrioritizedStrategy();
+        LoadingStrategy second = new PrioritizedStrategy();
+        LoadingStrategy relativePath = new VersionNames.RelativePathLoadingStrategy();
+
+        List<LoadingStrategy> strategies = LoadingStrategies.arrange(Arrays.asList(relativePath, first, second),
+            new HashSet<String>());
+
+        assertSame(first, strategies.get(0));
+        assertSame(second, strategies.get(1));
+        assertSame(relativePath, strategies.get(2));
+    }
+
+    /**
+     * Strategy tried between the built-in ones. Public, so {@link java.util.ServiceLoader} can instantiate it.
+     */
+    public static class PrioritizedStrategy implements LoadingStrategy {
+
+        @Override
+        public Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) {
+            return Collections.enumeration(Collections.<URL>emptyList());
+        }
+
+        @Override
+        public int getPriority() {
+            return PRIORITY_GET_RESOURCES + 1;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ManifestScanner}.
+ */
+public class ManifestScannerTest {
+
+    /**
+     * Positive test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}.
+     */
+    @Test
+    public void findMainAttribute() throws Exception {
+        String manifest = "Manifest-Version: 1.0\nversionName: 1.2.3\nOther: 4\n";
+
+        assertMainAttribute(manifest, "versionName", "1.2.3");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute name is
+     * written in different case.
+     */
+    @Test
+    public void findMainAttributeIgnoresCase() throws Exception {
+        String manifest = "Manifest-Version: 1.0\nVERSIONNAME: 1.2.3\n";
+
+        assertMainAttribute(manifest, "versionName", "1.2.3");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute name is a
+     * prefix of another attribute's name or the other way round.
+     */
+    @Test
+    public void findMainAttributeNamePrefix() throws Exception {
+        String manifest = "versionNameLong: 1\nversion: 2\nversionName: 3\n";
+
+        assertMainAttribute(manifest, "versionName", "3");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the value is continued on
+     * several lines and line breaks differ.
+     */
+    @Test
+    public void findMainAttributeContinuationLines() throws Exception {
+        String manifest = "Manifest-Version: 1.0\r\nversionName: 1.2.3 (2016-09-27, \r\n branch master, \n commit 4dd3c\r f5)\r\nOther: 4\r\n";
+
+        assertMainAttribute(manifest, "versionName", "1.2.3 (2016-09-27, branch master, commit 4dd3cf5)");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where a multi-byte UTF-8
+     * character is split across a continuation line, as {@link Manifest#write(java.io.OutputStream)} does.
+     */
+    @Test
+    public void findMainAttributeMultiByteCharacterSplitByContinuation() throws Exception {
+        StringBuilder expectedValue = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expectedValue.append("\u00e4\u20ac");
+        }
+
+        assertMainAttributeLikeManifest(writeManifest("versionName", expectedValue.toString()), "versionName");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute is only
+     * contained in an entry section.
+     */
+    @Test
+    public void findMainAttributeOnlyInEntrySection() throws Exception {
+        String manifest = "Manifest-Version: 1.0\n\nName: some/Entry.class\nversionName: 1.2.3\n";
+
+        assertMainAttribute(manifest, "versionName", null);
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute occurs more
+     * than once. The last occurrence wins, like in {@link Manifest}.
+     */
+    @Test
+    public void findMainAttributeDuplicate() throws Exception {
+        String manifest = "Manifest-Version: 1.0\nversionName: 1.2.3\nOther: 4\nVERSIONNAME: 1.2.4-SNAP\n SHOT\n"
+            + "Other: 5\n\nName: entry\nversionName: 1.2.5\n";
+
+        assertMainAttribute(manifest, "versionName", "1.2.4-SNAPSHOT");
+        assertMainAttributeLikeManifest(manifest.getBytes(StandardCharsets.UTF_8), "versionName");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where lines end with a lone
+     * <code>CR</code>, as the JAR spec allows for. {@link Manifest} only does so since Java 9.
+     */
+    @Test
+    public void findMainAttributeLoneCarriageReturn() throws Exception {
+        String manifest = "Manifest-Version: 1.0\rversionName: 1.2.3\rOther: 4\r\rName: entry\rversionName: 1.2.5\r";
+
+        assertMainAttribute(manifest, "versionName", "1.2.3");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute is missing.
+     */
+    @Test
+    public void findMainAttributeMissing() throws Exception {
+        assertMainAttribute("Manifest-Version: 1.0\nOther: 4\n", "versionName", null);
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the value is empty.
+     */
+    @Test
+    public void findMainAttributeEmptyValue() throws Exception {
+        assertMainAttribute("versionName: \nOther: 4\n", "versionName", "");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the last line is not
+     * terminated.
+     */
+    @Test
+    public void findMainAttributeUnterminatedLastLine() throws Exception {
+        assertEquals("1.2.3", ManifestScanner.findMainAttribute(toStream("versionName: 1.2.3"), "versionName"));
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the manifest is larger
+     * than the scanner's buffer.
+     */
+    @Test
+    public void findMainAttributeLargeManifest() throws Exception {
+        StringBuilder exportPackage = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            exportPackage.append("com.example.package").append(i).append(";version=\"1.0.").append(i).append("\",");
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Export-Package", exportPackage.toString());
+        manifest.getMainAttributes().putValue("versionName", "1.2.3");
+
+        assertMainAttributeLikeManifest(write(manifest), "versionName");
+        assertMainAttributeLikeManifest(write(manifest), "Export-Package");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the attribute name is not
+     * a valid attribute name.
+     */
+    @Test
+    public void findMainAttributeNonAsciiName() throws Exception {
+        assertMainAttribute("versionName: 1.2.3\n", "versionN\u00e4me", null);
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where a header misses the
+     * separator.
+     */
+    @Test(expected = IOException.class)
+    public void findMainAttributeInvalidHeader() throws Exception {
+        ManifestScanner.findMainAttribute(toStream("Manifest-Version 1.0\nversionName: 1.2.3\n"), "versionName");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttribute(java.io.InputStream, String)}, where the first line is a
+     * continuation line.
+     */
+    @Test(expected = IOException.class)
+    public void findMainAttributeMisplacedContinuationLine() throws Exception {
+        ManifestScanner.findMainAttribute(toStream(" 1.0\nversionName: 1.2.3\n"), "versionName");
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttributes(java.io.InputStream, String...)}, where the attributes appear
+     * in a different order than requested, one of them with a continuation line and one of them twice.
+     */
+    @Test
+    public void findMainAttributes() throws Exception {
+        String manifest = "Manifest-Version: 1.0\nBundle-Version: 4.5\nImplementation-Version: 1.2.3-SNAP\n SHOT\n"
+            + "Bundle-Version: 6.7\n\nName: entry\nImplementation-Title: other\n";
+
+        assertArrayEquals(new String[] { "1.2.3-SNAPSHOT", "6.7", null },
+            ManifestScanner.findMainAttributes(toStream(manifest),
+                "implementation-version", "Bundle-Version", "Implementation-Title"));
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttributes(java.io.InputStream, String...)}, where one attribute name is
+     * a prefix of another.
+     */
+    @Test
+    public void findMainAttributesNamePrefix() throws Exception {
+        String manifest = "versionNameLong: 1\nversion: 2\nversionName: 3\n";
+
+        assertArrayEquals(new String[] { "3", "1", "2" },
+            ManifestScanner.findMainAttributes(toStream(manifest), "versionName", "versionNameLong", "version"));
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttributes(java.io.InputStream, String...)}, where reading stops at the
+     * end of the main section, so that a malformed header after it does not matter.
+     */
+    @Test
+    public void findMainAttributesStopsAtEndOfMainSection() throws Exception {
+        String manifest = "a: 1\nb: 2\n\nmalformed\n";
+
+        assertArrayEquals(new String[] { "2", "1" },
+            ManifestScanner.findMainAttributes(toStream(manifest), "b", "a"));
+    }
+
+    /**
+     * Test for {@link ManifestScanner#findMainAttributes(java.io.InputStream, String...)}, where one attribute name is
+     * not a valid attribute name.
+     */
+    @Test
+    public void findMainAttributesNonAsciiName() throws Exception {
+        assertArrayEquals(new String[] { null, "1.2.3" },
+            ManifestScanner.findMainAttributes(toStream("versionName: 1.2.3\n"), "versionN\u00e4me", "versionName"));
+    }
+
+    private void assertMainAttribute(String manifest, String name, String expectedValue) throws IOException {
+        assertEquals("Unexpected value", expectedValue, ManifestScanner.findMainAttribute(toStream(manifest), name));
+    }
+
+    private void assertMainAttributeLikeManifest(byte[] manifest, String name) throws IOException {
+        String expectedValue = new Manifest(new ByteArrayInputStream(manifest)).getMainAttributes().getValue(name);
+        assertEquals("Unexpected value", expectedValue,
+            ManifestScanner.findMainAttribute(new ByteArrayInputStream(manifest), name));
+    }
+
+    private byte[] writeManifest(String name, String value) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(name, value);
+        return write(manifest);
+    }
+
+    private byte[] write(Manifest manifest) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manifest.write(out);
+        return out.toByteArray();
+    }
+
+    private ByteArrayInputStream toStream(String manifest) {
+        return new ByteArrayInputStream(manifest.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link OrderedParallelSearch}.
+ */
+public class OrderedParallelSearchTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test for {@link OrderedParallelSearch#findFirst(List, java.util.function.Function, ExecutorService)}, where a
+     * later candidate finishes before an earlier one. The earlier one must win.
+     */
+    @Test
+    public void findFirstEarlierCandidateWins() throws Exception {
+        final CountDownLatch laterFinished = new CountDownLatch(1);
+
+        String result = OrderedParallelSearch.findFirst(Arrays.asList(0, 1, 2, 3), candidate -> {
+            if (candidate == 1) {
+                await(laterFinished);
+                return "1";
+            }
+            if (candidate == 2) {
+                laterFinished.countDown();
+                return "2";
+            }
+            return null;
+        }, executor);
+
+        assertEquals("Unexpected result", "1", result);
+    }
+
+    /**
+     * Test for {@link OrderedParallelSearch#findFirst(List, java.util.function.Function, ExecutorService)}, where no
+     * candidate yields a result.
+     */
+    @Test
+    public void findFirstNoResult() throws Exception {
+        assertNull(OrderedParallelSearch.findFirst(Arrays.asList(0, 1, 2), candidate -> null, executor));
+        assertNull(OrderedParallelSearch.findFirst(Collections.emptyList(), candidate -> "x", executor));
+    }
+
+    /**
+     * Test for {@link OrderedParallelSearch#findFirst(List, java.util.function.Function, ExecutorService)}, where the
+     * result is found early. Candidates that come later must not all be evaluated.
+     */
+    @Test
+    public void findFirstSkipsLaterCandidates() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            List<Integer> candidates = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                candidates.add(i);
+            }
+            final AtomicInteger evaluated = new AtomicInteger();
+
+            Integer result = OrderedParallelSearch.findFirst(candidates, candidate -> {
+                evaluated.incrementAndGet();
+                return candidate == 3 ? candidate : null;
+            }, singleThread);
+
+            assertEquals("Unexpected result", Integer.valueOf(3), result);
+            assertEquals("Unexpected number of evaluations", 4, evaluated.get());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Test for {@link OrderedParallelSearch#findFirst(List, java.util.function.Function, ExecutorService)}, where a
+     * candidate that would have been evaluated sequentially throws an exception.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void findFirstRethrowsException() throws Exception {
+        OrderedParallelSearch.findFirst(Arrays.asList(0, 1), candidate -> {
+            if (candidate == 0) {
+                throw new IllegalArgumentException("Mocked exception");
+            }
+            return "1";
+        }, executor);
+    }
+
+    /**
+     * Test for {@link OrderedParallelSearch#findFirst(List, java.util.function.Function, ExecutorService)}, where a
+     * candidate that comes after the result throws an exception. Sequentially, it would not have been evaluated.
+     */
+    @Test
+    public void findFirstIgnoresExceptionAfterResult() throws Exception {
+        String result = OrderedParallelSearch.findFirst(Arrays.asList(0, 1), candidate -> {
+            if (candidate == 1) {
+                throw new IllegalArgumentException("Mocked exception");
+            }
+            return "0";
+        }, executor);
+
+        assertEquals("Unexpected result", "0", result);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue("Timeout", latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link PropertiesScanner}. Compares the results to those of {@link Properties#load(java.io.InputStream)}.
+ */
+public class PropertiesScannerTest {
+
+    /**
+     * Positive test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}.
+     */
+    @Test
+    public void findProperty() throws Exception {
+        assertPropertyLikeProperties("a=1\nversionName=1.2.3\nb=2", "versionName", "1.2.3");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, with different separators.
+     */
+    @Test
+    public void findPropertySeparators() throws Exception {
+        assertPropertyLikeProperties("versionName:1.2.3", "versionName", "1.2.3");
+        assertPropertyLikeProperties("versionName 1.2.3", "versionName", "1.2.3");
+        assertPropertyLikeProperties("versionName\t\f 1.2.3", "versionName", "1.2.3");
+        assertPropertyLikeProperties("  versionName  =  1.2.3  ", "versionName", "1.2.3  ");
+        assertPropertyLikeProperties("versionName = = 1.2.3", "versionName", "= 1.2.3");
+        assertPropertyLikeProperties("versionName :=1.2.3", "versionName", "=1.2.3");
+        assertPropertyLikeProperties("versionName=:1.2.3", "versionName", ":1.2.3");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the key has no
+     * value.
+     */
+    @Test
+    public void findPropertyEmptyValue() throws Exception {
+        assertPropertyLikeProperties("versionName", "versionName", "");
+        assertPropertyLikeProperties("versionName=\nb=2", "versionName", "");
+        assertPropertyLikeProperties("versionName   \nb=2", "versionName", "");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, with comments and blank
+     * lines.
+     */
+    @Test
+    public void findPropertyComments() throws Exception {
+        assertPropertyLikeProperties("# versionName=1\n  ! versionName=2\n\n   \nversionName=3", "versionName", "3");
+        assertPropertyLikeProperties("# comment \\\nversionName=3", "versionName", "3");
+        assertPropertyLikeProperties("#versionName=1", "versionName", null);
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, with lines continued on
+     * the next line.
+     */
+    @Test
+    public void findPropertyContinuationLines() throws Exception {
+        assertPropertyLikeProperties("versionName=1.2.3 \\\n    (branch master, \\\r\n\tcommit 4dd3cf5)", "versionName",
+            "1.2.3 (branch master, commit 4dd3cf5)");
+        assertPropertyLikeProperties("version\\\n  Name=1.2.3", "versionName", "1.2.3");
+        assertPropertyLikeProperties("versionName=\\\n  1.2.3", "versionName", "1.2.3");
+        assertPropertyLikeProperties("versionName=1\\\n\nb=2", "versionName", "1");
+        assertPropertyLikeProperties("versionName=1\\\r  # not a comment", "versionName", "1# not a comment");
+        assertPropertyLikeProperties("\\\nversionName=1", "versionName", "1");
+        assertPropertyLikeProperties("versionName=1\\\\\nb=2", "versionName", "1\\");
+        assertPropertyLikeProperties("versionName=1\\\\\\\nb=2", "versionName", "1\\b=2");
+        assertPropertyLikeProperties("versionName=1\\", "versionName", "1");
+        assertPropertyLikeProperties("versionName=1\\\\\\", "versionName", "1\\");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, with escape sequences in
+     * key and value.
+     */
+    @Test
+    public void findPropertyEscapes() throws Exception {
+        assertPropertyLikeProperties("version\\u004eame=1\\u002e2", "versionName", "1.2");
+        assertPropertyLikeProperties("version\\=Name=1", "version=Name", "1");
+        assertPropertyLikeProperties("version\\:Name\\ =1", "version:Name ", "1");
+        assertPropertyLikeProperties("version\\u003dName=1", "version=Name", "1");
+        assertPropertyLikeProperties("versionName=\\ 1\\t2\\n3\\r4\\f5\\x\\\\", "versionName", " 1\t2\n3\r4\f5x\\");
+        assertPropertyLikeProperties("versionName=\\u00e4", "versionName", "\u00e4");
+        assertPropertyLikeProperties("version\\\\=Name", "version\\", "Name");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the file contains
+     * ISO 8859-1 characters.
+     */
+    @Test
+    public void findPropertyLatin1() throws Exception {
+        byte[] properties = "versionN\u00e4me=\u00e4\u00f6\u00fc".getBytes(StandardCharsets.ISO_8859_1);
+
+        assertEquals("\u00e4\u00f6\u00fc", PropertiesScanner.findProperty(
+            new ByteArrayInputStream(properties), "versionN\u00e4me", false));
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the key is a prefix
+     * of another key or the other way round.
+     */
+    @Test
+    public void findPropertyKeyPrefix() throws Exception {
+        assertPropertyLikeProperties("versionNameLong=1\nversion=2\nversionName=3", "versionName", "3");
+        assertPropertyLikeProperties("versionNameLong=1\nversion=2", "versionName", null);
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the key is contained
+     * more than once.
+     */
+    @Test
+    public void findPropertyDuplicateKeys() throws Exception {
+        String properties = "versionName=1\nversionName=2\nb=3";
+
+        assertPropertyLikeProperties(properties, "versionName", "2");
+        assertEquals("1", PropertiesScanner.findProperty(toStream(properties), "versionName", true));
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the file is larger
+     * than the scanner's buffer.
+     */
+    @Test
+    public void findPropertyLargeFile() throws Exception {
+        StringBuilder properties = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            properties.append("build.metadata.").append(i).append(" = some value \\\n    continued ").append(i).append('\n');
+        }
+        properties.append("versionName=1.2.3\n");
+
+        assertPropertyLikeProperties(properties.toString(), "versionName", "1.2.3");
+        assertPropertyLikeProperties(properties.toString(), "build.metadata.4711", "some value continued 4711");
+    }
+
+    /**
+     * Test for {@link PropertiesScanner#findProperty(java.io.InputStream, String, boolean)}, where the value contains
+     * a malformed unicode escape.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void findPropertyMalformedUnicodeEscape() throws Exception {
+        PropertiesScanner.findProperty(toStream("versionName=\\u00g4"), "versionName", false);
+    }
+
+    private void assertPropertyLikeProperties(String properties, String key, String expectedValue) throws IOException {
+        Properties props = new Properties();
+        props.load(toStream(properties));
+        assertEquals("Test data does not match java.util.Properties", expectedValue, props.getProperty(key));
+
+        assertEquals("Unexpected value", expectedValue, PropertiesScanner.findProperty(toStream(properties), key, false));
+    }
+
+    private ByteArrayInputStream toStream(String properties) {
+        return new ByteArrayInputStream(properties.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Rule;
+import org.junit.Test;
+import uk.org.lidalia.slf4jtest.LoggingEvent;
+import uk.org.lidalia.slf4jtest.TestLogger;
+import uk.org.lidalia.slf4jtest.TestLoggerFactory;
+import uk.org.lidalia.slf4jtest.TestLoggerFactoryResetRule;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link RateLimitedLog}.
+ */
+public class RateLimitedLogTest {
+
+    private static final String MESSAGE = "Version name not found in {}";
+
+    private static final TestLogger LOG = TestLoggerFactory.getTestLogger(RateLimitedLogTest.class);
+
+    @Rule public TestLoggerFactoryResetRule testLoggerFactoryResetRule = new TestLoggerFactoryResetRule();
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final RateLimitedLog log = new RateLimitedLog(LOG, 10, TimeUnit.SECONDS, nanoTime::get);
+
+    /**
+     * Test for {@link RateLimitedLog#error(String, Object...)}, where identical messages are logged within the
+     * interval.
+     */
+    @Test
+    public void errorSuppressedWithinInterval() {
+        log.error(MESSAGE, "app.properties");
+        nanoTime.set(TimeUnit.SECONDS.toNanos(9));
+        log.error(MESSAGE, "app.properties");
+
+        assertEquals(Arrays.asList(LoggingEvent.error(MESSAGE, "app.properties")), LOG.getLoggingEvents());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#error(String, Object...)}, where a message is logged again after the interval, with
+     * the number of occurrences suppressed in between.
+     */
+    @Test
+    public void errorCountedAfterInterval() {
+        log.error(MESSAGE, "app.properties");
+        log.error(MESSAGE, "app.properties");
+        log.error(MESSAGE, "app.properties");
+        nanoTime.set(TimeUnit.SECONDS.toNanos(12));
+        log.error(MESSAGE, "app.properties");
+        nanoTime.set(TimeUnit.SECONDS.toNanos(30));
+        log.error(MESSAGE, "app.properties");
+
+        assertEquals(Arrays.asList(
+            LoggingEvent.error(MESSAGE, "app.properties"),
+            LoggingEvent.error(MESSAGE + RateLimitedLog.SUPPRESSED_SUFFIX, "app.properties", 2L, 12000L),
+            LoggingEvent.error(MESSAGE, "app.properties")),
+            LOG.getLoggingEvents());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#error(String, Object...)}, where the messages have different arguments.
+     */
+    @Test
+    public void errorDifferentArguments() {
+        log.error(MESSAGE, "app.properties");
+        log.error(MESSAGE, "other.properties");
+
+        assertEquals(2, LOG.getLoggingEvents().size());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#error(String, Object...)}, where the messages contain exceptions, which are
+     * compared by type and stay the last argument.
+     */
+    @Test
+    public void errorWithException() {
+        IOException exception = new IOException("first");
+        log.error(MESSAGE, "app.properties", exception);
+        log.error(MESSAGE, "app.properties", new IOException("second"));
+        log.error(MESSAGE, "app.properties", new IllegalStateException("other type"));
+        nanoTime.set(TimeUnit.SECONDS.toNanos(10));
+        IOException last = new IOException("last");
+        log.error(MESSAGE, "app.properties", last);
+
+        assertEquals(3, LOG.getLoggingEvents().size());
+        assertSame(exception, LOG.getLoggingEvents().get(0).getThrowable().get());
+        LoggingEvent counted = LOG.getLoggingEvents().get(2);
+        assertEquals(MESSAGE + RateLimitedLog.SUPPRESSED_SUFFIX, counted.getMessage());
+        assertEquals(Arrays.<Object>asList("app.properties", 1L, 10000L), counted.getArguments());
+        assertSame(last, counted.getThrowable().get());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#warn(String, Object...)}.
+     */
+    @Test
+    public void warn() {
+        log.warn(MESSAGE, "app.properties");
+        log.warn(MESSAGE, "app.properties");
+
+        assertEquals(Arrays.asList(LoggingEvent.warn(MESSAGE, "app.properties")), LOG.getLoggingEvents());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#setInterval(long, TimeUnit)}, where an interval of 0 logs all messages.
+     */
+    @Test
+    public void setIntervalZero() {
+        log.setInterval(0, TimeUnit.MILLISECONDS);
+
+        log.error(MESSAGE, "app.properties");
+        log.error(MESSAGE, "app.properties");
+
+        assertEquals(2, LOG.getLoggingEvents().size());
+    }
+
+    /**
+     * Test for {@link RateLimitedLog#reset()}.
+     */
+    @Test
+    public void reset() {
+        log.error(MESSAGE, "app.properties");
+
+        log.reset();
+        log.error(MESSAGE, "app.properties");
+
+        assertEquals(2, LOG.getLoggingEvents().size());
+    }
+}
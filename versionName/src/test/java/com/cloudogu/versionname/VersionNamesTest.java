@@ -23,9 +23,11 @@
  */
 package com.cloudogu.versionname;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.mockito.stubbing.OngoingStubbing;
@@ -37,20 +39,35 @@ import uk.org.lidalia.slf4jtest.TestLoggerFactoryResetRule;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 
 import static com.cloudogu.versionname.VersionNames.*;
 import static com.cloudogu.versionname.VersionNames.VersionName.*;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -73,10 +90,34 @@ public class VersionNamesTest {
      * Rest logger before each test.
      **/
     @Rule public TestLoggerFactoryResetRule testLoggerFactoryResetRule = new TestLoggerFactoryResetRule();
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final VersionLookupMetrics metrics = new VersionLookupMetrics();
 
     @Before
     public void setUp() throws Exception {
         Thread.currentThread().setContextClassLoader(classLoader);
+        when(classLoader.getResources(VersionNameIndex.INDEX_PATH)).thenReturn(Collections.<URL>emptyEnumeration());
+        // The mocked class loader does not list provider configurations
+        VersionNames.setProvidersEnabled(false);
+        // Identical errors might have been logged by other tests
+        VersionNames.ERROR_LOG.reset();
+    }
+
+    @After
+    public void tearDown() {
+        VersionNames.setCacheEnabled(true);
+        VersionNames.invalidateCache();
+        VersionNames.setDuplicatePropertyPolicy(DuplicatePropertyPolicy.LAST_WINS);
+        VersionNames.setParallelScanExecutor(null);
+        VersionNames.setIndexEnabled(true);
+        VersionNames.setLoadingStrategies(null);
+        VersionNames.setMappedJarReaderEnabled(false);
+        VersionNames.removeLookupListener(metrics);
+        VersionNames.setAsyncExecutor(null);
+        VersionNames.setProvidersEnabled(true);
+        VersionNames.setMissCacheTtl(VersionNameMissCache.DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+        VersionNames.setErrorLogInterval(RateLimitedLog.DEFAULT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -289,6 +330,227 @@ public class VersionNamesTest {
         assertEquals("Unexpected log level", Level.WARN, logEvent.getLevel());
     }
 
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the property is contained more than once.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesDuplicateProperty() throws Exception {
+        String properties = DEFAULT_PROPERTY + "=1\n" + DEFAULT_PROPERTY + "=2";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, new ByteArrayInputStream(properties.getBytes()));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", "2", actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the property is contained more than once and
+     * {@link DuplicatePropertyPolicy#FIRST_WINS} is set.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesDuplicatePropertyFirstWins() throws Exception {
+        VersionNames.setDuplicatePropertyPolicy(DuplicatePropertyPolicy.FIRST_WINS);
+        String properties = DEFAULT_PROPERTY + "=1\n" + DEFAULT_PROPERTY + "=2";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, new ByteArrayInputStream(properties.getBytes()));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", "1", actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()} where resources are read in parallel and multiple
+     * of them contain the version. The first one in classpath order must win.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            VersionNames.setParallelScanExecutor(executor);
+            List<InputStream> streams = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                streams.add(createManifestStreamWithoutVersionName());
+            }
+            streams.add(createManifestStreamWithVersion("1"));
+            streams.add(createManifestStreamWithVersion("2"));
+            mockResourcesWithSeparateUrls(DEFAULT_PROPERTIES_FILE_PATH, streams);
+
+            // Call method under test
+            String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+            // Assertions
+            assertEquals("Unexpected version name", "1", actualVersionName);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()} where resources are to be read in parallel but the
+     * executor rejects. Must fall back to reading sequentially.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesParallelRejected() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        VersionNames.setParallelScanExecutor(executor);
+        mockResourcesWithSeparateUrls(DEFAULT_PROPERTIES_FILE_PATH, Arrays.<InputStream>asList(
+            createManifestStreamWithoutVersionName(), createManifestStreamWithVersion("1")));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", "1", actualVersionName);
+        LoggingEvent logEvent = getLogEvent(0);
+        assertEquals("Unexpected log message", LOG_PARALLEL_SCAN_REJECTED, logEvent.getMessage());
+        assertEquals("Unexpected log level", Level.WARN, logEvent.getLevel());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the version name is contained in the index.
+     * The classpath must not be scanned.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesIndex() throws Exception {
+        String expectedVersionName = "42L";
+        mockIndex("properties|" + DEFAULT_PROPERTIES_FILE_PATH + "|" + DEFAULT_PROPERTY + "=" + expectedVersionName);
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+        verify(classLoader, never()).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the class path contains several indexes,
+     * e.g. of the application and of a library. They are merged, the first one in class path order wins.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesIndexesMerged() throws Exception {
+        mockIndex("properties|" + DEFAULT_PROPERTIES_FILE_PATH + "|" + DEFAULT_PROPERTY + "=42L",
+            "properties|" + DEFAULT_PROPERTIES_FILE_PATH + "|" + DEFAULT_PROPERTY + "=43L\n"
+                + "properties|/library.properties|" + DEFAULT_PROPERTY + "=44L");
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+        String actualLibraryVersionName = VersionNames.getVersionNameFromProperties("/library.properties",
+            DEFAULT_PROPERTY);
+
+        // Assertions
+        assertEquals("Unexpected version name", "42L", actualVersionName);
+        assertEquals("Unexpected version name of library", "44L", actualLibraryVersionName);
+        verify(classLoader, never()).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()}, where the index only contains the version name of
+     * a properties file. The classpath must be scanned.
+     */
+    @Test
+    public void testGetVersionNameFromManifestNotInIndex() throws Exception {
+        String expectedVersionName = "42";
+        mockIndex("properties|" + DEFAULT_MANIFEST_PATH + "|" + DEFAULT_MANIFEST_ATTRIBUTE + "=43");
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifest(DEFAULT_MANIFEST_ATTRIBUTE, expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromManifest();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the index is disabled.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesIndexDisabled() throws Exception {
+        VersionNames.setIndexEnabled(false);
+        String expectedVersionName = "42L";
+        mockIndex("properties|" + DEFAULT_PROPERTIES_FILE_PATH + "|" + DEFAULT_PROPERTY + "=43");
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+        verify(classLoader, never()).getResources(VersionNameIndex.INDEX_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where there is no index. Looking for it only once
+     * per class loader.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesNoIndex() throws Exception {
+        VersionNames.setCacheEnabled(false);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, Arrays.<InputStream>asList(
+            createManifestStreamWithVersion("42L"), createManifestStreamWithVersion("42L")));
+
+        // Call method under test
+        VersionNames.getVersionNameFromProperties();
+        VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        verify(classLoader, times(1)).getResources(VersionNameIndex.INDEX_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where only the second loading strategy yields
+     * resources. It must be tried first on the next call.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesRemembersLoadingStrategy() throws Exception {
+        VersionNames.setCacheEnabled(false);
+        VersionNames.resetLoadingStrategyStatistics();
+        when(classLoader.getResources(DEFAULT_PROPERTIES_FILE_PATH))
+            .thenReturn(Collections.enumeration(Collections.<URL>emptyList()));
+        mockSingleResource(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("42L"),
+            createManifestStreamWithVersion("42L"));
+
+        // Call method under test
+        VersionNames.getVersionNameFromProperties();
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", "42L", actualVersionName);
+        verify(classLoader, times(1)).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+        List<LoadingStrategyStatistics> statistics = VersionNames.getLoadingStrategyStatistics();
+        assertEquals("Unexpected number of strategies", 3, statistics.size());
+        assertStatistics(statistics.get(0), "GetResourcesLoadingStrategy", 1, 0, 0);
+        assertStatistics(statistics.get(1), "GetSingleResourceLoadingStrategy", 2, 2, 1);
+        assertStatistics(statistics.get(2), "RelativePathLoadingStrategy", 0, 0, 0);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the remembered loading strategy stops
+     * yielding resources. All strategies must be tried again.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesRememberedLoadingStrategyStopsYielding() throws Exception {
+        VersionNames.setCacheEnabled(false);
+        when(classLoader.getResources(DEFAULT_PROPERTIES_FILE_PATH))
+            .thenReturn(Collections.enumeration(Collections.<URL>emptyList()));
+        mockSingleResource(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("42L"));
+        VersionNames.getVersionNameFromProperties();
+        when(classLoader.getResource(DEFAULT_PROPERTIES_FILE_PATH)).thenReturn(null);
+        String expectedVersionName = "43L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
     /**
      * Test for {@link VersionNames#getVersionNameFromManifest(String, String)}.
      */
@@ -437,6 +699,660 @@ public class VersionNamesTest {
         assertEquals("Unexpected log level", Level.WARN, logEvent.getLevel());
     }
 
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the second call is answered from the cache.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesCached() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        VersionNames.getVersionNameFromProperties();
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+        verify(classLoader, times(1)).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()}, where a cached version name read from a properties
+     * file with the same path and key is not returned.
+     */
+    @Test
+    public void testGetVersionNameFromManifestCachedSeparatelyFromProperties() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, Arrays.<InputStream>asList(
+            createManifestStreamWithVersion("42L"), createManifest(DEFAULT_PROPERTY, "43")));
+
+        // Call method under test
+        VersionNames.getVersionNameFromProperties();
+        String actualVersionName = VersionNames.getVersionNameFromManifest(DEFAULT_PROPERTIES_FILE_PATH, DEFAULT_PROPERTY);
+
+        // Assertions
+        assertEquals("Unexpected version name", "43", actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where nothing was found. Must not be cached if
+     * misses are not remembered.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesNotFoundNotCached() throws Exception {
+        VersionNames.setMissCacheTtl(0, TimeUnit.MILLISECONDS);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where nothing was found. The miss is remembered, so
+     * the classpath is not scanned again, and the error is logged only once.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesNotFoundRemembered() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.addLookupListener(metrics);
+
+        // Call method under test
+        VersionNames.getVersionNameFromProperties();
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", VERSION_STRING_ON_ERROR, actualVersionName);
+        verify(classLoader, times(1)).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+        assertEquals(1, metrics.snapshot().getLookups(VersionLookupListener.Outcome.MISS_CACHE_HIT));
+        assertEquals("Unexpected number of Log messages", 1, LOG.getLoggingEvents().size());
+        assertEquals("Unexpected log message", LOG_NOT_FOUND_IN_RESOURCE, getLogEvent(0).getMessage());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where nothing was found and the miss expired
+     * before the version name is looked up again.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesNotFoundExpired() throws Exception {
+        VersionNames.setMissCacheTtl(1, TimeUnit.MILLISECONDS);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+        Thread.sleep(10);
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where nothing was found with the cache disabled, so
+     * the miss is not remembered either.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesNotFoundCacheDisabled() throws Exception {
+        VersionNames.setCacheEnabled(false);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#invalidateCache()}, which drops remembered misses as well.
+     */
+    @Test
+    public void testInvalidateCacheDropsMisses() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        VersionNames.invalidateCache();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, VersionNames.getVersionNameFromProperties());
+    }
+
+    /**
+     * Test for {@link VersionNames#setIndexEnabled(boolean)}, which drops remembered misses, as the index might know the
+     * version name.
+     */
+    @Test
+    public void testSetIndexEnabledDropsMisses() throws Exception {
+        VersionNames.setIndexEnabled(false);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithoutVersionName());
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "42L";
+        mockIndex("properties|" + DEFAULT_PROPERTIES_FILE_PATH + "|" + DEFAULT_PROPERTY + "=" + expectedVersionName);
+
+        // Call method under test
+        VersionNames.setIndexEnabled(true);
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, VersionNames.getVersionNameFromProperties());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, with disabled cache.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesCacheDisabled() throws Exception {
+        VersionNames.setCacheEnabled(false);
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("42L"));
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "43L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#invalidateCache(ClassLoader)}.
+     */
+    @Test
+    public void testInvalidateCache() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("42L"));
+        VersionNames.getVersionNameFromProperties();
+        String expectedVersionName = "43L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        VersionNames.invalidateCache(classLoader);
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where a different context class loader does not
+     * see the version name cached for another one.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesCachedPerClassLoader() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("42L"));
+        VersionNames.getVersionNameFromProperties();
+        classLoader = mock(ClassLoader.class);
+        when(classLoader.getResources(VersionNameIndex.INDEX_PATH)).thenReturn(Collections.<URL>emptyEnumeration());
+        Thread.currentThread().setContextClassLoader(classLoader);
+        String expectedVersionName = "43L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * Test for {@link VersionNames#setLoadingStrategies(List)}, with a custom strategy that takes precedence over the
+     * built-in ones.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesCustomLoadingStrategy() throws Exception {
+        final String expectedVersionName = "42L";
+        VersionNames.setLoadingStrategies(Arrays.asList(new GetResourcesLoadingStrategy(), new LoadingStrategy() {
+            @Override
+            public Enumeration<URL> getResources(ClassLoader classLoader, String resourcePath) throws IOException {
+                return Collections.enumeration(Collections.singletonList(new URL("dont", "care", 0, "about-this",
+                    new URLStreamHandler() {
+                        @Override
+                        protected URLConnection openConnection(URL u) {
+                            URLConnection connection = mock(URLConnection.class);
+                            try {
+                                when(connection.getInputStream())
+                                    .thenReturn(createManifestStreamWithVersion(expectedVersionName));
+                            } catch (IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                            return connection;
+                        }
+                    })));
+            }
+
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+        }));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+        assertEquals("Unexpected number of strategies", 2, VersionNames.getLoadingStrategies().size());
+        verify(classLoader, never()).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()} with manifests in actual jars, read via the
+     * memory-mapped jar reader.
+     */
+    @Test
+    public void testGetVersionNameFromManifestInJar() throws Exception {
+        VersionNames.setMappedJarReaderEnabled(true);
+        String expectedVersionName = "42L";
+        when(classLoader.getResources(DEFAULT_MANIFEST_PATH)).thenReturn(Collections.enumeration(Arrays.asList(
+            createJarUrl(null), createJarUrl(expectedVersionName))));
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromManifest();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+        assertEquals("Unexpected number of Log messages", 0, LOG.getLoggingEvents().size());
+    }
+
+    /**
+     * Test for {@link VersionNames#addLookupListener(VersionLookupListener)}, with a lookup that reads the classpath
+     * and one that is answered from the cache.
+     */
+    @Test
+    public void testLookupMetrics() throws Exception {
+        VersionNames.addLookupListener(metrics);
+        String manifest = "Manifest-Version: 1.0\n" + DEFAULT_MANIFEST_ATTRIBUTE + ": 42L\n";
+        mockManifest(DEFAULT_MANIFEST_PATH, new ByteArrayInputStream(manifest.getBytes()));
+
+        // Call method under test
+        VersionNames.getVersionNameFromManifest();
+        VersionNames.getVersionNameFromManifest();
+
+        // Assertions
+        VersionLookupMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals("Unexpected lookups", 2, snapshot.getLookups());
+        assertEquals("Unexpected lookups found", 1, snapshot.getLookups(VersionLookupListener.Outcome.FOUND));
+        assertEquals("Unexpected lookups cached", 1, snapshot.getLookups(VersionLookupListener.Outcome.CACHE_HIT));
+        assertEquals("Unexpected cache hits", 1, snapshot.getCacheHits());
+        assertEquals("Unexpected cache misses", 1, snapshot.getCacheMisses());
+        assertEquals("Unexpected index misses", 1, snapshot.getIndexMisses());
+        assertEquals("Unexpected strategies", Collections.singleton("GetResourcesLoadingStrategy"),
+            snapshot.getStrategies().keySet());
+        assertEquals("Unexpected strategy hits", 1, snapshot.getStrategies().get("GetResourcesLoadingStrategy").getHits());
+        assertEquals("Unexpected resources enumerated", 1, snapshot.getResourcesEnumerated());
+        assertEquals("Unexpected resources read", 1, snapshot.getResourcesRead());
+        assertEquals("Unexpected bytes read", manifest.length(), snapshot.getBytesRead());
+        assertEquals("Unexpected resource latency count", 1, snapshot.getResourceLatency().getCount());
+        assertEquals("Unexpected slowest resource", "about-this", snapshot.getSlowestResource().getFile());
+    }
+
+    /**
+     * Test for {@link VersionNames#addLookupListener(VersionLookupListener)}, with lookups that fail.
+     */
+    @Test
+    public void testLookupMetricsNotFound() throws Exception {
+        VersionNames.addLookupListener(metrics);
+        mockManifest(DEFAULT_MANIFEST_PATH, mock(InputStream.class, new ThrowIOExceptionOnEachMethodCall()));
+
+        // Call method under test
+        VersionNames.getVersionNameFromManifest();
+        VersionNames.getVersionNameFromManifest(null, DEFAULT_MANIFEST_ATTRIBUTE);
+
+        // Assertions
+        VersionLookupMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals("Unexpected lookups not found", 1,
+            snapshot.getLookups(VersionLookupListener.Outcome.NOT_FOUND));
+        assertEquals("Unexpected lookups with invalid argument", 1,
+            snapshot.getLookups(VersionLookupListener.Outcome.INVALID_ARGUMENT));
+        assertEquals("Unexpected resources failed", 1, snapshot.getResourcesFailed());
+        assertEquals("Unexpected resources read", 0, snapshot.getResourcesRead());
+    }
+
+    /**
+     * Test for {@link VersionNames#addLookupListener(VersionLookupListener)}, with a listener that throws. The lookup
+     * must succeed nonetheless.
+     */
+    @Test
+    public void testLookupListenerThrows() throws Exception {
+        VersionLookupListener throwingListener = new VersionLookupListener() {
+            @Override
+            public void onLookupFinished(VersionLookup lookup, Outcome outcome, long durationNanos) {
+                throw new IllegalStateException("Mocked Exception");
+            }
+        };
+        VersionNames.addLookupListener(throwingListener);
+        VersionNames.addLookupListener(metrics);
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        try {
+            // Call method under test
+            String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+            // Assertions
+            assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+            assertEquals("Unexpected lookups", 1, metrics.snapshot().getLookups());
+        } finally {
+            VersionNames.removeLookupListener(throwingListener);
+        }
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromPropertiesAsync(String, String, java.util.concurrent.Executor)}.
+     * The lookup must run with the context class loader of the caller, and concurrent callers must share it.
+     */
+    @Test
+    public void testGetVersionNameFromPropertiesAsync() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+        final List<Runnable> tasks = new ArrayList<>();
+
+        // Call method under test
+        CompletableFuture<String> first = VersionNames.getVersionNameFromPropertiesAsync(DEFAULT_PROPERTIES_FILE_PATH,
+            DEFAULT_PROPERTY, tasks::add);
+        CompletableFuture<String> second = VersionNames.getVersionNameFromPropertiesAsync(DEFAULT_PROPERTIES_FILE_PATH,
+            DEFAULT_PROPERTY, tasks::add);
+
+        // Assertions
+        assertEquals("Unexpected number of lookups started", 1, tasks.size());
+        assertFalse("Future completed before lookup ran", first.isDone());
+        // Run the lookup on a thread with a different context class loader
+        Thread thread = new Thread(tasks.get(0));
+        thread.setContextClassLoader(null);
+        thread.start();
+        thread.join();
+        assertEquals("Unexpected version name", expectedVersionName, first.get());
+        assertEquals("Unexpected version name", expectedVersionName, second.get());
+        verify(classLoader, times(1)).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifestAsync(String, String, java.util.concurrent.Executor)},
+     * where the version name is cached. The executor must not be used.
+     */
+    @Test
+    public void testGetVersionNameFromManifestAsyncCached() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifest(DEFAULT_MANIFEST_ATTRIBUTE, expectedVersionName));
+        VersionNames.getVersionNameFromManifest();
+
+        // Call method under test
+        CompletableFuture<String> future = VersionNames.getVersionNameFromManifestAsync(DEFAULT_MANIFEST_PATH,
+            DEFAULT_MANIFEST_ATTRIBUTE, command -> {
+                throw new AssertionError("Executor must not be used");
+            });
+
+        // Assertions
+        assertTrue("Future not completed", future.isDone());
+        assertEquals("Unexpected version name", expectedVersionName, future.get());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifestAsync()}, where the executor rejects the lookup. The
+     * next lookup must not be affected.
+     */
+    @Test
+    public void testGetVersionNameFromManifestAsyncRejected() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifest(DEFAULT_MANIFEST_ATTRIBUTE, expectedVersionName));
+        VersionNames.setAsyncExecutor(command -> {
+            throw new RejectedExecutionException("Mocked Exception");
+        });
+
+        // Call method under test
+        CompletableFuture<String> rejected = VersionNames.getVersionNameFromManifestAsync();
+        VersionNames.setAsyncExecutor(null);
+        CompletableFuture<String> accepted = VersionNames.getVersionNameFromManifestAsync();
+
+        // Assertions
+        assertTrue("Future not completed exceptionally", rejected.isCompletedExceptionally());
+        assertEquals("Unexpected version name", expectedVersionName, accepted.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test for {@link VersionNames#prefetchVersionNameFromProperties()}. The getter must return the prefetched value.
+     */
+    @Test
+    public void testPrefetchVersionNameFromProperties() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion(expectedVersionName));
+
+        // Call method under test
+        CompletableFuture<String> prefetched = VersionNames.prefetchVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, prefetched.get(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected version name", expectedVersionName, VersionNames.getVersionNameFromProperties());
+        verify(classLoader, times(1)).getResources(DEFAULT_PROPERTIES_FILE_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()} while the same lookup is in flight. The getter must
+     * wait for it instead of scanning again.
+     */
+    @Test
+    public void testGetVersionNameFromManifestWaitsForInFlightLookup() throws Exception {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifest(DEFAULT_MANIFEST_ATTRIBUTE, expectedVersionName));
+        final List<Runnable> tasks = new ArrayList<>();
+        VersionNames.getVersionNameFromManifestAsync(DEFAULT_MANIFEST_PATH, DEFAULT_MANIFEST_ATTRIBUTE, tasks::add);
+
+        // Call method under test
+        FutureTask<String> waiting = new FutureTask<>(() -> VersionNames.getVersionNameFromManifest());
+        new Thread(waiting).start();
+
+        // Assertions
+        Thread.sleep(100);
+        assertFalse("Getter did not wait for the lookup in flight", waiting.isDone());
+        tasks.get(0).run();
+        assertEquals("Unexpected version name", expectedVersionName, waiting.get(10, TimeUnit.SECONDS));
+        verify(classLoader, times(1)).getResources(DEFAULT_MANIFEST_PATH);
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()}, where a {@link VersionNameProvider} knows the version
+     * name. No resources must be read.
+     */
+    @Test
+    public void testGetVersionNameFromManifestProvider() throws Exception {
+        Thread.currentThread().setContextClassLoader(createProviderClassLoader());
+        VersionNames.setProvidersEnabled(true);
+        VersionNames.addLookupListener(metrics);
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromManifest();
+
+        // Assertions
+        assertEquals("Unexpected version name", TestVersionNameProvider.VERSION_NAME, actualVersionName);
+        VersionLookupMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals("Unexpected number of provider hits", 1, snapshot.getLookups(VersionLookupListener.Outcome.PROVIDER_HIT));
+        assertEquals("Unexpected number of resources enumerated", 0, snapshot.getResourcesEnumerated());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest(String, String)}, where the
+     * {@link VersionNameProvider} does not know the version name. The next source, i.e. the index, must be used.
+     */
+    @Test
+    public void testGetVersionNameFromManifestProviderUnknownKey() throws Exception {
+        Thread.currentThread().setContextClassLoader(createProviderClassLoader());
+        VersionNames.setProvidersEnabled(true);
+        VersionNames.addLookupListener(metrics);
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromManifest(DEFAULT_MANIFEST_PATH, "other");
+
+        // Assertions
+        assertEquals("Unexpected version name", "43I", actualVersionName);
+        assertEquals("Unexpected number of index hits", 1, metrics.snapshot().getLookups(VersionLookupListener.Outcome.INDEX_HIT));
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromManifest()}, where the {@link VersionNameProvider} is loaded by
+     * a parent of the context class loader, like a library shared by the web applications of a container. It must not
+     * answer lookups of the context class loader.
+     */
+    @Test
+    public void testGetVersionNameFromManifestProviderOfParent() throws Exception {
+        Thread.currentThread().setContextClassLoader(createProviderClassLoader(false));
+        VersionNames.setProvidersEnabled(true);
+        VersionNames.addLookupListener(metrics);
+
+        // Call method under test
+        VersionNames.getVersionNameFromManifest();
+
+        // Assertions
+        assertEquals("Unexpected number of provider hits", 0, metrics.snapshot().getLookups(VersionLookupListener.Outcome.PROVIDER_HIT));
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionNameFromProperties()}, where the class loader fails to list the provider
+     * configurations. Discovery must give up, so the version name is read from the properties.
+     */
+    @Test(timeout = 10000)
+    public void testGetVersionNameFromPropertiesProvidersFailingClassLoader() {
+        String expectedVersionName = "42L";
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH,
+            Collections.singletonList(createManifestStreamWithVersion(expectedVersionName)));
+        Thread.currentThread().setContextClassLoader(new ClassLoader(classLoader) {
+            @Override
+            public Enumeration<URL> getResources(String name) throws IOException {
+                if (name.startsWith("META-INF/services/")) {
+                    throw new IOException("Mocked Exception");
+                }
+                return super.getResources(name);
+            }
+        });
+        VersionNames.setProvidersEnabled(true);
+
+        // Call method under test
+        String actualVersionName = VersionNames.getVersionNameFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version name", expectedVersionName, actualVersionName);
+    }
+
+    /**
+     * @return a class loader that loads {@link TestVersionNameProvider}, lists it as provider and contains an index
+     */
+    private ClassLoader createProviderClassLoader() throws IOException {
+        return createProviderClassLoader(true);
+    }
+
+    /**
+     * @param loadsProvider whether the class loader loads {@link TestVersionNameProvider} itself or leaves it to its
+     *                      parent
+     * @return a class loader that lists {@link TestVersionNameProvider} as provider and contains an index
+     */
+    private ClassLoader createProviderClassLoader(boolean loadsProvider) throws IOException {
+        File root = folder.newFolder();
+        File services = new File(root, "META-INF/services/" + VersionNameProvider.class.getName());
+        assertTrue("Unable to create " + services.getParent(), services.getParentFile().mkdirs());
+        Files.write(services.toPath(), TestVersionNameProvider.class.getName().getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(root, VersionNameIndex.INDEX_PATH).toPath(),
+            "manifest|META-INF/MANIFEST.MF|other=43I".getBytes(StandardCharsets.UTF_8));
+        URL testClasses = TestVersionNameProvider.class.getProtectionDomain().getCodeSource().getLocation();
+        return new URLClassLoader(new URL[]{root.toURI().toURL(), testClasses}, getClass().getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!loadsProvider || !TestVersionNameProvider.class.getName().equals(name)) {
+                    return super.loadClass(name, resolve);
+                }
+                synchronized (getClassLoadingLock(name)) {
+                    Class<?> loaded = findLoadedClass(name);
+                    return loaded != null ? loaded : findClass(name);
+                }
+            }
+        };
+    }
+
+    /**
+     * Provider as generated by the annotation processor.
+     */
+    public static class TestVersionNameProvider implements VersionNameProvider {
+        static final String VERSION_NAME = "42P";
+
+        @Override
+        public String getVersionName(SourceType sourceType, String resourcePath, String key) {
+            if (sourceType == SourceType.MANIFEST && DEFAULT_MANIFEST_PATH.equals(resourcePath)
+                && DEFAULT_MANIFEST_ATTRIBUTE.equals(key)) {
+                return VERSION_NAME;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionFromProperties()}.
+     */
+    @Test
+    public void testGetVersionFromProperties() throws Exception {
+        mockManifest(DEFAULT_PROPERTIES_FILE_PATH, createManifestStreamWithVersion("2.2.1-SNAPSHOT"));
+
+        // Call method under test
+        Version actualVersion = VersionNames.getVersionFromProperties();
+
+        // Assertions
+        assertEquals("Unexpected version", Version.parse("2.2.1-SNAPSHOT"), actualVersion);
+        assertEquals("Unexpected qualifier", "SNAPSHOT", actualVersion.getQualifier());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionFromManifest()}, where the version name is not a version.
+     */
+    @Test
+    public void testGetVersionFromManifestNotAVersion() throws Exception {
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifest(DEFAULT_MANIFEST_ATTRIBUTE, "SNAPSHOT"));
+
+        // Call method under test
+        Version actualVersion = VersionNames.getVersionFromManifest();
+
+        // Assertions
+        assertNull("Unexpected version", actualVersion);
+        LoggingEvent event = getLogEvent(0);
+        assertEquals("Unexpected log level", Level.ERROR, event.getLevel());
+        assertEquals("Unexpected log message", LOG_NOT_A_VERSION, event.getMessage());
+    }
+
+    /**
+     * Test for {@link VersionNames#getVersionFromManifest()}, where the version name is not found.
+     */
+    @Test
+    public void testGetVersionFromManifestNotFound() throws Exception {
+        mockManifest(DEFAULT_MANIFEST_PATH, createManifestStreamWithoutVersionName());
+
+        // Call method under test
+        Version actualVersion = VersionNames.getVersionFromManifest();
+
+        // Assertions
+        assertNull("Unexpected version", actualVersion);
+    }
+
+    /**
+     * @return the URL of the manifest within a new jar
+     */
+    private URL createJarUrl(String versionName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (versionName != null) {
+            manifest.getMainAttributes().put(new Attributes.Name(DEFAULT_MANIFEST_ATTRIBUTE), versionName);
+        }
+        File jar = folder.newFile();
+        new JarOutputStream(new FileOutputStream(jar), manifest).close();
+        return new URL("jar:" + jar.toURI() + "!/" + DEFAULT_MANIFEST_PATH);
+    }
+
     /**
      * @return a {@link Manifest} as {@link ByteArrayInputStream}
      */
@@ -480,10 +1396,68 @@ public class VersionNamesTest {
         return new ByteArrayInputStream(MANIFEST_WITHOUT_VERSION.getBytes());
     }
 
+    private void assertStatistics(LoadingStrategyStatistics statistics, String expectedStrategy, long expectedAttempts,
+                                  long expectedHits, long expectedMemoizedHits) {
+        assertEquals("Unexpected strategy", expectedStrategy, statistics.getStrategy());
+        assertEquals("Unexpected attempts", expectedAttempts, statistics.getAttempts());
+        assertEquals("Unexpected hits", expectedHits, statistics.getHits());
+        assertEquals("Unexpected memoized hits", expectedMemoizedHits, statistics.getMemoizedHits());
+    }
+
+    private void mockSingleResource(String resourcePath, InputStream returnedStream, InputStream... furtherStreams)
+        throws IOException {
+        final URLConnection mockUrlCon = mock(URLConnection.class);
+        when(mockUrlCon.getInputStream()).thenReturn(returnedStream, furtherStreams);
+        URL url = new URL("dont", "care", 0, "about-this", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL u) {
+                return mockUrlCon;
+            }
+        });
+        when(classLoader.getResource(resourcePath)).thenReturn(url);
+    }
+
+    /**
+     * @param indexes the contents of each index, in class path order
+     */
+    private void mockIndex(String... indexes) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (String index : indexes) {
+            final URLConnection mockUrlCon = mock(URLConnection.class);
+            when(mockUrlCon.getInputStream()).thenReturn(new ByteArrayInputStream(index.getBytes()));
+            urls.add(new URL("dont", "care", 0, "about-this", new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL u) {
+                    return mockUrlCon;
+                }
+            }));
+        }
+        when(classLoader.getResources(VersionNameIndex.INDEX_PATH)).thenReturn(Collections.enumeration(urls));
+    }
+
     private void mockManifest(String manifestPath, InputStream returnedStream) {
         mockManifest(manifestPath, Collections.singletonList(returnedStream));
     }
 
+    /**
+     * Other than {@link #mockManifest(String, List)}, each stream can be opened independently, e.g. concurrently.
+     */
+    private void mockResourcesWithSeparateUrls(String resourcePath, List<InputStream> returnedStreams)
+        throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (int i = 0; i < returnedStreams.size(); i++) {
+            final URLConnection mockUrlCon = mock(URLConnection.class);
+            when(mockUrlCon.getInputStream()).thenReturn(returnedStreams.get(i));
+            urls.add(new URL("dont", "care", i, "about-this", new URLStreamHandler() {
+                @Override
+                protected URLConnection openConnection(URL u) {
+                    return mockUrlCon;
+                }
+            }));
+        }
+        when(classLoader.getResources(resourcePath)).thenReturn(Collections.enumeration(urls));
+    }
+
     private void mockManifest(String manifestPath, List<InputStream> returnedStreams) {
         final URLConnection mockUrlCon = mock(URLConnection.class);
 
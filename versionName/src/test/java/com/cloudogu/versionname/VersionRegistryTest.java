@@ -0,0 +1,321 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link VersionRegistry}.
+ */
+public class VersionRegistryTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final List<URL> classPath = new ArrayList<>();
+
+    private File implementationJar;
+    private File bundleJar;
+    private File classesDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        implementationJar = createJar("implementation.jar",
+            VersionRegistry.ATTRIBUTE_IMPLEMENTATION_TITLE, "library",
+            VersionRegistry.ATTRIBUTE_IMPLEMENTATION_VERSION, "1.2.3");
+        createJar("unversioned.jar", "Created-By", "test");
+        bundleJar = createJar("bundle.jar",
+            VersionRegistry.ATTRIBUTE_BUNDLE_SYMBOLIC_NAME, "org.example.bundle;singleton:=true",
+            VersionRegistry.ATTRIBUTE_BUNDLE_VERSION, "4.5.6",
+            VersionRegistry.ATTRIBUTE_IMPLEMENTATION_VERSION, "4.5");
+        classesDirectory = folder.newFolder("classes");
+        File manifest = new File(classesDirectory, VersionNames.DEFAULT_MANIFEST_PATH);
+        assertTrue(manifest.getParentFile().mkdirs());
+        try (OutputStream out = new FileOutputStream(manifest)) {
+            createManifest(VersionNames.DEFAULT_MANIFEST_ATTRIBUTE, "7.8.9-SNAPSHOT",
+                VersionRegistry.ATTRIBUTE_IMPLEMENTATION_TITLE, "library").write(out);
+        }
+        classPath.add(classesDirectory.toURI().toURL());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test for {@link VersionRegistry#getComponents()}, where manifests without version information are left out.
+     */
+    @Test
+    public void getComponents() throws IOException {
+        VersionRegistry registry = scan();
+
+        assertEquals(3, registry.size());
+        List<ComponentVersion> components = registry.getComponents();
+        assertComponent(components.get(0), implementationJar.toURI().toURL().toString(), "library", "1.2.3");
+        assertComponent(components.get(1), bundleJar.toURI().toURL().toString(), "org.example.bundle", "4.5");
+        assertComponent(components.get(2), classesDirectory.toURI().toURL().toString(), "library", "7.8.9-SNAPSHOT");
+    }
+
+    /**
+     * Test for {@link VersionRegistry#getComponents()}, where the attributes are kept as they are, except for
+     * directives of <code>Bundle-SymbolicName</code>.
+     */
+    @Test
+    public void getComponentsAttributes() {
+        ComponentVersion bundle = scan().getComponents().get(1);
+
+        assertNull(bundle.getImplementationTitle());
+        assertEquals("4.5", bundle.getImplementationVersion());
+        assertEquals("org.example.bundle", bundle.getBundleSymbolicName());
+        assertEquals("4.5.6", bundle.getBundleVersion());
+        assertNull(bundle.getVersionName());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#getComponents()}, where the manifests are read in the order of the class path,
+     * although concurrently.
+     */
+    @Test
+    public void getComponentsKeepsClassPathOrder() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            createJar("library" + i + ".jar", VersionRegistry.ATTRIBUTE_IMPLEMENTATION_TITLE, "library" + i);
+        }
+
+        List<ComponentVersion> components = scan().getComponents();
+
+        assertEquals(53, components.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("library" + i, components.get(i + 3).getName());
+        }
+    }
+
+    /**
+     * Test for {@link VersionRegistry#scan(ClassLoader, ExecutorService)}, where the executor does not accept the
+     * reads, so the manifests are read on the calling thread.
+     */
+    @Test
+    public void scanExecutorRejects() {
+        executor.shutdown();
+
+        assertEquals(3, scan().size());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#scan(ClassLoader, ExecutorService)}, where a manifest is malformed and left out.
+     */
+    @Test
+    public void scanMalformedManifest() throws IOException {
+        File directory = folder.newFolder("malformed");
+        File manifest = new File(directory, VersionNames.DEFAULT_MANIFEST_PATH);
+        assertTrue(manifest.getParentFile().mkdirs());
+        try (OutputStream out = new FileOutputStream(manifest)) {
+            out.write(" misplaced continuation line\n".getBytes("US-ASCII"));
+        }
+        classPath.add(0, directory.toURI().toURL());
+
+        assertEquals(3, scan().size());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#getByLocation(String)}.
+     */
+    @Test
+    public void getByLocation() throws IOException {
+        VersionRegistry registry = scan();
+        String jarLocation = bundleJar.toURI().toURL().toString();
+
+        assertEquals("4.5", registry.getByLocation(jarLocation).getVersion());
+        assertEquals("4.5", registry.getByLocation("jar:" + jarLocation + "!/").getVersion());
+        assertEquals("4.5",
+            registry.getByLocation("jar:" + jarLocation + "!/META-INF/MANIFEST.MF").getVersion());
+        assertEquals("7.8.9-SNAPSHOT", registry.getByLocation(classesDirectory.toURI().toURL()).getVersion());
+        assertNull(registry.getByLocation("file:/unknown.jar"));
+    }
+
+    /**
+     * Test for {@link VersionRegistry#getByName(String)} and {@link VersionRegistry#getVersion(String)}.
+     */
+    @Test
+    public void getByName() {
+        VersionRegistry registry = scan();
+
+        List<ComponentVersion> libraries = registry.getByName("library");
+        assertEquals(2, libraries.size());
+        assertEquals("1.2.3", libraries.get(0).getVersion());
+        assertEquals("7.8.9-SNAPSHOT", libraries.get(1).getVersion());
+        assertEquals("1.2.3", registry.getVersion("library"));
+        assertEquals("4.5", registry.getVersion("org.example.bundle"));
+        assertTrue(registry.getByName("unknown").isEmpty());
+        assertNull(registry.getVersion("unknown"));
+    }
+
+    /**
+     * Test for {@link VersionRegistry#get(ClassLoader)}, where the class path is scanned only once.
+     */
+    @Test
+    public void getScansOnce() throws IOException {
+        URLClassLoader classLoader = createClassLoader();
+        VersionRegistry registry = VersionRegistry.get(classLoader);
+
+        createJar("added.jar", VersionRegistry.ATTRIBUTE_IMPLEMENTATION_TITLE, "added");
+
+        assertSame(registry, VersionRegistry.get(classLoader));
+        assertFalse(registry.getByName("library").isEmpty());
+        assertTrue(registry.getByName("added").isEmpty());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#get(ClassLoader)}, where concurrent calls for the same class loader wait for a
+     * single scan.
+     */
+    @Test(timeout = 10000)
+    public void getConcurrentlyScansOnce() throws Exception {
+        BlockingClassLoader classLoader = new BlockingClassLoader();
+        Future<VersionRegistry> first = executor.submit(() -> VersionRegistry.get(classLoader));
+        classLoader.scanning.await();
+        Future<VersionRegistry> second = executor.submit(() -> VersionRegistry.get(classLoader));
+
+        classLoader.proceed.countDown();
+
+        assertSame(first.get(), second.get());
+        assertEquals(3, first.get().size());
+        assertEquals(1, classLoader.scans.get());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#get(ClassLoader)}, where a scan in progress does not hold up other class
+     * loaders.
+     */
+    @Test(timeout = 10000)
+    public void getDoesNotWaitForOtherClassLoaders() throws Exception {
+        BlockingClassLoader classLoader = new BlockingClassLoader();
+        Future<VersionRegistry> blocked = executor.submit(() -> VersionRegistry.get(classLoader));
+        classLoader.scanning.await();
+
+        try {
+            assertEquals(3, VersionRegistry.get(createClassLoader()).size());
+        } finally {
+            classLoader.proceed.countDown();
+        }
+        assertEquals(3, blocked.get().size());
+    }
+
+    /**
+     * Test for {@link VersionRegistry#get(ClassLoader)}, called from a thread of the common pool.
+     */
+    @Test(timeout = 10000)
+    public void getOnCommonPool() throws Exception {
+        URLClassLoader classLoader = createClassLoader();
+
+        assertEquals(3, CompletableFuture.supplyAsync(() -> VersionRegistry.get(classLoader)).get().size());
+    }
+
+    private VersionRegistry scan() {
+        return VersionRegistry.scan(createClassLoader(), executor);
+    }
+
+    private URLClassLoader createClassLoader() {
+        return new URLClassLoader(classPath.toArray(new URL[0]), null);
+    }
+
+    private void assertComponent(ComponentVersion component, String location, String name, String version) {
+        assertEquals(location, component.getLocation());
+        assertEquals(name, component.getName());
+        assertEquals(version, component.getVersion());
+    }
+
+    private File createJar(String fileName, String... attributes) throws IOException {
+        File jar = folder.newFile(fileName);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), createManifest(attributes))) {
+            out.flush();
+        }
+        classPath.add(jar.toURI().toURL());
+        return jar;
+    }
+
+    /**
+     * Waits for {@link #proceed} before listing the manifests.
+     */
+    private class BlockingClassLoader extends URLClassLoader {
+
+        final CountDownLatch scanning = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final AtomicInteger scans = new AtomicInteger();
+
+        BlockingClassLoader() {
+            super(classPath.toArray(new URL[0]), null);
+        }
+
+        @Override
+        public Enumeration<URL> getResources(String name) throws IOException {
+            scans.incrementAndGet();
+            scanning.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getResources(name);
+        }
+    }
+
+    private Manifest createManifest(String... attributes) {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        for (int i = 0; i < attributes.length; i += 2) {
+            manifest.getMainAttributes().putValue(attributes[i], attributes[i + 1]);
+        }
+        return manifest;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VersionTest {
+
+    /**
+     * Test for {@link Version#parse(String)} with SemVer and maven style versions.
+     */
+    @Test
+    public void parse() {
+        assertVersion("2.2.1", 2, 2, 1, "", "", true);
+        assertVersion("2.2.1-SNAPSHOT", 2, 2, 1, "SNAPSHOT", "", false);
+        assertVersion("1.0.0-rc.1+build.5", 1, 0, 0, "rc.1", "build.5", false);
+        assertVersion("1.0.0+build.5", 1, 0, 0, "", "build.5", true);
+        assertVersion("5.3.9.RELEASE", 5, 3, 9, "RELEASE", "", true);
+        assertVersion("1.0-alpha-1", 1, 0, 0, "alpha-1", "", false);
+        assertVersion("v3", 3, 0, 0, "", "", true);
+        assertVersion("1.0RC1", 1, 0, 0, "RC1", "", false);
+        assertVersion("1.2.x", 1, 2, 0, "x", "", false);
+        assertVersion("2147483647.0.0", Integer.MAX_VALUE, 0, 0, "", "", true);
+        assertVersion("1.2.3.4", 1, 2, 3, "4", "", true);
+        assertVersion("1.0.0-sp1", 1, 0, 0, "sp1", "", true);
+        assertVersion("1.2.3.4-SNAPSHOT", 1, 2, 3, "4-SNAPSHOT", "", true);
+    }
+
+    /**
+     * Test for {@link Version#isPostRelease()}.
+     */
+    @Test
+    public void isPostRelease() {
+        assertTrue(Version.parse("1.2.3.4").isPostRelease());
+        assertTrue(Version.parse("1.2.3.0").isPostRelease());
+        assertTrue(Version.parse("1.0.0-sp1").isPostRelease());
+        assertTrue(Version.parse("1.0.0.SP2").isPostRelease());
+        assertTrue(Version.parse("1.0.0-patch-1").isPostRelease());
+        assertFalse(Version.parse("1.2.3").isPostRelease());
+        assertFalse(Version.parse("5.3.9.RELEASE").isPostRelease());
+        assertFalse(Version.parse("1.0.0-1").isPostRelease());
+        assertFalse(Version.parse("1.0.0-SNAPSHOT").isPostRelease());
+        assertFalse(Version.parse("1.0.0-spring").isPostRelease());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseNoNumber() {
+        Version.parse("SNAPSHOT");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseEmpty() {
+        Version.parse("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseNull() {
+        Version.parse(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseNumberTooLarge() {
+        Version.parse("2147483648.0.0");
+    }
+
+    /**
+     * Test for {@link Version#compareTo(Version)}: each version is less than the next one.
+     */
+    @Test
+    public void compareTo() {
+        String[] ascending = {
+            "0.9.9", "1.0.0-1", "1.0.0-2", "1.0.0-10", "1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta",
+            "1.0.0-beta", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-milestone-1", "1.0.0-rc.1", "1.0.0-SNAPSHOT",
+            "1.0.0-foo", "1.0.0-zoo", "1.0.0", "1.0.0.1-SNAPSHOT", "1.0.0.1", "1.0.0.1.1", "1.0.0.2", "1.0.0.10",
+            "1.0.0-patch1", "1.0.0-sp1", "1.0.0-sp2", "1.0.1-SNAPSHOT", "1.0.1", "1.2", "1.10", "2", "10.0.0"
+        };
+        for (int i = 0; i < ascending.length; i++) {
+            for (int j = 0; j < ascending.length; j++) {
+                int expected = Integer.signum(Integer.compare(i, j));
+                int actual = Integer.signum(Version.parse(ascending[i]).compareTo(Version.parse(ascending[j])));
+                assertEquals(ascending[i] + " compared to " + ascending[j], expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Test for {@link Version#equals(Object)} and {@link Version#hashCode()}, which must be consistent with
+     * {@link Version#compareTo(Version)}.
+     */
+    @Test
+    public void equalsAndHashCode() {
+        assertEqualVersions("1.0.0", "1.0");
+        assertEqualVersions("1.0.0", "v1");
+        assertEqualVersions("1.0.0", "1.0.0+build.5");
+        assertEqualVersions("1.0.0", "1.0.0.RELEASE");
+        assertEqualVersions("1.0.0", "1.0-GA");
+        assertEqualVersions("1.0.0-rc1", "1.0.0-RC-1");
+        assertEqualVersions("1.0.0-rc.1", "1.0.0-cr.01");
+        assertEqualVersions("1.0.0-Foo", "1.0.0-foo");
+        assertEqualVersions("1.2.3.4", "1.2.3.04");
+        assertEqualVersions("1.2.3.4", "1.2.3.4.RELEASE");
+        assertEqualVersions("1.2.3.4-SNAPSHOT", "1.2.3.4.snapshot");
+        assertEqualVersions("1.0.0-sp1", "1.0.0.SP-1");
+        assertNotEquals(Version.parse("1.2.3.4"), Version.parse("1.2.3"));
+        assertNotEquals(Version.parse("1.0.0-rc.1"), Version.parse("1.0.0-rc.2"));
+        assertNotEquals(Version.parse("1.0.0-SNAPSHOT"), Version.parse("1.0.0"));
+        assertNotEquals(Version.parse("1.0.0"), "1.0.0");
+    }
+
+    /**
+     * Test for {@link Version#parse(String)}, which must return the same instance for the same version name.
+     */
+    @Test
+    public void parseInterns() {
+        assertSame(Version.parse("2.2.1-SNAPSHOT"), Version.parse("2.2.1-SNAPSHOT"));
+    }
+
+    @Test
+    public void isAtLeast() {
+        Version version = Version.parse("2.2.1");
+        assertTrue(version.isAtLeast(2, 2, 1));
+        assertTrue(version.isAtLeast(2, 2, 0));
+        assertTrue(version.isAtLeast(1, 9, 9));
+        assertFalse(version.isAtLeast(2, 2, 2));
+        assertFalse(version.isAtLeast(2, 3, 0));
+        assertFalse(version.isAtLeast(3, 0, 0));
+        assertFalse(Version.parse("2.2.1-SNAPSHOT").isAtLeast(2, 2, 1));
+        assertTrue(Version.parse("2.2.1-SNAPSHOT").isAtLeast(2, 2, 0));
+        assertTrue(Version.parse("2.2.1.4").isAtLeast(2, 2, 1));
+        assertTrue(Version.parse("2.2.1-sp1").isAtLeast(2, 2, 1));
+        assertFalse(Version.parse("2.2.1.4").isAtLeast(2, 2, 2));
+    }
+
+    @Test
+    public void of() {
+        Version version = Version.of(2, 2, 1);
+        assertEquals("2.2.1", version.toString());
+        assertEquals(Version.parse("2.2.1"), version);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ofNegative() {
+        Version.of(1, -1, 0);
+    }
+
+    private static void assertVersion(String versionName, int major, int minor, int patch, String qualifier,
+                                      String buildMetadata, boolean release) {
+        Version version = Version.parseUncached(versionName);
+        assertEquals("Unexpected major version of " + versionName, major, version.getMajor());
+        assertEquals("Unexpected minor version of " + versionName, minor, version.getMinor());
+        assertEquals("Unexpected patch version of " + versionName, patch, version.getPatch());
+        assertEquals("Unexpected qualifier of " + versionName, qualifier, version.getQualifier());
+        assertEquals("Unexpected build metadata of " + versionName, buildMetadata, version.getBuildMetadata());
+        assertEquals("Unexpected release of " + versionName, release, version.isRelease());
+        assertEquals(versionName, version.toString());
+    }
+
+    private static void assertEqualVersions(String versionName, String otherVersionName) {
+        Version version = Version.parse(versionName);
+        Version other = Version.parse(otherVersionName);
+        assertEquals(versionName + " compared to " + otherVersionName, 0, version.compareTo(other));
+        assertEquals(versionName + " not equal to " + otherVersionName, version, other);
+        assertEquals("Different hash codes of " + versionName + " and " + otherVersionName, version.hashCode(),
+            other.hashCode());
+    }
+}
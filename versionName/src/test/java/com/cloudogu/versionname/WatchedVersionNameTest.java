@@ -0,0 +1,352 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WatchedVersionName} and {@link VersionNames#watchVersionNameFromProperties(String, String)}.
+ */
+public class WatchedVersionNameTest {
+
+    // Some WatchService implementations poll, e.g. every 10 seconds on macOS
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    private final BlockingQueue<String> notifications = new LinkedBlockingQueue<>();
+
+    private ClassLoader originalClassLoader;
+    private File classes;
+    private Path propertiesFile;
+    private WatchedVersionName watched;
+
+    @Before
+    public void setUp() throws IOException {
+        classes = folder.newFolder("classes");
+        propertiesFile = new File(classes, "app.properties").toPath();
+        writeVersionName(propertiesFile, "1.0.0");
+        originalClassLoader = Thread.currentThread().getContextClassLoader();
+        useClassPath(classes.toURI().toURL());
+    }
+
+    @After
+    public void tearDown() {
+        if (watched != null) {
+            watched.close();
+        }
+        Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromProperties()}, where the properties file is modified.
+     */
+    @Test
+    public void watchVersionNameFromPropertiesModified() throws Exception {
+        watched = VersionNames.watchVersionNameFromProperties();
+        watched.subscribe(notifications::add);
+
+        assertEquals("1.0.0", watched.get());
+        assertTrue(watched.isWatching());
+
+        writeVersionName(propertiesFile, "2.0.0");
+
+        assertEquals("2.0.0", notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("2.0.0", watched.get());
+        assertEquals("Cached version name not refreshed", "2.0.0", VersionNames.getVersionNameFromProperties());
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromProperties()}, where the properties file is replaced by moving
+     * another file into place.
+     */
+    @Test
+    public void watchVersionNameFromPropertiesReplaced() throws Exception {
+        watched = VersionNames.watchVersionNameFromProperties();
+        watched.subscribe(notifications::add);
+
+        Path newBuild = folder.newFile("app.properties.new").toPath();
+        writeVersionName(newBuild, "2.0.0");
+        Files.move(newBuild, propertiesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertEquals("2.0.0", notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("2.0.0", watched.get());
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromProperties()}, where the properties file is written in parts.
+     * Subscribers must only be notified of the complete file.
+     */
+    @Test
+    public void watchVersionNameFromPropertiesWrittenInParts() throws Exception {
+        watched = VersionNames.watchVersionNameFromProperties();
+        watched.subscribe(notifications::add);
+
+        try (OutputStream out = new FileOutputStream(propertiesFile.toFile())) {
+            out.write((VersionNames.DEFAULT_PROPERTY + "=2.").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(ResourceWatcher.QUIET_PERIOD_MILLIS / 4);
+            out.write("0.0\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("2.0.0", notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(notifications.poll(ResourceWatcher.QUIET_PERIOD_MILLIS * 2, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromManifest(String, String)}, where the manifest is a file.
+     */
+    @Test
+    public void watchVersionNameFromManifest() throws Exception {
+        File manifest = new File(classes, VersionNames.DEFAULT_MANIFEST_PATH);
+        assertTrue(manifest.getParentFile().mkdirs());
+        writeManifest(manifest, "1.0.0");
+
+        watched = VersionNames.watchVersionNameFromManifest();
+        watched.subscribe(notifications::add);
+        assertEquals("1.0.0", watched.get());
+
+        writeManifest(manifest, "2.0.0");
+
+        assertEquals("2.0.0", notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("2.0.0", VersionNames.getVersionNameFromManifest());
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromManifest()}, where the manifest is within a jar, which is not
+     * watched.
+     */
+    @Test
+    public void watchVersionNameFromManifestInJar() throws Exception {
+        File jar = folder.newFile("library.jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(VersionNames.DEFAULT_MANIFEST_ATTRIBUTE, "1.2.3");
+        new JarOutputStream(new FileOutputStream(jar), manifest).close();
+        useClassPath(jar.toURI().toURL());
+
+        watched = VersionNames.watchVersionNameFromManifest();
+
+        assertEquals("1.2.3", watched.get());
+        assertFalse(watched.isWatching());
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromProperties(String, String)}, where the property does not exist.
+     */
+    @Test
+    public void watchVersionNameFromPropertiesNotFound() {
+        watched = VersionNames.watchVersionNameFromProperties(VersionNames.DEFAULT_PROPERTIES_FILE_PATH, "other");
+
+        assertEquals(VersionNames.VERSION_STRING_ON_ERROR, watched.get());
+        assertFalse(watched.isWatching());
+    }
+
+    /**
+     * Test for {@link VersionNames#watchVersionNameFromProperties(String, String)}, where the path is
+     * <code>null</code>.
+     */
+    @Test
+    public void watchVersionNameFromPropertiesPathNull() {
+        watched = VersionNames.watchVersionNameFromProperties(null, VersionNames.DEFAULT_PROPERTY);
+
+        assertEquals(VersionNames.VERSION_STRING_ON_ERROR, watched.get());
+        assertFalse(watched.isWatching());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#close()}.
+     */
+    @Test
+    public void close() {
+        watched = VersionNames.watchVersionNameFromProperties();
+
+        watched.close();
+
+        assertFalse(watched.isWatching());
+        assertEquals("1.0.0", watched.get());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#close()}, where the last watched version name is closed, which stops the
+     * watcher thread. Watching again starts it again.
+     */
+    @Test
+    public void closeStopsWatcher() throws Exception {
+        watched = VersionNames.watchVersionNameFromProperties();
+        assertTrue(ResourceWatcher.getInstance().isRunning());
+
+        watched.close();
+
+        assertFalse(ResourceWatcher.getInstance().isRunning());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (ResourceWatcher.THREAD_NAME.equals(thread.getName())) {
+                thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+                assertFalse("Watcher thread still running", thread.isAlive());
+            }
+        }
+
+        watched = VersionNames.watchVersionNameFromProperties();
+        watched.subscribe(notifications::add);
+        writeVersionName(propertiesFile, "2.0.0");
+
+        assertEquals("2.0.0", notifications.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#reload()}, where the changed file does not contain a version name (yet), so
+     * the current one is kept.
+     */
+    @Test
+    public void reloadNotFound() throws IOException {
+        watched = createWatchedVersionName();
+        watched.subscribe(notifications::add);
+        Files.write(propertiesFile, "other=2.0.0\n".getBytes(StandardCharsets.UTF_8));
+
+        watched.reload();
+
+        assertEquals("1.0.0", watched.get());
+        assertNull(notifications.poll());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#reload()}, where the file is gone, so the current version name is kept.
+     */
+    @Test
+    public void reloadFileMissing() throws IOException {
+        watched = createWatchedVersionName();
+        watched.subscribe(notifications::add);
+        Files.delete(propertiesFile);
+
+        watched.reload();
+
+        assertEquals("1.0.0", watched.get());
+        assertNull(notifications.poll());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#reload()}, where the version name did not change, so nobody is notified.
+     */
+    @Test
+    public void reloadUnchanged() throws IOException {
+        watched = createWatchedVersionName();
+        watched.subscribe(notifications::add);
+        writeVersionName(propertiesFile, "1.0.0");
+
+        watched.reload();
+
+        assertNull(notifications.poll());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#reload()}, where a subscriber fails, which does not keep the others from being
+     * notified.
+     */
+    @Test
+    public void reloadFailingSubscriber() throws IOException {
+        watched = createWatchedVersionName();
+        Consumer<String> failing = versionName -> {
+            throw new IllegalStateException("expected");
+        };
+        watched.subscribe(failing);
+        watched.subscribe(notifications::add);
+        writeVersionName(propertiesFile, "2.0.0");
+
+        watched.reload();
+
+        assertEquals("2.0.0", watched.get());
+        assertEquals("2.0.0", notifications.poll());
+    }
+
+    /**
+     * Test for {@link WatchedVersionName#unsubscribe(Consumer)}.
+     */
+    @Test
+    public void unsubscribe() throws IOException {
+        watched = createWatchedVersionName();
+        Consumer<String> subscriber = notifications::add;
+        watched.subscribe(subscriber);
+        watched.unsubscribe(subscriber);
+        writeVersionName(propertiesFile, "2.0.0");
+
+        watched.reload();
+
+        assertEquals("2.0.0", watched.get());
+        assertNull(notifications.poll());
+    }
+
+    /**
+     * @return a version name read from {@link #propertiesFile}, which is not watched
+     */
+    private WatchedVersionName createWatchedVersionName() {
+        WatchedVersionName result = new WatchedVersionName("1.0.0", propertiesFile,
+            in -> PropertiesScanner.findProperty(in, VersionNames.DEFAULT_PROPERTY, false), versionName -> {
+            });
+        return result;
+    }
+
+    private void useClassPath(URL url) {
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(new URL[] { url }, null));
+    }
+
+    private void writeVersionName(Path file, String versionName) throws IOException {
+        Files.write(file, (VersionNames.DEFAULT_PROPERTY + "=" + versionName + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeManifest(File file, String versionName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue(VersionNames.DEFAULT_MANIFEST_ATTRIBUTE, versionName);
+        try (OutputStream out = new FileOutputStream(file)) {
+            manifest.write(out);
+        }
+    }
+}
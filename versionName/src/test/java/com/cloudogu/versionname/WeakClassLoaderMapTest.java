@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2016 Cloudogu GmbH
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.versionname;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class WeakClassLoaderMapTest {
+
+    private final WeakClassLoaderMap<String> map = new WeakClassLoaderMap<>();
+    private final ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+    private final ClassLoader otherClassLoader = new URLClassLoader(new URL[0], null);
+
+    @Test
+    public void putGetRemove() {
+        map.put(classLoader, "a");
+        map.put(otherClassLoader, "b");
+        map.put(classLoader, "c");
+
+        assertEquals("c", map.get(classLoader));
+        assertEquals("b", map.get(otherClassLoader));
+        assertEquals(2, map.size());
+
+        map.remove(classLoader);
+        assertNull(map.get(classLoader));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void computeIfAbsent() {
+        String value = map.computeIfAbsent(classLoader, cl -> new String("a"));
+
+        assertSame(value, map.computeIfAbsent(classLoader, cl -> "b"));
+        assertSame(value, map.get(classLoader));
+    }
+
+    @Test
+    public void removeOnlyMatchingValue() {
+        map.put(classLoader, "a");
+
+        map.remove(classLoader, "b");
+        assertEquals("a", map.get(classLoader));
+
+        map.remove(classLoader, "a");
+        assertNull(map.get(classLoader));
+    }
+
+    /**
+     * Test for {@link WeakClassLoaderMap}: the class loader is not kept from being collected and its entry is dropped
+     * afterwards.
+     */
+    @Test(timeout = 10000)
+    public void dropsCollectedClassLoader() throws Exception {
+        map.put(classLoader, "a");
+        WeakReference<ClassLoader> collected = putCollectableClassLoader();
+
+        while (collected.get() != null || map.size() > 1) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals("a", map.get(classLoader));
+    }
+
+    private WeakReference<ClassLoader> putCollectableClassLoader() {
+        ClassLoader collectable = new URLClassLoader(new URL[0], null);
+        map.put(collectable, "b");
+        return new WeakReference<>(collectable);
+    }
+}